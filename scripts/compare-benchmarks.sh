@@ -0,0 +1,22 @@
+#!/bin/bash
+set -e
+
+# Compares two JMH JSON result files (ops/s and allocation per op) benchmark by benchmark.
+# Usage: ./scripts/compare-benchmarks.sh <baseline.json> <candidate.json>
+if [ $# -ne 2 ]; then
+    echo "Usage: $0 <baseline.json> <candidate.json>"
+    exit 1
+fi
+
+summarize='.[] | {key: (.benchmark + (if .params then " " + (.params | to_entries | map(.key + "=" + .value) | join(",")) else "" end)),
+  value: {score: .primaryMetric.score, alloc: (.secondaryMetrics["·gc.alloc.rate.norm"].score // null)}}'
+
+jq -r -n --slurpfile old "$1" --slurpfile new "$2" "
+  (\$old[0] | [$summarize] | from_entries) as \$o |
+  (\$new[0] | [$summarize] | from_entries) as \$n |
+  [\"benchmark\", \"old ops/s\", \"new ops/s\", \"change\", \"old B/op\", \"new B/op\"],
+  (\$n | keys[] as \$k | select(\$o[\$k]) |
+    [\$k, (\$o[\$k].score | floor), (\$n[\$k].score | floor),
+     (((\$n[\$k].score / \$o[\$k].score - 1) * 100 | floor | tostring) + \"%\"),
+     \$o[\$k].alloc, \$n[\$k].alloc])
+  | @tsv" | if command -v column &> /dev/null; then column -t -s $'\t'; else cat; fi
@@ -0,0 +1,52 @@
+#!/bin/bash
+set -e
+
+# Starts the app with the given command and reports, in ms from launch:
+#   - first successful evaluation (GET /flags/<key>/evaluate returns 200)
+#   - readiness UP (flags loaded and evaluation path warmed, see FlagWarmup)
+# plus the app's own numbers from /actuator/health/readiness and /actuator/metrics, then stops it.
+# Usage: ./scripts/measure-startup.sh [runs] -- <command...>
+#   ./scripts/measure-startup.sh 5 -- java -jar target/devstream-portfolio-0.0.1-SNAPSHOT.jar
+#   ./scripts/measure-startup.sh 5 -- java -XX:SharedArchiveFile=application/app.jsa -Dspring.aot.enabled=true -jar application/app.jar
+RUNS=${1:-1}
+shift || true
+[ "$1" = "--" ] && shift
+if [ $# -eq 0 ]; then
+    echo "Usage: $0 [runs] -- <command...>"
+    exit 1
+fi
+BASE_URL=${BASE_URL:-http://localhost:8080}
+FLAG_KEY=${FLAG_KEY:-homepage_banner}
+
+now_ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+metric() {
+    curl -s "$BASE_URL/actuator/metrics/$1" | sed -n 's/.*"value":\([0-9.E-]*\).*/\1/p'
+}
+
+printf "%-4s %14s %14s %18s %16s\n" "run" "first eval ms" "ready ms" "app started (s)" "app warmed (s)"
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    "$@" > "startup-run-$run.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null' EXIT
+    first_eval=""
+    ready=""
+    while [ -z "$ready" ] || [ -z "$first_eval" ]; do
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "App exited during run $run, see startup-run-$run.log"
+            exit 1
+        fi
+        if [ -z "$first_eval" ] && curl -sf -o /dev/null "$BASE_URL/flags/$FLAG_KEY/evaluate?userId=u1"; then
+            first_eval=$(( $(now_ms) - start ))
+        fi
+        if [ -z "$ready" ] && curl -sf -o /dev/null "$BASE_URL/actuator/health/readiness"; then
+            ready=$(( $(now_ms) - start ))
+        fi
+        sleep 0.02
+    done
+    printf "%-4s %14s %14s %18s %16s\n" "$run" "$first_eval" "$ready" \
+        "$(metric application.started.time)" "$(metric flag.startup.warmed.time)"
+    kill $pid
+    wait $pid 2>/dev/null || true
+done
@@ -0,0 +1,18 @@
+#!/bin/bash
+set -e
+
+# Runs the JMH benchmarks in src/jmh/java with the GC profiler and keeps the JSON
+# results under bench-results/ so engine changes can be compared between releases.
+# Usage: ./scripts/run-benchmarks.sh [label] [extra JMH args...]
+LABEL=${1:-$(git rev-parse --short HEAD)}
+shift || true
+
+echo "⏱️  Running JMH benchmarks ($LABEL)..."
+./mvnw -B -Pjmh -DskipTests -Djmh.args="$*" verify
+
+mkdir -p bench-results
+cp target/jmh-results.json "bench-results/$LABEL.json"
+
+echo ""
+echo "✅ Results saved to bench-results/$LABEL.json"
+echo "💡 Compare two runs: ./scripts/compare-benchmarks.sh bench-results/<old>.json bench-results/$LABEL.json"
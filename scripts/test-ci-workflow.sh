@@ -5,6 +5,7 @@ echo "=== Testing CI Workflow Steps ==="
 
 # Step 1: Build with Maven
 echo -e "\n[1/5] Running Maven build..."
+./mvnw -B -f sdk/pom.xml install -q
 ./mvnw -B verify -q
 
 # Step 2: Build Docker image
@@ -0,0 +1,60 @@
+package com.dmdwyer.devstream.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Bucketing hashes. murmur3 runs MurmurHash3 (x86, 32-bit) directly over the UTF-16
+// chars of the input, two chars per block, so hashing a user id allocates nothing.
+// A flag's salt is the murmur3 of its key; bucket() mixes it into the user hash with
+// the murmur finalizer, which lets bulk evaluation hash the user once for all flags.
+public final class BucketHasher {
+  private static final int C1 = 0xcc9e2d51;
+  private static final int C2 = 0x1b873593;
+
+  private BucketHasher() {}
+
+  public static int murmur3(String s) {
+    if (s == null) s = "";
+    int h1 = 0;
+    int len = s.length();
+    int i = 1;
+    for (; i < len; i += 2) {
+      int k1 = s.charAt(i - 1) | (s.charAt(i) << 16);
+      h1 ^= mixK1(k1);
+      h1 = Integer.rotateLeft(h1, 13);
+      h1 = h1 * 5 + 0xe6546b64;
+    }
+    if ((len & 1) == 1) {
+      h1 ^= mixK1(s.charAt(len - 1));
+    }
+    return fmix(h1 ^ (2 * len));
+  }
+
+  // Salted bucket in [0, BucketingMode.MURMUR3.buckets())
+  public static int bucket(int userHash, int salt) {
+    return Integer.remainderUnsigned(fmix(userHash ^ salt), BucketingMode.MURMUR3.buckets());
+  }
+
+  // Original bucketing, kept bit-for-bit for BucketingMode.LEGACY flags
+  public static int legacyBucket(String userId) {
+    if (userId == null) userId = "";
+    int h = Arrays.hashCode(userId.getBytes(StandardCharsets.UTF_8));
+    if (h == Integer.MIN_VALUE) h = 0; // avoid Math.abs overflow
+    return Math.floorMod(Math.abs(h), BucketingMode.LEGACY.buckets());
+  }
+
+  private static int mixK1(int k1) {
+    k1 *= C1;
+    k1 = Integer.rotateLeft(k1, 15);
+    return k1 * C2;
+  }
+
+  private static int fmix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,16 @@
+package com.dmdwyer.devstream.engine;
+
+// How users are assigned to variant buckets.
+// LEGACY keeps the original unsalted Arrays.hashCode % 100 assignment so flags that
+// existed before salted bucketing don't reshuffle; MURMUR3 is salted per flag key and
+// has basis-point (0-9999) resolution.
+public enum BucketingMode {
+  LEGACY(100),
+  MURMUR3(10_000);
+
+  private final int buckets;
+
+  BucketingMode(int buckets) { this.buckets = buckets; }
+
+  public int buckets() { return buckets; }
+}
@@ -0,0 +1,130 @@
+package com.dmdwyer.devstream.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Evaluation plan for a single flag, built once by FlagCompiler. Evaluating it is a
+// scan over compiled rule conditions plus a short scan over the variant bounds. Nothing in
+// the definition is parsed again, and for MURMUR3 bucketing nothing is allocated (semver
+// conditions parse the user's version attribute).
+public final class CompiledFlag {
+  public static final String OFF = "OFF";
+  public static final String ON = "ON";
+
+  private final String key;
+  private final boolean enabled;
+  private final Rule[] rules;
+  private final RuleIndex index;   // null: rules are tried one by one
+  private final BucketingMode bucketing;
+  private final int salt;
+  private final int[] upperBounds; // cumulative weights in bucketing.buckets() units, one per variant
+  private final String[] variants; // empty when no variants are configured
+  private final List<String> prerequisites; // keys of flags that rules look at, in first-use order
+
+  // Every possible result has an outcome index: 0 disabled, 1 fallthrough, then one per
+  // rule, then one per variant. Callers that need the reason (metrics) evaluate to the
+  // index and look the variant up, so no result object is allocated per evaluation.
+  private static final int DISABLED = 0;
+  private static final int FALLTHROUGH = 1;
+  private static final int FIRST_RULE = 2;
+
+  private final String[] outcomeVariants;
+  private final EvaluationReason[] outcomeReasons;
+
+  CompiledFlag(String key, boolean enabled, Rule[] rules, RuleIndex index, BucketingMode bucketing, int[] upperBounds, String[] variants) {
+    this.key = key;
+    this.enabled = enabled;
+    this.rules = rules;
+    this.index = index;
+    this.bucketing = bucketing;
+    this.salt = BucketHasher.murmur3(key);
+    this.upperBounds = upperBounds;
+    this.variants = variants;
+    List<String> prerequisiteKeys = new ArrayList<>();
+    for (Rule r : rules) r.when().collectPrerequisites(prerequisiteKeys);
+    this.prerequisites = List.copyOf(prerequisiteKeys);
+    int n = FIRST_RULE + rules.length + variants.length;
+    this.outcomeVariants = new String[n];
+    this.outcomeReasons = new EvaluationReason[n];
+    outcomeVariants[DISABLED] = OFF;
+    outcomeReasons[DISABLED] = EvaluationReason.DISABLED;
+    outcomeVariants[FALLTHROUGH] = ON;
+    outcomeReasons[FALLTHROUGH] = EvaluationReason.FALLTHROUGH;
+    for (int i = 0; i < rules.length; i++) {
+      outcomeVariants[FIRST_RULE + i] = rules[i].variant();
+      outcomeReasons[FIRST_RULE + i] = EvaluationReason.RULE_MATCH;
+    }
+    for (int i = 0; i < variants.length; i++) {
+      outcomeVariants[FIRST_RULE + rules.length + i] = variants[i];
+      outcomeReasons[FIRST_RULE + rules.length + i] = EvaluationReason.SPLIT;
+    }
+  }
+
+  public String key() { return key; }
+  public boolean enabled() { return enabled; }
+  public BucketingMode bucketing() { return bucketing; }
+
+  public List<String> prerequisiteKeys() { return prerequisites; }
+  public boolean hasPrerequisites() { return !prerequisites.isEmpty(); }
+
+  public List<String> segmentKeys() {
+    List<String> keys = new ArrayList<>();
+    for (Rule r : rules) r.when().collectSegments(keys);
+    return keys;
+  }
+
+  // Prerequisite rules read as OFF here: use a HashedUser with a FlagLookup for flags that have them
+  public String evaluate(String userId, Map<String,String> attrs) {
+    return outcomeVariants[evaluateOutcome(userId, attrs)];
+  }
+
+  // For callers evaluating many flags for one user: the user is hashed once up front
+  public String evaluate(HashedUser user, Map<String,String> attrs) {
+    return outcomeVariants[evaluateOutcome(user, attrs)];
+  }
+
+  public int evaluateOutcome(String userId, Map<String,String> attrs) {
+    if (!enabled) return DISABLED;
+    int matched = matchRules(userId, null, attrs);
+    if (matched >= 0) return FIRST_RULE + matched;
+    if (variants.length == 0) return FALLTHROUGH;
+    return splitOutcome(bucketing == BucketingMode.LEGACY
+        ? BucketHasher.legacyBucket(userId)
+        : BucketHasher.bucket(BucketHasher.murmur3(userId), salt));
+  }
+
+  public int evaluateOutcome(HashedUser user, Map<String,String> attrs) {
+    if (!enabled) return DISABLED;
+    int matched = matchRules(user.userId(), user, attrs);
+    if (matched >= 0) return FIRST_RULE + matched;
+    if (variants.length == 0) return FALLTHROUGH;
+    return splitOutcome(bucketing == BucketingMode.LEGACY
+        ? user.legacyBucket()
+        : BucketHasher.bucket(user.murmur3(), salt));
+  }
+
+  public int outcomeCount() { return outcomeVariants.length; }
+  public String variantOf(int outcome) { return outcomeVariants[outcome]; }
+  public EvaluationReason reasonOf(int outcome) { return outcomeReasons[outcome]; }
+
+  // Index of the first matching rule, or -1
+  private int matchRules(String userId, HashedUser user, Map<String,String> attrs) {
+    if (index != null) return index.match(rules, userId, user, attrs);
+    for (int i = 0; i < rules.length; i++) {
+      if (rules[i].when().test(userId, user, attrs)) return i;
+    }
+    return -1;
+  }
+
+  private int splitOutcome(int bucket) {
+    int first = FIRST_RULE + rules.length;
+    for (int i = 0; i < upperBounds.length; i++) {
+      if (bucket < upperBounds[i]) return first + i;
+    }
+    return first; // buckets past the last weight go to the first variant
+  }
+
+  // First-match rule: when the condition holds, the flag evaluates to variant
+  record Rule(Condition when, String variant) {}
+}
@@ -0,0 +1,165 @@
+package com.dmdwyer.devstream.engine;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// A compiled rule condition. Everything that can be prepared ahead of evaluation is done by
+// FlagCompiler: in/not_in values are a hash set, regexes are compiled Patterns, numeric and
+// semver bounds are parsed. Only the user's attribute value is looked at per evaluation.
+// A missing or null attribute reads as "", as it always has for field=value rules. String
+// comparisons ignore case the way String.equalsIgnoreCase does (see fold); regexes are
+// used as written (add (?i) to ignore case).
+interface Condition {
+  // user is null on the single-flag path, which hashes lazily from userId instead
+  boolean test(String userId, HashedUser user, Map<String,String> attrs);
+
+  default void collectSegments(List<String> into) {}
+
+  default void collectPrerequisites(List<String> into) {}
+
+  // Also used by RuleIndex, so indexed and linear matching read attributes the same way
+  static String attr(Map<String,String> attrs, String field) {
+    String value = attrs.get(field);
+    return value != null ? value : "";
+  }
+
+  record Equals(String field, String expected) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      return expected.equalsIgnoreCase(attr(attrs, field));
+    }
+  }
+
+  // values are folded at compile time
+  record In(String field, Set<String> values, boolean negated) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      return values.contains(fold(attr(attrs, field))) != negated;
+    }
+  }
+
+  record StartsWith(String field, String prefix) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      return attr(attrs, field).regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+  }
+
+  record Matches(String field, Pattern pattern) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      return pattern.matcher(attr(attrs, field)).find();
+    }
+  }
+
+  // accepts holds whether the attribute may be below / equal to / above the bound
+  record NumberCompare(String field, double bound, Comparison accepts) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      double value = parseNumber(attr(attrs, field));
+      return !Double.isNaN(value) && accepts.test(Double.compare(value, bound));
+    }
+  }
+
+  record SemverCompare(String field, Semver bound, Comparison accepts) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      Semver value = Semver.parse(attr(attrs, field));
+      return value != null && accepts.test(value.compareTo(bound));
+    }
+  }
+
+  record InSegment(SegmentRef segment) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      return segment.containsHash(user != null ? user.segmentHash() : SegmentMembers.hash(userId));
+    }
+
+    public void collectSegments(List<String> into) {
+      if (!into.contains(segment.key())) into.add(segment.key());
+    }
+  }
+
+  // Another flag's variant for this user. Only a HashedUser can look other flags up (see
+  // HashedUser.prerequisiteVariant); without one the prerequisite reads as OFF.
+  record Prerequisite(String flagKey, Set<String> variants, boolean negated) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      String variant = user != null ? user.prerequisiteVariant(flagKey, attrs) : CompiledFlag.OFF;
+      return variants.contains(variant) != negated;
+    }
+
+    public void collectPrerequisites(List<String> into) {
+      if (!into.contains(flagKey)) into.add(flagKey);
+    }
+  }
+
+  record All(Condition[] of) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      for (Condition c : of) if (!c.test(userId, user, attrs)) return false;
+      return true;
+    }
+
+    public void collectSegments(List<String> into) {
+      for (Condition c : of) c.collectSegments(into);
+    }
+
+    public void collectPrerequisites(List<String> into) {
+      for (Condition c : of) c.collectPrerequisites(into);
+    }
+  }
+
+  record Any(Condition[] of) implements Condition {
+    public boolean test(String userId, HashedUser user, Map<String,String> attrs) {
+      for (Condition c : of) if (c.test(userId, user, attrs)) return true;
+      return false;
+    }
+
+    public void collectSegments(List<String> into) {
+      for (Condition c : of) c.collectSegments(into);
+    }
+
+    public void collectPrerequisites(List<String> into) {
+      for (Condition c : of) c.collectPrerequisites(into);
+    }
+  }
+
+  record Comparison(boolean below, boolean equal, boolean above) {
+    boolean test(int cmp) {
+      return cmp < 0 ? below : cmp == 0 ? equal : above;
+    }
+  }
+
+  // Case-folds so that fold(a).equals(fold(b)) exactly when a.equalsIgnoreCase(b): each code
+  // point is mapped through toUpperCase then toLowerCase, which is the pair of checks
+  // equalsIgnoreCase makes. Returns s itself when it is already folded (e.g. lower-case ASCII).
+  static String fold(String s) {
+    int i = 0;
+    while (i < s.length()) {
+      int cp = s.codePointAt(i);
+      if (foldCodePoint(cp) != cp) break;
+      i += Character.charCount(cp);
+    }
+    if (i == s.length()) return s;
+    StringBuilder sb = new StringBuilder(s.length()).append(s, 0, i);
+    while (i < s.length()) {
+      int cp = s.codePointAt(i);
+      sb.appendCodePoint(foldCodePoint(cp));
+      i += Character.charCount(cp);
+    }
+    return sb.toString();
+  }
+
+  private static int foldCodePoint(int cp) {
+    if (cp < 128) return cp >= 'A' && cp <= 'Z' ? cp + 32 : cp;
+    return Character.toLowerCase(Character.toUpperCase(cp));
+  }
+
+  // NaN unless s is a plain decimal number; checked up front so bad input doesn't cost an exception
+  static double parseNumber(String s) {
+    if (s.isEmpty() || s.length() > 64) return Double.NaN;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (!(c >= '0' && c <= '9') && c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(s);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.dmdwyer.devstream.engine;
+
+// Why an evaluation produced its variant
+public enum EvaluationReason {
+  DISABLED,     // flag switched off → OFF
+  RULE_MATCH,   // first matching targeting rule
+  SPLIT,        // weighted variant split by user bucket
+  FALLTHROUGH,  // enabled with no matching rule and no variants → ON
+  NOT_FOUND     // no such flag
+}
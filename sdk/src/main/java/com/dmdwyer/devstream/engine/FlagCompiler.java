@@ -0,0 +1,263 @@
+package com.dmdwyer.devstream.engine;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Turns the stored rulesJson/variantsJson of a flag into a CompiledFlag.
+// Strict compilation rejects malformed definitions with IllegalArgumentException and is
+// used on writes; lenient compilation keeps whatever is usable and is used when loading
+// rows that were stored before validation existed.
+//
+// A rule is {"when":condition,"then":variant}, or one of the older shorthands
+// {"if":"field=value","then":variant} and {"segment":key,"then":variant}. Conditions are
+// compiled into Condition predicates (see there). Segments are bound to a SegmentRef at
+// compile time; strict compilation also requires them to exist. Prerequisites are looked up
+// by key when evaluated (see HashedUser). Lenient compilation drops any rule that doesn't
+// compile and keeps the rest.
+public final class FlagCompiler {
+  private static final CompiledFlag.Rule[] NO_RULES = new CompiledFlag.Rule[0];
+  private static final int MAX_CONDITION_DEPTH = 8;
+  // numeric ops; semver_<op> takes the same comparisons
+  private static final Map<String, Condition.Comparison> COMPARISONS = Map.of(
+      "lt", new Condition.Comparison(true, false, false),
+      "lte", new Condition.Comparison(true, true, false),
+      "gt", new Condition.Comparison(false, false, true),
+      "gte", new Condition.Comparison(false, true, true),
+      "eq", new Condition.Comparison(false, true, false));
+
+  private final ObjectMapper om;
+  private final SegmentResolver segments;
+  private final boolean indexRules;
+
+  public FlagCompiler(ObjectMapper om) {
+    this(om, SegmentResolver.NONE);
+  }
+
+  public FlagCompiler(ObjectMapper om, SegmentResolver segments) {
+    this(om, segments, true);
+  }
+
+  private FlagCompiler(ObjectMapper om, SegmentResolver segments, boolean indexRules) {
+    this.om = om;
+    this.segments = segments;
+    this.indexRules = indexRules;
+  }
+
+  // Compiles flags whose rules are always tried one by one (see RuleIndex), for comparing
+  // against the indexed plans in tests and benchmarks
+  public FlagCompiler withoutRuleIndex() {
+    return new FlagCompiler(om, segments, false);
+  }
+
+  // A null bucketing mode means the flag predates salted bucketing and stays LEGACY
+  public CompiledFlag compile(String key, boolean enabled, String rulesJson, String variantsJson, BucketingMode bucketing) {
+    return compile(key, enabled, rulesJson, variantsJson, bucketing, true);
+  }
+
+  public CompiledFlag compileLenient(String key, boolean enabled, String rulesJson, String variantsJson, BucketingMode bucketing) {
+    return compile(key, enabled, rulesJson, variantsJson, bucketing, false);
+  }
+
+  private CompiledFlag compile(String key, boolean enabled, String rulesJson, String variantsJson, BucketingMode bucketing, boolean strict) {
+    BucketingMode mode = bucketing != null ? bucketing : BucketingMode.LEGACY;
+    return split(key, enabled, compileRules(key, rulesJson, strict, true), mode, variantsJson, strict);
+  }
+
+  // Syntax check of rulesJson alone, for bean validation of FlagDto: segments only need to
+  // be named here, whether they exist is checked when the flag is compiled for a write
+  public void checkRules(String rulesJson) {
+    compileRules(null, rulesJson, true, false);
+  }
+
+  private CompiledFlag.Rule[] compileRules(String key, String json, boolean strict, boolean resolveSegments) {
+    JsonNode root = parse(key, "rulesJson", json, strict);
+    if (root == null) return NO_RULES;
+    if (!root.isArray()) {
+      if (strict) throw invalid(key, "rulesJson", "expected a JSON array of rules");
+      return NO_RULES;
+    }
+    List<CompiledFlag.Rule> rules = new ArrayList<>(root.size());
+    for (int i = 0; i < root.size(); i++) {
+      try {
+        rules.add(compileRule(key, i, root.get(i), strict, resolveSegments));
+      } catch (IllegalArgumentException e) {
+        if (strict) throw e; // lenient: drop the rule, keep the rest
+      }
+    }
+    return rules.toArray(NO_RULES);
+  }
+
+  private CompiledFlag.Rule compileRule(String key, int i, JsonNode rule, boolean strict, boolean resolveSegments) {
+    String where = "rule " + i;
+    JsonNode thenNode = rule.get("then");
+    String then = thenNode != null ? thenNode.asText("") : ""; // e.g. A
+    if (strict && then.isEmpty()) throw invalid(key, "rulesJson", where + " has no 'then' variant");
+    Condition when;
+    if (rule.has("when")) {
+      when = condition(key, where, rule.get("when"), 1, strict, resolveSegments);
+    } else if (rule.has("segment")) {
+      when = segment(key, where, rule.get("segment").asText("").trim(), strict, resolveSegments);
+    } else {
+      JsonNode ifNode = rule.get("if");
+      String cond = ifNode != null ? ifNode.asText("") : ""; // e.g. country=IE
+      String[] parts = cond.split("=", 2);
+      if (parts.length != 2) throw invalid(key, "rulesJson", where + " condition must be of the form field=value");
+      when = new Condition.Equals(parts[0].trim(), parts[1].trim());
+    }
+    return new CompiledFlag.Rule(when, then);
+  }
+
+  // {"and":[...]}, {"or":[...]}, {"segment":key}, {"flag":key,"op":eq|in|not_in,"value":v | "values":[...]}
+  // or {"attr":field,"op":op,"value":v | "values":[...]}
+  private Condition condition(String key, String where, JsonNode node, int depth, boolean strict, boolean resolveSegments) {
+    if (depth > MAX_CONDITION_DEPTH) throw invalid(key, "rulesJson", where + " nests and/or deeper than " + MAX_CONDITION_DEPTH);
+    if (node == null || !node.isObject()) throw invalid(key, "rulesJson", where + " condition must be a JSON object");
+    if (node.has("and") || node.has("or")) {
+      boolean and = node.has("and");
+      JsonNode of = node.get(and ? "and" : "or");
+      if (!of.isArray() || of.isEmpty()) throw invalid(key, "rulesJson", where + " '" + (and ? "and" : "or") + "' needs a non-empty array");
+      Condition[] parts = new Condition[of.size()];
+      for (int j = 0; j < parts.length; j++) parts[j] = condition(key, where, of.get(j), depth + 1, strict, resolveSegments);
+      return and ? new Condition.All(parts) : new Condition.Any(parts);
+    }
+    if (node.has("segment")) return segment(key, where, node.get("segment").asText("").trim(), strict, resolveSegments);
+    if (node.has("flag")) return prerequisite(key, where, node);
+
+    String field = node.path("attr").asText("").trim();
+    String op = node.path("op").asText("");
+    if (field.isEmpty()) throw invalid(key, "rulesJson", where + " condition has no 'attr'");
+    JsonNode value = node.get("value");
+    switch (op) {
+      case "eq":
+        return new Condition.Equals(field, text(key, where, op, value).trim());
+      case "in", "not_in": {
+        JsonNode values = node.get("values");
+        if (values == null || !values.isArray()) throw invalid(key, "rulesJson", where + " '" + op + "' needs a 'values' array");
+        Set<String> set = new HashSet<>(Math.max(16, values.size() * 4 / 3 + 1));
+        for (JsonNode v : values) set.add(Condition.fold(text(key, where, op, v).trim()));
+        return new Condition.In(field, Set.copyOf(set), op.equals("not_in"));
+      }
+      case "starts_with":
+        return new Condition.StartsWith(field, text(key, where, op, value));
+      case "matches":
+        try {
+          return new Condition.Matches(field, Pattern.compile(text(key, where, op, value)));
+        } catch (PatternSyntaxException e) {
+          throw invalid(key, "rulesJson", where + " has an invalid regex: " + e.getDescription());
+        }
+      default:
+        break;
+    }
+    Condition.Comparison accepts = COMPARISONS.get(op.startsWith("semver_") ? op.substring(7) : op);
+    if (accepts == null) throw invalid(key, "rulesJson", where + " has unknown op '" + op + "'");
+    if (op.startsWith("semver_")) {
+      Semver bound = Semver.parse(text(key, where, op, value).trim());
+      if (bound == null) throw invalid(key, "rulesJson", where + " '" + op + "' needs a semantic version");
+      return new Condition.SemverCompare(field, bound, accepts);
+    }
+    double bound = value != null && value.isNumber() ? value.asDouble() : Condition.parseNumber(text(key, where, op, value).trim());
+    if (Double.isNaN(bound) || Double.isInfinite(bound)) throw invalid(key, "rulesJson", where + " '" + op + "' needs a number");
+    return new Condition.NumberCompare(field, bound, accepts);
+  }
+
+  private Condition segment(String key, String where, String segmentKey, boolean strict, boolean resolveSegments) {
+    if (segmentKey.isEmpty()) throw invalid(key, "rulesJson", where + " has an empty segment");
+    if (!resolveSegments) return new Condition.InSegment(new SegmentRef(segmentKey));
+    SegmentRef ref = segments.ref(segmentKey);
+    if (ref == null) throw invalid(key, "rulesJson", where + ": segments are not supported here");
+    if (strict && !ref.defined()) throw invalid(key, "rulesJson", where + " refers to unknown segment '" + segmentKey + "'");
+    return new Condition.InSegment(ref);
+  }
+
+  // Variants are matched exactly (they are names from variantsJson, or ON/OFF). Whether the
+  // flag exists, and the shape of the graph, is checked on write by PrerequisiteGraph.
+  private static Condition prerequisite(String key, String where, JsonNode node) {
+    String flagKey = node.path("flag").asText("").trim();
+    if (flagKey.isEmpty()) throw invalid(key, "rulesJson", where + " has an empty prerequisite flag");
+    String op = node.path("op").asText("eq");
+    Set<String> variants = new HashSet<>();
+    switch (op) {
+      case "eq" -> variants.add(text(key, where, op, node.get("value")).trim());
+      case "in", "not_in" -> {
+        JsonNode values = node.get("values");
+        if (values == null || !values.isArray()) throw invalid(key, "rulesJson", where + " '" + op + "' needs a 'values' array");
+        for (JsonNode v : values) variants.add(text(key, where, op, v).trim());
+      }
+      default -> throw invalid(key, "rulesJson", where + " prerequisite flag '" + flagKey + "' supports eq, in and not_in, not '" + op + "'");
+    }
+    return new Condition.Prerequisite(flagKey, Set.copyOf(variants), op.equals("not_in"));
+  }
+
+  private static String text(String key, String where, String op, JsonNode value) {
+    if (value == null || !value.isValueNode() || value.isNull()) {
+      throw invalid(key, "rulesJson", where + " '" + op + "' needs a string or number value");
+    }
+    return value.asText();
+  }
+
+  private CompiledFlag split(String key, boolean enabled, CompiledFlag.Rule[] rules, BucketingMode mode, String json, boolean strict) {
+    JsonNode root = parse(key, "variantsJson", json, strict);
+    if (root != null && !root.isObject()) {
+      if (strict) throw invalid(key, "variantsJson", "expected a JSON object of variant weights");
+      root = null;
+    }
+    RuleIndex index = indexRules ? RuleIndex.build(rules) : null;
+    if (root == null || root.isEmpty()) return new CompiledFlag(key, enabled, rules, index, mode, new int[0], new String[0]);
+
+    int[] upperBounds = new int[root.size()];
+    String[] variants = new String[root.size()];
+    int cumulative = 0;
+    int i = 0;
+    for (Iterator<Map.Entry<String,JsonNode>> it = root.fields(); it.hasNext(); i++) {
+      Map.Entry<String,JsonNode> e = it.next(); // {"A":50,"B":50}
+      cumulative += weight(key, mode, e.getKey(), e.getValue(), strict);
+      upperBounds[i] = cumulative;
+      variants[i] = e.getKey();
+    }
+    if (strict && cumulative > mode.buckets()) {
+      throw invalid(key, "variantsJson", "weights add up to more than 100%");
+    }
+    return new CompiledFlag(key, enabled, rules, index, mode, upperBounds, variants);
+  }
+
+  // Weights are percentages. LEGACY resolves whole percents; MURMUR3 resolves basis
+  // points, so weights may carry up to two decimals (e.g. 33.33).
+  private static int weight(String key, BucketingMode mode, String variant, JsonNode weight, boolean strict) {
+    if (mode == BucketingMode.LEGACY) {
+      if (strict && (!weight.isIntegralNumber() || weight.asInt() < 0)) {
+        throw invalid(key, "variantsJson", "weight of '" + variant + "' must be a non-negative whole percent");
+      }
+      return weight.asInt();
+    }
+    if (!weight.isNumber()) {
+      if (strict) throw invalid(key, "variantsJson", "weight of '" + variant + "' must be a number");
+      return 0;
+    }
+    BigDecimal percent = weight.decimalValue();
+    if (strict && (percent.signum() < 0 || percent.stripTrailingZeros().scale() > 2)) {
+      throw invalid(key, "variantsJson", "weight of '" + variant + "' must be a non-negative percent with at most two decimals");
+    }
+    return percent.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValue();
+  }
+
+  private JsonNode parse(String key, String field, String json, boolean strict) {
+    if (json == null || json.isBlank()) return null;
+    try {
+      return om.readTree(json);
+    } catch (JsonProcessingException e) {
+      if (strict) throw invalid(key, field, e.getOriginalMessage());
+      return null;
+    }
+  }
+
+  private static IllegalArgumentException invalid(String key, String field, String reason) {
+    return new IllegalArgumentException("Invalid " + field + (key != null ? " for flag " + key : "") + ": " + reason);
+  }
+}
@@ -0,0 +1,10 @@
+package com.dmdwyer.devstream.engine;
+
+// Finds the compiled plan of another flag, for prerequisite conditions
+@FunctionalInterface
+public interface FlagLookup {
+  FlagLookup NONE = key -> null;
+
+  // null when there is no such flag
+  CompiledFlag find(String key);
+}
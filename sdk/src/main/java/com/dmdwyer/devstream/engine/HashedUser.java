@@ -0,0 +1,78 @@
+package com.dmdwyer.devstream.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A user id hashed once so it can be bucketed against many flags. The legacy bucket
+// needs a byte[] copy of the id, so it is only computed if a LEGACY flag asks for it;
+// likewise the segment hash, for flags with segment rules.
+//
+// It is also the per-request scope for prerequisites: each prerequisite flag is evaluated
+// at most once per HashedUser, so use one per request (one user, one attribute map) and
+// don't share it between threads.
+public final class HashedUser {
+  private static final String EVALUATING = new String("evaluating"); // memo marker, compared by identity
+
+  private final String userId;
+  private final int murmur3;
+  private final FlagLookup flags;
+  private int legacyBucket = -1;
+  private long segmentHash;
+  private boolean segmentHashed;
+  private Map<String, String> prerequisites; // memoized prerequisite variants, created on first use
+  private int depth;
+
+  private HashedUser(String userId, FlagLookup flags) {
+    this.userId = userId;
+    this.murmur3 = BucketHasher.murmur3(userId);
+    this.flags = flags;
+  }
+
+  public static HashedUser of(String userId) {
+    return new HashedUser(userId, FlagLookup.NONE);
+  }
+
+  // flags resolves prerequisite conditions; it should be the same set of flags being evaluated
+  public static HashedUser of(String userId, FlagLookup flags) {
+    return new HashedUser(userId, flags);
+  }
+
+  public String userId() { return userId; }
+
+  int murmur3() { return murmur3; }
+
+  int legacyBucket() {
+    if (legacyBucket < 0) legacyBucket = BucketHasher.legacyBucket(userId);
+    return legacyBucket;
+  }
+
+  // Evaluating a flag evaluates its prerequisites first (depth-first, so the prerequisite graph
+  // is walked in topological order) and remembers each result for the rest of the request.
+  // Writes reject cycles and chains deeper than PrerequisiteGraph.MAX_DEPTH; if one gets in
+  // anyway (a bulk import, or two instances writing at once), the prerequisite reads as OFF
+  // rather than recursing.
+  String prerequisiteVariant(String key, Map<String,String> attrs) {
+    if (prerequisites == null) prerequisites = new HashMap<>();
+    String known = prerequisites.get(key);
+    if (known != null) return known == EVALUATING ? CompiledFlag.OFF : known;
+    CompiledFlag flag = flags.find(key);
+    if (flag == null || depth >= PrerequisiteGraph.MAX_DEPTH) return CompiledFlag.OFF;
+    prerequisites.put(key, EVALUATING);
+    depth++;
+    try {
+      String variant = flag.evaluate(this, attrs);
+      prerequisites.put(key, variant);
+      return variant;
+    } finally {
+      depth--;
+    }
+  }
+
+  long segmentHash() {
+    if (!segmentHashed) {
+      segmentHash = SegmentMembers.hash(userId);
+      segmentHashed = true;
+    }
+    return segmentHash;
+  }
+}
@@ -0,0 +1,80 @@
+package com.dmdwyer.devstream.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Write-time checks on the graph formed by prerequisite conditions ({"flag":key,...}): a flag's
+// prerequisites must exist, must not lead back to it, and no chain of prerequisites may be
+// longer than MAX_DEPTH. Evaluation relies on the same bound (see HashedUser).
+public final class PrerequisiteGraph {
+  public static final int MAX_DEPTH = 8;
+
+  private PrerequisiteGraph() {}
+
+  // flag is about to be written; flags and all describe every other flag as currently stored.
+  // Throws IllegalArgumentException when the write would break the graph.
+  public static void check(CompiledFlag flag, FlagLookup flags, Iterable<CompiledFlag> all) {
+    String key = flag.key();
+    FlagLookup next = k -> k.equals(key) ? flag : flags.find(k);
+    for (String p : flag.prerequisiteKeys()) {
+      if (next.find(p) == null) throw invalid(key, "prerequisite flag '" + p + "' does not exist");
+    }
+    int below = height(key, k -> prerequisitesOf(next, k), new HashMap<>(), new ArrayList<>(), key);
+    if (below == 0) return; // chains ending here were already within bounds
+
+    Map<String, List<String>> dependents = new HashMap<>();
+    for (CompiledFlag f : all) {
+      if (f.key().equals(key)) continue; // replaced by flag
+      for (String p : f.prerequisiteKeys()) dependents.computeIfAbsent(p, k -> new ArrayList<>()).add(f.key());
+    }
+    int above = height(key, k -> dependents.getOrDefault(k, List.of()), new HashMap<>(), new ArrayList<>(), key);
+    if (above + below > MAX_DEPTH) {
+      throw invalid(key, "the prerequisite chain through it would be " + (above + below) + " levels deep, more than " + MAX_DEPTH);
+    }
+  }
+
+  // Flags that name key as a prerequisite
+  public static List<String> dependents(String key, Iterable<CompiledFlag> all) {
+    List<String> users = new ArrayList<>();
+    for (CompiledFlag f : all) {
+      if (!f.key().equals(key) && f.prerequisiteKeys().contains(key)) users.add(f.key());
+    }
+    return users;
+  }
+
+  private static List<String> prerequisitesOf(FlagLookup flags, String key) {
+    CompiledFlag f = flags.find(key);
+    return f != null ? f.prerequisiteKeys() : List.of(); // a missing deeper prerequisite just reads as OFF
+  }
+
+  private interface Edges {
+    List<String> of(String key);
+  }
+
+  // Longest chain of edges from key; path holds the chain being walked, to report cycles
+  private static int height(String key, Edges edges, Map<String, Integer> done, List<String> path, String root) {
+    Integer known = done.get(key);
+    if (known != null) return known;
+    int at = path.indexOf(key);
+    if (at >= 0) {
+      List<String> cycle = new ArrayList<>(path.subList(at, path.size()));
+      cycle.add(key);
+      throw invalid(root, "prerequisites form a cycle: " + String.join(" -> ", cycle));
+    }
+    if (path.size() > MAX_DEPTH) {
+      throw invalid(root, "the prerequisite chain through it is more than " + MAX_DEPTH + " levels deep");
+    }
+    path.add(key);
+    int height = 0;
+    for (String next : edges.of(key)) height = Math.max(height, 1 + height(next, edges, done, path, root));
+    path.remove(path.size() - 1);
+    done.put(key, height);
+    return height;
+  }
+
+  private static IllegalArgumentException invalid(String key, String reason) {
+    return new IllegalArgumentException("Invalid rulesJson for flag " + key + ": " + reason);
+  }
+}
@@ -0,0 +1,63 @@
+package com.dmdwyer.devstream.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hash index over a flag's equality rules (eq and in), built by FlagCompiler once a flag
+// has enough of them. For each attribute it maps the case-folded value to the earliest
+// rule that matches it, so finding the first matching equality rule costs one lookup per
+// distinct attribute. Other rules are still tried in order, but only those that come
+// before the best indexed hit. The result is always the lowest matching rule index, the
+// same as trying every rule in order.
+final class RuleIndex {
+  static final int MIN_INDEXED_RULES = 8;
+
+  private final String[] fields;
+  private final Map<String, Integer>[] firstRuleByValue;
+  private final int[] others; // positions of rules that aren't indexed, ascending
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private RuleIndex(Map<String, Map<String, Integer>> byField, int[] others) {
+    this.fields = byField.keySet().toArray(new String[0]);
+    this.firstRuleByValue = byField.values().toArray(new Map[0]);
+    this.others = others;
+  }
+
+  // null when the rules don't have enough equality rules to be worth indexing
+  static RuleIndex build(CompiledFlag.Rule[] rules) {
+    Map<String, Map<String, Integer>> byField = new LinkedHashMap<>();
+    List<Integer> others = new ArrayList<>();
+    int indexed = 0;
+    for (int i = 0; i < rules.length; i++) {
+      Condition when = rules[i].when();
+      if (when instanceof Condition.Equals eq) {
+        byField.computeIfAbsent(eq.field(), f -> new HashMap<>()).putIfAbsent(Condition.fold(eq.expected()), i);
+        indexed++;
+      } else if (when instanceof Condition.In in && !in.negated()) {
+        Map<String, Integer> values = byField.computeIfAbsent(in.field(), f -> new HashMap<>());
+        for (String v : in.values()) values.putIfAbsent(v, i); // already folded
+        indexed++;
+      } else {
+        others.add(i);
+      }
+    }
+    if (indexed < MIN_INDEXED_RULES) return null;
+    return new RuleIndex(byField, others.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  int match(CompiledFlag.Rule[] rules, String userId, HashedUser user, Map<String,String> attrs) {
+    int best = Integer.MAX_VALUE;
+    for (int f = 0; f < fields.length; f++) {
+      Integer hit = firstRuleByValue[f].get(Condition.fold(Condition.attr(attrs, fields[f])));
+      if (hit != null && hit < best) best = hit;
+    }
+    for (int i : others) {
+      if (i >= best) break;
+      if (rules[i].when().test(userId, user, attrs)) return i;
+    }
+    return best == Integer.MAX_VALUE ? -1 : best;
+  }
+}
@@ -0,0 +1,89 @@
+package com.dmdwyer.devstream.engine;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// Membership of a user segment as a sorted array of 64-bit user id hashes: 8 bytes per
+// member in one primitive array, so 10M members cost ~80 MB, hold no references for the
+// GC to trace, and contains() is a binary search with no boxing or allocation. Ids are
+// never stored; a non-member matches only on a 64-bit hash collision (~n / 2^64).
+public final class SegmentMembers {
+  public static final SegmentMembers EMPTY = new SegmentMembers(new long[0], 0);
+
+  private final long[] hashes;
+  private final int size;
+
+  private SegmentMembers(long[] hashes, int size) {
+    this.hashes = hashes;
+    this.size = size;
+  }
+
+  // hashes must be sorted and distinct, e.g. as read back from copyHashes()
+  public static SegmentMembers ofSortedHashes(long[] hashes) {
+    return new SegmentMembers(hashes, hashes.length);
+  }
+
+  public int size() { return size; }
+
+  public boolean contains(String userId) {
+    return containsHash(hash(userId));
+  }
+
+  public boolean containsHash(long userHash) {
+    return Arrays.binarySearch(hashes, 0, size, userHash) >= 0;
+  }
+
+  public void copyHashes(int from, int count, LongBuffer dst) {
+    dst.put(hashes, from, count);
+  }
+
+  // FNV-1a over the UTF-16 chars, then the murmur3 64-bit finalizer to spread the bits
+  public static long hash(String userId) {
+    if (userId == null) userId = "";
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < userId.length(); i++) {
+      h ^= userId.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  public static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  // Collects member ids one at a time (only their hashes are kept), then sorts and
+  // removes duplicates in place
+  public static final class Builder {
+    private long[] hashes;
+    private int size;
+
+    private Builder(int expectedSize) {
+      this.hashes = new long[Math.max(16, expectedSize)];
+    }
+
+    public int size() { return size; }
+
+    public Builder add(String userId) {
+      if (size == hashes.length) hashes = Arrays.copyOf(hashes, hashes.length + (hashes.length >> 1));
+      hashes[size++] = hash(userId);
+      return this;
+    }
+
+    public SegmentMembers build() {
+      Arrays.parallelSort(hashes, 0, size);
+      int distinct = 0;
+      for (int i = 0; i < size; i++) {
+        if (distinct == 0 || hashes[i] != hashes[distinct - 1]) hashes[distinct++] = hashes[i];
+      }
+      long[] result = hashes;
+      hashes = null; // the builder can't be reused once its array is handed out
+      return new SegmentMembers(result, distinct);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.dmdwyer.devstream.engine;
+
+// Handle a compiled flag keeps on a segment it targets. Replacing the members swaps them
+// in for every flag at once without recompiling; a segment that was never uploaded (or
+// was deleted) has no members and matches nobody.
+public final class SegmentRef {
+  private final String key;
+  private volatile SegmentMembers members;
+
+  public SegmentRef(String key) {
+    this.key = key;
+  }
+
+  public String key() { return key; }
+  public boolean defined() { return members != null; }
+  public SegmentMembers members() { return members; }
+  public void set(SegmentMembers members) { this.members = members; }
+
+  boolean containsHash(long userHash) {
+    SegmentMembers m = members;
+    return m != null && m.containsHash(userHash);
+  }
+}
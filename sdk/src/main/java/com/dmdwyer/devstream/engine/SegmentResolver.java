@@ -0,0 +1,12 @@
+package com.dmdwyer.devstream.engine;
+
+// Where FlagCompiler finds the segments that {"segment":...} rules refer to. The service
+// resolves them from its segment store. Embedded clients have no memberships: FlagClient
+// resolves every key to an empty ref and leaves flags that use one to the server.
+@FunctionalInterface
+public interface SegmentResolver {
+  SegmentResolver NONE = key -> null;
+
+  // The (possibly not yet defined) segment for key, or null if segments aren't available
+  SegmentRef ref(String key);
+}
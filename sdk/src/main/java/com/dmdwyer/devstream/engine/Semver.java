@@ -0,0 +1,86 @@
+package com.dmdwyer.devstream.engine;
+
+// A semantic version, ordered per semver.org: major.minor.patch numerically, then a
+// pre-release sorts before the release, identifier by identifier (numeric ones
+// numerically and before alphanumeric ones). Build metadata is ignored. A leading "v"
+// and a missing minor or patch ("2", "2.1") are accepted.
+final class Semver implements Comparable<Semver> {
+  private final long major;
+  private final long minor;
+  private final long patch;
+  private final String[] pre; // empty for a release
+
+  private Semver(long major, long minor, long patch, String[] pre) {
+    this.major = major;
+    this.minor = minor;
+    this.patch = patch;
+    this.pre = pre;
+  }
+
+  // null if s isn't a version
+  static Semver parse(String s) {
+    if (s == null || s.isEmpty() || s.length() > 256) return null;
+    if (s.charAt(0) == 'v' || s.charAt(0) == 'V') s = s.substring(1);
+    int plus = s.indexOf('+');
+    if (plus >= 0) s = s.substring(0, plus);
+    int dash = s.indexOf('-');
+    String core = dash >= 0 ? s.substring(0, dash) : s;
+    String[] parts = core.split("\\.", -1);
+    if (parts.length > 3) return null;
+    long[] nums = new long[3];
+    for (int i = 0; i < parts.length; i++) {
+      if (!isNumeric(parts[i]) || parts[i].length() > 18) return null;
+      nums[i] = Long.parseLong(parts[i]);
+    }
+    String[] pre = new String[0];
+    if (dash >= 0) {
+      pre = s.substring(dash + 1).split("\\.", -1);
+      for (String id : pre) if (id.isEmpty()) return null;
+    }
+    return new Semver(nums[0], nums[1], nums[2], pre);
+  }
+
+  @Override
+  public int compareTo(Semver o) {
+    int c = Long.compare(major, o.major);
+    if (c == 0) c = Long.compare(minor, o.minor);
+    if (c == 0) c = Long.compare(patch, o.patch);
+    if (c != 0) return c;
+    if (pre.length == 0 || o.pre.length == 0) return pre.length == o.pre.length ? 0 : pre.length == 0 ? 1 : -1;
+    for (int i = 0; i < Math.min(pre.length, o.pre.length); i++) {
+      c = compareIdentifiers(pre[i], o.pre[i]);
+      if (c != 0) return c;
+    }
+    return Integer.compare(pre.length, o.pre.length);
+  }
+
+  private static int compareIdentifiers(String a, String b) {
+    boolean an = isNumeric(a), bn = isNumeric(b);
+    if (an && bn) {
+      a = stripZeros(a);
+      b = stripZeros(b);
+      return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+    }
+    if (an != bn) return an ? -1 : 1;
+    return a.compareTo(b);
+  }
+
+  private static String stripZeros(String s) {
+    int i = 0;
+    while (i < s.length() - 1 && s.charAt(i) == '0') i++;
+    return s.substring(i);
+  }
+
+  private static boolean isNumeric(String s) {
+    if (s.isEmpty()) return false;
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return major + "." + minor + "." + patch + (pre.length > 0 ? "-" + String.join(".", pre) : "");
+  }
+}
@@ -0,0 +1,200 @@
+package com.dmdwyer.devstream.sdk;
+
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.dmdwyer.devstream.engine.SegmentRef;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// In-process flag evaluation. Definitions are fetched by a FlagTransport, compiled with
+// the same engine the service uses, and evaluated locally without any network call.
+//
+// Segment memberships stay on the server, so a flag with a {"segment":...} rule anywhere in
+// its rules (or with a prerequisite that has one) can't be evaluated here with the server's
+// result. Such flags are server-evaluated: evaluate() returns the caller's default for them,
+// evaluateAll() leaves them out and serverEvaluatedKeys() lists them.
+//
+//   try (FlagClient flags = FlagClient.builder(URI.create("http://devstream:8080")).streaming().build()) {
+//     flags.awaitReady(Duration.ofSeconds(5));
+//     String variant = flags.evaluate("homepage_banner", userId, Map.of("country", "IE"), "OFF");
+//   }
+public final class FlagClient implements AutoCloseable {
+  private final FlagTransport transport;
+  private final FlagCompiler compiler;
+  private final AtomicReference<State> state = new AtomicReference<>(new State(0, Map.of()));
+  private final CountDownLatch ready = new CountDownLatch(1);
+
+  private record State(long version, Map<String, CompiledFlag> flags, Set<String> serverEvaluated) {
+    State(long version, Map<String, CompiledFlag> flags) {
+      this(version, flags, serverEvaluatedOf(flags));
+    }
+  }
+
+  private FlagClient(FlagTransport transport, ObjectMapper om) {
+    this.transport = transport;
+    // Segments compile to refs without members, so their rules are kept and the flag is seen
+    // to need them (instead of the rule being dropped and the flag evaluated without it)
+    this.compiler = new FlagCompiler(om, SegmentRef::new);
+    transport.start(new Updater());
+  }
+
+  public static Builder builder(URI baseUri) {
+    return new Builder(baseUri);
+  }
+
+  // Waits for the first snapshot; returns false if it did not arrive in time
+  public boolean awaitReady(Duration timeout) throws InterruptedException {
+    return ready.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  public long version() {
+    return state.get().version();
+  }
+
+  public Set<String> keys() {
+    return state.get().flags().keySet();
+  }
+
+  // Flags that need segment memberships, directly or through a prerequisite
+  public Set<String> serverEvaluatedKeys() {
+    return state.get().serverEvaluated();
+  }
+
+  // Returns defaultVariant when the flag is unknown (including before the first snapshot)
+  // or server-evaluated
+  public String evaluate(String key, String userId, Map<String,String> attrs, String defaultVariant) {
+    State s = state.get();
+    Map<String, CompiledFlag> flags = s.flags();
+    CompiledFlag flag = flags.get(key);
+    if (flag == null || s.serverEvaluated().contains(key)) return defaultVariant;
+    Map<String,String> safeAttrs = attrs != null ? attrs : Map.of();
+    return flag.hasPrerequisites() ? flag.evaluate(HashedUser.of(userId, flags::get), safeAttrs) : flag.evaluate(userId, safeAttrs);
+  }
+
+  // Server-evaluated flags are left out
+  public Map<String,String> evaluateAll(String userId, Map<String,String> attrs) {
+    State s = state.get();
+    Map<String, CompiledFlag> flags = s.flags();
+    Map<String,String> safeAttrs = attrs != null ? attrs : Map.of();
+    HashedUser user = HashedUser.of(userId, flags::get);
+    Map<String,String> variants = new LinkedHashMap<>(flags.size() * 4 / 3 + 1);
+    for (CompiledFlag f : flags.values()) {
+      if (!s.serverEvaluated().contains(f.key())) variants.put(f.key(), f.evaluate(user, safeAttrs));
+    }
+    return variants;
+  }
+
+  @Override
+  public void close() {
+    transport.close();
+  }
+
+  private CompiledFlag compile(FlagDefinition d) {
+    // Definitions were validated by the service on write, so never fail here
+    return compiler.compileLenient(d.flagKey(), Boolean.TRUE.equals(d.enabled()), d.rulesJson(), d.variantsJson(), d.bucketing());
+  }
+
+  // Enabled flags with segment rules (a disabled one is OFF either way), then everything that depends on one of them. Recomputed on every
+  // change, since an upsert of a prerequisite can change its dependents.
+  private static Set<String> serverEvaluatedOf(Map<String, CompiledFlag> flags) {
+    Set<String> result = new HashSet<>();
+    for (CompiledFlag f : flags.values()) if (f.enabled() && !f.segmentKeys().isEmpty()) result.add(f.key());
+    boolean grew = !result.isEmpty();
+    while (grew) {
+      grew = false;
+      for (CompiledFlag f : flags.values()) {
+        if (result.contains(f.key())) continue;
+        for (String p : f.prerequisiteKeys()) {
+          if (result.contains(p)) {
+            result.add(f.key());
+            grew = true;
+            break;
+          }
+        }
+      }
+    }
+    return Set.copyOf(result);
+  }
+
+  // Transports deliver on a single thread each, so updates are applied without contention
+  private final class Updater implements FlagUpdateListener {
+    @Override
+    public void onSnapshot(long version, List<FlagDefinition> flags) {
+      Map<String, CompiledFlag> compiled = new HashMap<>(flags.size() * 4 / 3 + 1);
+      for (FlagDefinition d : flags) compiled.put(d.flagKey(), compile(d));
+      state.set(new State(version, Collections.unmodifiableMap(compiled)));
+      ready.countDown();
+    }
+
+    @Override
+    public void onUpsert(long version, FlagDefinition flag) {
+      CompiledFlag compiled = compile(flag);
+      state.updateAndGet(s -> {
+        if (version <= s.version()) return s;
+        Map<String, CompiledFlag> next = new HashMap<>(s.flags());
+        next.put(flag.flagKey(), compiled);
+        return new State(version, Collections.unmodifiableMap(next));
+      });
+    }
+
+    @Override
+    public void onDelete(long version, String flagKey) {
+      state.updateAndGet(s -> {
+        if (version <= s.version()) return s;
+        Map<String, CompiledFlag> next = new HashMap<>(s.flags());
+        next.remove(flagKey);
+        return new State(version, Collections.unmodifiableMap(next));
+      });
+    }
+  }
+
+  public static final class Builder {
+    private final URI baseUri;
+    private HttpClient httpClient = HttpClient.newHttpClient();
+    private ObjectMapper om = new ObjectMapper();
+    private FlagTransport transport;
+    private Duration pollInterval = Duration.ofSeconds(30);
+    private boolean streaming;
+
+    private Builder(URI baseUri) {
+      this.baseUri = Objects.requireNonNull(baseUri, "baseUri");
+    }
+
+    public Builder httpClient(HttpClient httpClient) { this.httpClient = httpClient; return this; }
+    public Builder objectMapper(ObjectMapper om) { this.om = om; return this; }
+
+    // Supplies a custom transport; baseUri and httpClient are then unused
+    public Builder transport(FlagTransport transport) { this.transport = transport; return this; }
+
+    // Re-reads GET /flags every interval (the default, every 30s)
+    public Builder polling(Duration interval) {
+      this.pollInterval = interval;
+      this.streaming = false;
+      return this;
+    }
+
+    // Follows GET /flags/stream, reconnecting on failure
+    public Builder streaming() {
+      this.streaming = true;
+      return this;
+    }
+
+    public FlagClient build() {
+      FlagTransport t = transport;
+      if (t == null) {
+        t = streaming
+            ? new StreamingTransport(httpClient, baseUri, om, Duration.ofSeconds(1))
+            : new PollingTransport(httpClient, baseUri, om, pollInterval);
+      }
+      return new FlagClient(t, om);
+    }
+  }
+}
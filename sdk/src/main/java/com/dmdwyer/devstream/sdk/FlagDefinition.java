@@ -0,0 +1,14 @@
+package com.dmdwyer.devstream.sdk;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+// A flag as served by the Devstream API (the fields of FlagDto the engine needs)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record FlagDefinition(
+  String flagKey,
+  Boolean enabled,
+  String rulesJson,
+  String variantsJson,
+  BucketingMode bucketing
+) {}
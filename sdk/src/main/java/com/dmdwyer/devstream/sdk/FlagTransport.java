@@ -0,0 +1,10 @@
+package com.dmdwyer.devstream.sdk;
+
+// Pluggable way of keeping a FlagClient's definitions fresh. Implementations deliver
+// updates on their own threads and must keep retrying until closed.
+public interface FlagTransport extends AutoCloseable {
+  void start(FlagUpdateListener listener);
+
+  @Override
+  void close();
+}
@@ -0,0 +1,13 @@
+package com.dmdwyer.devstream.sdk;
+
+import java.util.List;
+
+// Receives flag definitions from a FlagTransport. A snapshot replaces everything the
+// client holds; upserts and deletes only apply when their version is newer.
+public interface FlagUpdateListener {
+  void onSnapshot(long version, List<FlagDefinition> flags);
+
+  void onUpsert(long version, FlagDefinition flag);
+
+  void onDelete(long version, String flagKey);
+}
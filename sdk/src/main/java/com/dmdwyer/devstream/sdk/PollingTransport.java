@@ -0,0 +1,82 @@
+package com.dmdwyer.devstream.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+// Fetches GET /flags/snapshot (gzipped) every interval and hands each changed result to the client as a snapshot.
+// The ETag is sent back as If-None-Match, so an unchanged poll is a bodiless 304. Versions are local: they only
+// say which poll a snapshot came from.
+public final class PollingTransport implements FlagTransport {
+  private final HttpClient http;
+  private final URI baseUri;
+  private final ObjectMapper om;
+  private final Duration interval;
+  private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "devstream-flags-poller");
+    t.setDaemon(true);
+    return t;
+  });
+  private final System.Logger logger = System.getLogger(PollingTransport.class.getName());
+  private long version;
+  private String etag;
+
+  public PollingTransport(HttpClient http, URI baseUri, ObjectMapper om, Duration interval) {
+    this.http = http;
+    this.baseUri = baseUri;
+    this.om = om;
+    this.interval = interval;
+  }
+
+  @Override
+  public void start(FlagUpdateListener listener) {
+    poller.scheduleWithFixedDelay(() -> poll(listener), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    poller.shutdownNow();
+  }
+
+  private void poll(FlagUpdateListener listener) {
+    try {
+      List<FlagDefinition> flags = fetchSnapshot();
+      if (flags != null) listener.onSnapshot(++version, flags);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.log(System.Logger.Level.WARNING, "Polling flags from " + baseUri + " failed: " + e.getMessage());
+    }
+  }
+
+  // null when the server's snapshot still matches the ETag from the last poll
+  private List<FlagDefinition> fetchSnapshot() throws IOException, InterruptedException {
+    URI uri = baseUri.resolve("/flags/snapshot");
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").GET();
+    if (etag != null) request.header("If-None-Match", etag);
+    HttpResponse<InputStream> resp = http.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    try (InputStream body = resp.body()) {
+      if (resp.statusCode() == 304) return null;
+      if (resp.statusCode() != 200) throw new IOException("GET " + uri + " returned " + resp.statusCode());
+      boolean gzip = resp.headers().firstValue("Content-Encoding").filter(e -> e.equalsIgnoreCase("gzip")).isPresent();
+      JsonNode snapshot = om.readTree(gzip ? new GZIPInputStream(body) : body);
+      List<FlagDefinition> flags = new ArrayList<>();
+      for (JsonNode flag : snapshot.path("flags")) flags.add(om.treeToValue(flag, FlagDefinition.class));
+      etag = resp.headers().firstValue("ETag").orElse(null);
+      return flags;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.dmdwyer.devstream.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Follows the GET /flags/stream Server-Sent Events feed. The service sends a full
+// snapshot on every (re)connect, so a dropped connection only needs a reconnect.
+public final class StreamingTransport implements FlagTransport {
+  private final HttpClient http;
+  private final URI baseUri;
+  private final ObjectMapper om;
+  private final Duration reconnectDelay;
+  private final System.Logger logger = System.getLogger(StreamingTransport.class.getName());
+  private volatile boolean closed;
+  private volatile Thread reader;
+  private volatile Stream<String> lines;
+
+  public StreamingTransport(HttpClient http, URI baseUri, ObjectMapper om, Duration reconnectDelay) {
+    this.http = http;
+    this.baseUri = baseUri;
+    this.om = om;
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  @Override
+  public void start(FlagUpdateListener listener) {
+    Thread t = new Thread(() -> run(listener), "devstream-flags-stream");
+    t.setDaemon(true);
+    reader = t;
+    t.start();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Stream<String> open = lines;
+    if (open != null) open.close();
+    Thread t = reader;
+    if (t != null) t.interrupt();
+  }
+
+  private void run(FlagUpdateListener listener) {
+    HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/flags/stream"))
+        .header("Accept", "text/event-stream")
+        .GET().build();
+    while (!closed) {
+      try {
+        HttpResponse<Stream<String>> resp = http.send(request, HttpResponse.BodyHandlers.ofLines());
+        if (resp.statusCode() != 200) throw new IOException("GET /flags/stream returned " + resp.statusCode());
+        lines = resp.body();
+        read(lines, listener);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        if (!closed) logger.log(System.Logger.Level.WARNING, "Flag stream from " + baseUri + " failed: " + e.getMessage());
+      }
+      if (closed) return;
+      try {
+        Thread.sleep(reconnectDelay.toMillis());
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void read(Stream<String> lines, FlagUpdateListener listener) {
+    String[] event = {null};
+    StringBuilder data = new StringBuilder();
+    lines.forEachOrdered(line -> {
+      if (line.isEmpty()) { // blank line ends an event
+        if (event[0] != null) dispatch(event[0], data.toString(), listener);
+        event[0] = null;
+        data.setLength(0);
+      } else if (line.startsWith("event:")) {
+        event[0] = line.substring(6).trim();
+      } else if (line.startsWith("data:")) {
+        if (!data.isEmpty()) data.append('\n');
+        data.append(line.substring(5));
+      }
+    });
+  }
+
+  private void dispatch(String event, String data, FlagUpdateListener listener) {
+    try {
+      JsonNode payload = om.readTree(data);
+      long version = payload.path("version").asLong();
+      switch (event) {
+        case "snapshot" -> {
+          List<FlagDefinition> flags = new ArrayList<>();
+          for (JsonNode flag : payload.path("flags")) flags.add(om.treeToValue(flag, FlagDefinition.class));
+          listener.onSnapshot(version, flags);
+        }
+        case "upsert" -> listener.onUpsert(version, om.treeToValue(payload.path("flag"), FlagDefinition.class));
+        case "delete" -> listener.onDelete(version, payload.path("flagKey").asText());
+        default -> { } // heartbeat and anything newer than this client
+      }
+    } catch (IOException e) {
+      logger.log(System.Logger.Level.WARNING, "Ignoring unreadable " + event + " event: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.dmdwyer.devstream.sdk;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlagClientTest {
+  private static final String FLAG =
+      "{\"id\":1,\"flagKey\":\"homepage_banner\",\"enabled\":true," +
+      "\"rulesJson\":\"[{\\\"if\\\":\\\"country=IE\\\",\\\"then\\\":\\\"A\\\"}]\",\"variantsJson\":\"{\\\"B\\\":100}\",\"bucketing\":\"MURMUR3\"}";
+
+  private HttpServer server;
+  private URI baseUri;
+  private final AtomicInteger notModified = new AtomicInteger();
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/flags", exchange -> {
+      String path = exchange.getRequestURI().getPath();
+      if (path.equals("/flags/stream")) {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        respond(exchange.getResponseBody(), exchange,
+            "id:3\nevent:snapshot\ndata:{\"version\":3,\"flags\":[" + FLAG + "]}\n\n" +
+            "id:4\nevent:upsert\ndata:{\"version\":4,\"flagKey\":\"checkout\",\"flag\":{\"flagKey\":\"checkout\",\"enabled\":false}}\n\n" +
+            "id:2\nevent:delete\ndata:{\"version\":2,\"flagKey\":\"homepage_banner\"}\n\n");
+      } else if (path.equals("/flags/snapshot")) {
+        if ("\"s1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          notModified.incrementAndGet();
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(gzipped)) {
+          gz.write(("{\"flags\":[" + FLAG + "]}").getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().add("ETag", "\"s1\"");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, gzipped.size());
+        try (OutputStream body = exchange.getResponseBody()) {
+          gzipped.writeTo(body);
+        }
+      } else {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+      }
+    });
+    server.start();
+    baseUri = URI.create("http://localhost:" + server.getAddress().getPort());
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void polling_loadsFlagsAndEvaluatesLocally() throws InterruptedException {
+    try (FlagClient client = FlagClient.builder(baseUri).polling(Duration.ofMinutes(1)).build()) {
+      assertThat(client.awaitReady(Duration.ofSeconds(5))).isTrue();
+
+      assertThat(client.evaluate("homepage_banner", "u1", Map.of("country", "IE"), "OFF")).isEqualTo("A");
+      assertThat(client.evaluate("homepage_banner", "u1", Map.of(), "OFF")).isEqualTo("B");
+      assertThat(client.evaluate("unknown", "u1", Map.of(), "OFF")).isEqualTo("OFF");
+    }
+  }
+
+  @Test
+  void polling_revalidatesWithETag_andKeepsFlagsOnNotModified() throws InterruptedException {
+    try (FlagClient client = FlagClient.builder(baseUri).polling(Duration.ofMillis(20)).build()) {
+      assertThat(client.awaitReady(Duration.ofSeconds(5))).isTrue();
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (notModified.get() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+      assertThat(notModified.get()).isGreaterThanOrEqualTo(2);
+      assertThat(client.evaluate("homepage_banner", "u1", Map.of("country", "IE"), "OFF")).isEqualTo("A");
+    }
+  }
+
+  @Test
+  void streaming_appliesSnapshotThenNewerChangesOnly() throws InterruptedException {
+    try (FlagClient client = FlagClient.builder(baseUri).streaming().build()) {
+      assertThat(client.awaitReady(Duration.ofSeconds(5))).isTrue();
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (!client.keys().contains("checkout") && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+      assertThat(client.evaluateAll("u1", Map.of()))
+          .containsEntry("checkout", "OFF")
+          .containsEntry("homepage_banner", "B"); // the stale v2 delete is ignored
+    }
+  }
+
+  @Test
+  void segmentRules_areLeftToTheServer() throws InterruptedException {
+    FlagDefinition guarded = new FlagDefinition("guarded", true,
+        "[{\"segment\":\"blocked\",\"then\":\"OFF\"}]", "{\"B\":100}", BucketingMode.MURMUR3);
+    FlagDefinition nested = new FlagDefinition("nested", true,
+        "[{\"when\":{\"and\":[{\"attr\":\"country\",\"op\":\"eq\",\"value\":\"IE\"},{\"segment\":\"beta\"}]},\"then\":\"A\"}]",
+        "{\"B\":100}", BucketingMode.MURMUR3);
+    FlagDefinition dependent = new FlagDefinition("dependent", true,
+        "[{\"when\":{\"flag\":\"guarded\",\"value\":\"B\"},\"then\":\"A\"}]", null, BucketingMode.MURMUR3);
+    FlagDefinition disabled = new FlagDefinition("disabled", false, "[{\"segment\":\"beta\",\"then\":\"A\"}]", null, BucketingMode.MURMUR3);
+    FlagDefinition plain = new FlagDefinition("plain", true, null, "{\"B\":100}", BucketingMode.MURMUR3);
+    FlagTransport transport = new FlagTransport() {
+      @Override
+      public void start(FlagUpdateListener listener) {
+        listener.onSnapshot(1, List.of(guarded, nested, dependent, disabled, plain));
+      }
+
+      @Override
+      public void close() {}
+    };
+
+    try (FlagClient client = FlagClient.builder(baseUri).transport(transport).build()) {
+      assertThat(client.awaitReady(Duration.ofSeconds(5))).isTrue();
+
+      // Without memberships the guard rule can't be applied, so the caller's default is returned
+      // instead of the rollout the server would only serve to users outside the segment
+      assertThat(client.serverEvaluatedKeys()).containsExactlyInAnyOrder("guarded", "nested", "dependent");
+      assertThat(client.evaluate("guarded", "u1", Map.of(), "DEFAULT")).isEqualTo("DEFAULT");
+      assertThat(client.evaluate("nested", "u1", Map.of("country", "IE"), "DEFAULT")).isEqualTo("DEFAULT");
+      assertThat(client.evaluate("dependent", "u1", Map.of(), "DEFAULT")).isEqualTo("DEFAULT");
+      assertThat(client.evaluate("disabled", "u1", Map.of(), "DEFAULT")).isEqualTo("OFF");
+      assertThat(client.evaluateAll("u1", Map.of())).containsOnlyKeys("disabled", "plain");
+    }
+  }
+
+  private static void respond(OutputStream body, com.sun.net.httpserver.HttpExchange exchange, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (body) {
+      body.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.dmdwyer.devstream.bench;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Write/load-time cost of turning rulesJson and variantsJson into a plan
+// (this replaced the per-request parseSplits and rule parsing)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompileBenchmark {
+  @Param({"0", "10", "50"})
+  int rules;
+
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+  private String rulesJson;
+  private final String variantsJson = "{\"control\":34,\"treatment_a\":33,\"treatment_b\":33}";
+
+  @Setup
+  public void setup() {
+    rulesJson = SyntheticFlags.rulesJson(rules, new SplittableRandom(1));
+  }
+
+  @Benchmark
+  public CompiledFlag compileVariantsOnly() {
+    return compiler.compile("compile_flag", true, null, variantsJson, BucketingMode.MURMUR3);
+  }
+
+  @Benchmark
+  public CompiledFlag compileRulesAndVariants() {
+    return compiler.compile("compile_flag", true, rulesJson, variantsJson, BucketingMode.MURMUR3);
+  }
+}
@@ -0,0 +1,97 @@
+package com.dmdwyer.devstream.bench;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.SegmentResolver;
+import com.dmdwyer.devstream.mapper.FlagMapper;
+import com.dmdwyer.devstream.metrics.FlagEvaluationMetrics;
+import com.dmdwyer.devstream.entity.Flag;
+import com.dmdwyer.devstream.exposure.ExposureDropPolicy;
+import com.dmdwyer.devstream.exposure.ExposureEvent;
+import com.dmdwyer.devstream.exposure.ExposureRecorder;
+import com.dmdwyer.devstream.exposure.ExposureSink;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.service.FlagService;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end FlagService.evaluate against a snapshot of flagCount synthetic flags with 0-50 rules each
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+  private static final int MASK = 1023;
+
+  @Param({"10", "1000", "100000"})
+  int flagCount;
+
+  // true measures the cost of handing every evaluation to the exposure buffer (drained to a no-op sink)
+  @Param({"false", "true"})
+  boolean exposures;
+
+  private FlagService service;
+  private ExposureRecorder recorder;
+  private String[] keys;
+  private String[] users;
+  private final Map<String,String> attrs = Map.of("country", "IE", "plan", "free", "platform", "ios");
+  private int i;
+
+  @Setup
+  public void setup() {
+    FlagMapper mapper = Mappers.getMapper(FlagMapper.class);
+    List<FlagDto> flags = SyntheticFlags.generate(flagCount, 50, 42);
+    List<Flag> entities = flags.stream().map(mapper::toEntity).toList();
+    FlagSnapshotStore snapshots = new FlagSnapshotStore(findAllOnly(entities), mapper, new ObjectMapper(), SegmentResolver.NONE, event -> {});
+    snapshots.load();
+    ExposureSink discard = new ExposureSink() {
+      public String name() { return "discard"; }
+      public void write(List<ExposureEvent> batch) {}
+    };
+    recorder = new ExposureRecorder(List.of(discard), new SimpleMeterRegistry(), exposures, 65536, 500,
+        Duration.ofMillis(100), ExposureDropPolicy.DROP_NEWEST, Duration.ZERO, false);
+    // no change log: only reads are benchmarked
+    service = new FlagService(findAllOnly(entities), mapper, snapshots,
+        new FlagEvaluationMetrics(new SimpleMeterRegistry(), 1000, 20), recorder, null);
+    keys = new String[MASK + 1];
+    for (int k = 0; k < keys.length; k++) keys[k] = flags.get(k % flagCount).flagKey();
+    users = SyntheticFlags.userIds(MASK + 1, 7);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    recorder.shutdown();
+  }
+
+  @Benchmark
+  public String evaluate() {
+    int n = i++ & MASK;
+    return service.evaluate(keys[n], users[n], attrs);
+  }
+
+  // One op evaluates every flag in the snapshot for one user (POST /flags/evaluate without keys)
+  @Benchmark
+  public void evaluateAll(Blackhole bh) {
+    bh.consume(service.evaluateAll(users[i++ & MASK], attrs, null));
+  }
+
+  // Only findAll() is needed to load the snapshot; anything else hitting the "database" is a bug
+  private static FlagRepository findAllOnly(List<Flag> entities) {
+    return (FlagRepository) Proxy.newProxyInstance(FlagRepository.class.getClassLoader(),
+        new Class<?>[]{FlagRepository.class}, (proxy, method, args) -> {
+          if (method.getName().equals("findAll") && method.getParameterCount() == 0) return entities;
+          throw new UnsupportedOperationException("Benchmark repository does not support " + method.getName());
+        });
+  }
+}
@@ -0,0 +1,36 @@
+package com.dmdwyer.devstream.bench;
+
+import com.dmdwyer.devstream.engine.BucketHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Salted murmur3 bucketing against the legacy Arrays.hashCode(getBytes()) bucketing (formerly positiveHash)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+  private static final int MASK = 1023;
+
+  private String[] users;
+  private final int salt = BucketHasher.murmur3("hash_flag");
+  private int i;
+
+  @Setup
+  public void setup() {
+    users = SyntheticFlags.userIds(MASK + 1, 7);
+  }
+
+  @Benchmark
+  public int murmur3Bucket() {
+    return BucketHasher.bucket(BucketHasher.murmur3(users[i++ & MASK]), salt);
+  }
+
+  @Benchmark
+  public int legacyBucket() {
+    return BucketHasher.legacyBucket(users[i++ & MASK]);
+  }
+}
@@ -0,0 +1,42 @@
+package com.dmdwyer.devstream.bench;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Rule matching cost by rule count: no rule matches, so every rule is considered before the
+// split. indexed=false compiles without the equality-rule index to show the linear scan.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleMatchingBenchmark {
+  @Param({"0", "10", "50", "500"})
+  int rules;
+
+  @Param({"true", "false"})
+  boolean indexed;
+
+  private CompiledFlag flag;
+  private final Map<String,String> attrs = Map.of("country", "XX", "plan", "none");
+
+  @Setup
+  public void setup() {
+    FlagCompiler compiler = indexed ? new FlagCompiler(new ObjectMapper()) : new FlagCompiler(new ObjectMapper()).withoutRuleIndex();
+    flag = compiler.compile("rules_flag", true, SyntheticFlags.rulesJson(rules, new SplittableRandom(1)),
+        "{\"A\":50,\"B\":50}", BucketingMode.MURMUR3);
+  }
+
+  @Benchmark
+  public String evaluateNoMatch() {
+    return flag.evaluate("user-123", attrs);
+  }
+}
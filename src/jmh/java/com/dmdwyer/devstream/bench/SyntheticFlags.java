@@ -0,0 +1,57 @@
+package com.dmdwyer.devstream.bench;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.BucketingMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic flag sets for the benchmarks, so runs between releases compare like for like
+final class SyntheticFlags {
+  static final String[] ATTRIBUTES = {"country", "plan", "tenant", "platform", "region"};
+  static final String[] COUNTRIES = {"IE", "US", "GB", "DE", "FR", "ES", "IT", "NL", "SE", "PL"};
+
+  private SyntheticFlags() {}
+
+  static List<FlagDto> generate(int count, int maxRules, long seed) {
+    SplittableRandom rnd = new SplittableRandom(seed);
+    List<FlagDto> flags = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int rules = maxRules == 0 ? 0 : rnd.nextInt(maxRules + 1);
+      flags.add(new FlagDto((long) i, "flag_" + i, rnd.nextInt(10) != 0,
+          rulesJson(rules, rnd), variantsJson(rnd),
+          rnd.nextBoolean() ? BucketingMode.MURMUR3 : BucketingMode.LEGACY, 0L));
+    }
+    return flags;
+  }
+
+  static String rulesJson(int rules, SplittableRandom rnd) {
+    if (rules == 0) return null;
+    StringBuilder sb = new StringBuilder("[");
+    for (int r = 0; r < rules; r++) {
+      if (r > 0) sb.append(',');
+      String attr = ATTRIBUTES[rnd.nextInt(ATTRIBUTES.length)];
+      String value = attr.equals("country") ? COUNTRIES[rnd.nextInt(COUNTRIES.length)] : attr + "_" + rnd.nextInt(1000);
+      sb.append("{\"if\":\"").append(attr).append('=').append(value)
+          .append("\",\"then\":\"rule_").append(r).append("\"}");
+    }
+    return sb.append(']').toString();
+  }
+
+  static String variantsJson(SplittableRandom rnd) {
+    return switch (rnd.nextInt(4)) {
+      case 0 -> null;
+      case 1 -> "{\"A\":50,\"B\":50}";
+      case 2 -> "{\"control\":34,\"treatment_a\":33,\"treatment_b\":33}";
+      default -> "{\"on\":10,\"off\":90}";
+    };
+  }
+
+  static String[] userIds(int count, long seed) {
+    SplittableRandom rnd = new SplittableRandom(seed);
+    String[] ids = new String[count];
+    for (int i = 0; i < count; i++) ids[i] = "user-" + Long.toHexString(rnd.nextLong());
+    return ids;
+  }
+}
@@ -1,9 +1,12 @@
 package com.dmdwyer.devstream;
 
+import com.dmdwyer.devstream.startup.FlagRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(FlagRuntimeHints.class)
 public class DevstreamPortfolioApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,67 @@
+package com.dmdwyer.devstream.changes;
+
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Drops flag_changes rows (including delete tombstones) older than flags.changes.retention.
+// A GET /flags/changes cursor from before the oldest remaining row is told to resync. Every
+// instance runs this; deleting rows that another instance already deleted is harmless.
+@Component
+public class FlagChangeCompactor {
+  private final FlagChangeRepository changes;
+  private final Duration retention;
+  private final Duration interval;
+  private final Counter compacted;
+  private final ScheduledExecutorService compactor;
+  private final Logger logger = LoggerFactory.getLogger(FlagChangeCompactor.class);
+
+  public FlagChangeCompactor(FlagChangeRepository changes, MeterRegistry meterRegistry,
+                             @Value("${flags.changes.retention:7d}") Duration retention,
+                             @Value("${flags.changes.compact-interval:1h}") Duration interval,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.changes = changes;
+    this.retention = retention;
+    this.interval = interval;
+    this.compacted = Counter.builder("flag.changes.compacted")
+        .description("flag_changes rows deleted after the retention window")
+        .register(meterRegistry);
+    this.compactor = Executors.newSingleThreadScheduledExecutor(WorkerThreads.factory("flag-change-compactor", virtualThreads));
+  }
+
+  @PostConstruct
+  public void start() {
+    long millis = interval.toMillis();
+    compactor.scheduleWithFixedDelay(this::compact, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  public int compact() {
+    try {
+      int deleted = changes.deleteChangedBefore(Instant.now().minus(retention));
+      compacted.increment(deleted);
+      if (deleted > 0) logger.info("Compacted {} flag changes older than {}", deleted, retention);
+      return deleted;
+    } catch (RuntimeException e) {
+      logger.warn("Failed to compact flag changes: {}", e.getMessage());
+      return 0;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    compactor.shutdownNow();
+  }
+}
@@ -0,0 +1,56 @@
+package com.dmdwyer.devstream.changes;
+
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes the flag_changes outbox. append() must run inside the transaction that writes the
+// flag, so the change row commits or rolls back with it.
+@Component
+public class FlagChangeLog {
+  public static final String CHANNEL = "flag_changes";
+
+  private final FlagChangeRepository repo;
+  private final JdbcTemplate jdbc;
+  private final String origin;
+  private final boolean notify;
+  private final AtomicLong lastCommittedSeq = new AtomicLong();
+
+  public FlagChangeLog(FlagChangeRepository repo, JdbcTemplate jdbc,
+                       @Value("${flags.changes.instance-id:}") String instanceId,
+                       @Value("${flags.changes.notify:false}") boolean notify) {
+    this.repo = repo;
+    this.jdbc = jdbc;
+    this.origin = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+    this.notify = notify;
+  }
+
+  public String origin() { return origin; }
+  public boolean notifyEnabled() { return notify; }
+
+  // Newest change this instance has committed; a read replica must have replayed it before
+  // reads are sent there again (see datasource.ReplicaDataSource)
+  public long lastCommittedSeq() { return lastCommittedSeq.get(); }
+
+  public FlagChange append(String flagKey, String previousKey, FlagChange.Type type) {
+    FlagChange change = repo.save(new FlagChange(flagKey, previousKey, type, origin, Instant.now()));
+    // Postgres only: queued with the transaction and delivered to listeners on commit
+    if (notify) jdbc.queryForList("select pg_notify(?, ?)", CHANNEL, String.valueOf(change.getSeq()));
+    long seq = change.getSeq();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() { lastCommittedSeq.accumulateAndGet(seq, Math::max); }
+      });
+    }
+    return change;
+  }
+}
@@ -0,0 +1,56 @@
+package com.dmdwyer.devstream.changes;
+
+import com.dmdwyer.devstream.entity.FlagChange;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Hibernate gives the flag_changes.type enum column a check constraint (type in (...)), and
+// ddl-auto=update never alters an existing one. A database created before a FlagChange.Type
+// was added (SEGMENT, RELOAD) would reject that type's rows, so on Postgres the constraint is
+// widened to every current type at startup, after Hibernate has updated the schema. Other
+// databases are left alone, and so is one that can't be reached (it's checked again on the
+// next start).
+@Component
+@DependsOn("entityManagerFactory")
+public class FlagChangeSchema {
+  private static final String TYPE_CHECKS = "select con.conname, pg_get_constraintdef(con.oid) as def from pg_constraint con"
+      + " join pg_class rel on rel.oid = con.conrelid where rel.relname = 'flag_changes' and con.contype = 'c'";
+
+  private final JdbcTemplate jdbc;
+  private final Logger logger = LoggerFactory.getLogger(FlagChangeSchema.class);
+
+  public FlagChangeSchema(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  @PostConstruct
+  public void widenTypeCheck() {
+    try {
+      String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+      if (!"PostgreSQL".equals(product)) return;
+      String allowed = Arrays.stream(FlagChange.Type.values())
+          .map(t -> "'" + t.name() + "'").collect(Collectors.joining(", "));
+      for (Map<String, Object> check : jdbc.queryForList(TYPE_CHECKS)) {
+        String name = (String) check.get("conname");
+        String def = (String) check.get("def");
+        if (!def.contains("type") || Arrays.stream(FlagChange.Type.values()).allMatch(t -> def.contains("'" + t.name() + "'"))) continue;
+        // One statement, so there is no moment without the constraint
+        jdbc.execute("alter table flag_changes drop constraint \"" + name + "\", add constraint \"" + name
+            + "\" check (type in (" + allowed + "))");
+        logger.info("Widened flag_changes check constraint {} to types {}", name, allowed);
+      }
+    } catch (DataAccessException e) {
+      logger.warn("Could not check the flag_changes type constraint: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package com.dmdwyer.devstream.changes;
+
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
+import com.dmdwyer.devstream.segment.SegmentStore;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotFile;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps this instance's snapshot in step with writes made by other instances by tailing
+// flag_changes in seq order. Changes from this instance are skipped (they were applied when
+// they committed); everything else re-reads the flag, so applying a change twice is harmless.
+// Polling always runs; with flags.changes.notify on Postgres, LISTEN/NOTIFY triggers a poll
+// as soon as a change commits.
+//
+// The tailer also owns the initial load. With a snapshot file present it serves the file at
+// once and reconciles with the database in the background; while the database can't be
+// reached it keeps serving what it has and reports itself stale (see syncStatus()).
+@Component
+public class FlagChangeTailer {
+  private static final int LISTEN_TIMEOUT_MS = 10_000;
+
+  private final FlagChangeRepository changes;
+  private final FlagSnapshotStore snapshots;
+  private final SegmentStore segments;
+  private final FlagChangeLog changeLog;
+  private final FlagSnapshotFile snapshotFile;
+  private final DataSource dataSource;
+  private final boolean enabled;
+  private final Duration pollInterval;
+  private final int batchSize;
+  private final long gapTimeoutNanos;
+  private final Timer lag;
+  private final boolean virtualThreads;
+  private final ScheduledExecutorService poller;
+  private final Logger logger = LoggerFactory.getLogger(FlagChangeTailer.class);
+
+  // Tailing state, only touched on the poller thread (and in start() before it runs)
+  private volatile long lastSeq;                           // every change <= lastSeq is applied or given up on
+  private final TreeSet<Long> appliedAhead = new TreeSet<>(); // applied changes past a gap in seq
+  private long gapSince;                                   // nanoTime the current gap was first seen
+  private boolean reconciled;                              // a full database load has succeeded
+  private volatile long appliedSeq;
+  private volatile SyncStatus syncStatus = new SyncStatus("none", true, null, null, null);
+  private volatile boolean running = true;
+  private Thread listener;
+
+  // source: where the served flags came from ("database", "file" or "none"); stale: the last
+  // attempt to read the database failed, or it has never been read
+  public record SyncStatus(String source, boolean stale, Instant lastSyncAt, String lastError, Instant fileWrittenAt) {}
+
+  public FlagChangeTailer(FlagChangeRepository changes, FlagSnapshotStore snapshots, SegmentStore segments, FlagChangeLog changeLog,
+                          FlagSnapshotFile snapshotFile, DataSource dataSource, MeterRegistry meterRegistry,
+                          @Value("${flags.changes.tail:true}") boolean enabled,
+                          @Value("${flags.changes.poll-interval:1s}") Duration pollInterval,
+                          @Value("${flags.changes.batch-size:500}") int batchSize,
+                          @Value("${flags.changes.gap-timeout:10s}") Duration gapTimeout,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.changes = changes;
+    this.snapshots = snapshots;
+    this.segments = segments;
+    this.changeLog = changeLog;
+    this.snapshotFile = snapshotFile;
+    this.dataSource = dataSource;
+    this.enabled = enabled;
+    this.pollInterval = pollInterval;
+    this.batchSize = batchSize;
+    this.gapTimeoutNanos = gapTimeout.toNanos();
+    this.virtualThreads = virtualThreads;
+    this.poller = Executors.newSingleThreadScheduledExecutor(WorkerThreads.factory("flag-change-tailer", virtualThreads));
+    this.lag = Timer.builder("flag.changes.lag")
+        .description("Time from a change committing on another instance to it being applied here")
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+    Gauge.builder("flag.changes.applied.seq", this, t -> t.appliedSeq)
+        .description("Highest flag_changes sequence applied to this instance's snapshot")
+        .register(meterRegistry);
+  }
+
+  public SyncStatus syncStatus() { return syncStatus; }
+
+  // Every change at or below this seq is visible (or was given up on after gap-timeout), so
+  // reading flag_changes up to it can't skip a commit still in flight. Without tailing there
+  // is no such position and this falls back to the newest seq.
+  public long visibleSeq() {
+    return enabled ? lastSeq : changes.maxSeq();
+  }
+
+  @PostConstruct
+  public void start() {
+    Optional<FlagSnapshotFile.Contents> file = snapshotFile.read();
+    if (file.isPresent()) {
+      // Segments first, as in reconcile()
+      segments.loadFrom(file.get().segments(), "snapshot file");
+      snapshots.loadFrom(file.get().flags(), "snapshot file");
+      syncStatus = new SyncStatus("file", true, null, null, file.get().writtenAt());
+      poller.execute(this::reconcile);
+    } else {
+      reconcile();
+    }
+    long millis = pollInterval.toMillis();
+    poller.scheduleWithFixedDelay(this::poll, millis, millis, TimeUnit.MILLISECONDS);
+    if (enabled && changeLog.notifyEnabled()) {
+      listener = WorkerThreads.start("flag-change-listener", virtualThreads, this::listen);
+    }
+  }
+
+  // Full load. The log position is read first, so anything committed in between is replayed.
+  // Segments go first so segment rules are matching by the time the flags are published.
+  private void reconcile() {
+    try {
+      long seq = changes.maxSeq();
+      // The last batch-size changes up to it, read before the load so each is covered by it
+      long from = Math.max(0, Math.max(seq - batchSize, changes.minSeq() - 1));
+      List<FlagChange> recent = changes.findBySeqGreaterThanOrderBySeqAsc(from, Limit.of(batchSize)).stream()
+          .filter(c -> c.getSeq() <= seq).toList();
+      segments.load();
+      snapshots.load();
+      seedGaps(from, recent);
+      appliedSeq = seq;
+      reconciled = true;
+      synced();
+    } catch (RuntimeException e) {
+      if (syncStatus.lastError() == null) {
+        logger.warn("Could not load flags from the database, serving the {} snapshot until it is reachable: {}",
+            syncStatus.source(), e.getMessage());
+      }
+      failed(e);
+    }
+  }
+
+  // A hole below maxSeq is a seq taken by a transaction that was still in flight (or rolled
+  // back), and the load can't have seen it. Holes are tracked like any other gap: lastSeq stops
+  // in front of the first one until it commits or gap-timeout passes. A hole followed by a
+  // change older than gap-timeout has been open that long already and is given up on at once.
+  private void seedGaps(long from, List<FlagChange> recent) {
+    long start = from;
+    Instant cutoff = Instant.now().minusNanos(gapTimeoutNanos);
+    appliedAhead.clear();
+    for (FlagChange c : recent) {
+      if (c.getChangedAt().isBefore(cutoff)) {
+        start = c.getSeq();
+        appliedAhead.clear();
+      } else {
+        appliedAhead.add(c.getSeq());
+      }
+    }
+    lastSeq = start;
+    gapSince = 0;
+    advance();
+  }
+
+  private void synced() {
+    SyncStatus s = syncStatus;
+    syncStatus = new SyncStatus("database", false, Instant.now(), null, s.fileWrittenAt());
+  }
+
+  private void failed(RuntimeException e) {
+    SyncStatus s = syncStatus;
+    syncStatus = new SyncStatus(s.source(), true, s.lastSyncAt(), e.getMessage(), s.fileWrittenAt());
+  }
+
+  private void poll() {
+    if (!reconciled) {
+      reconcile();
+      return;
+    }
+    if (!enabled) return;
+    try {
+      List<FlagChange> batch;
+      boolean progressed;
+      do {
+        batch = changes.findBySeqGreaterThanOrderBySeqAsc(lastSeq, Limit.of(batchSize));
+        progressed = false;
+        for (FlagChange c : batch) {
+          if (!appliedAhead.contains(c.getSeq())) {
+            apply(c);
+            appliedAhead.add(c.getSeq());
+            progressed = true;
+          }
+        }
+        advance();
+      } while (progressed && batch.size() == batchSize);
+      synced();
+    } catch (RuntimeException e) {
+      if (!syncStatus.stale()) logger.warn("Failed to poll flag changes after seq {}", lastSeq, e);
+      failed(e);
+    }
+  }
+
+  private void apply(FlagChange c) {
+    if (!c.getOrigin().equals(changeLog.origin())) {
+      if (c.getType() == FlagChange.Type.RELOAD) {
+        snapshots.load();
+      } else if (c.getType() == FlagChange.Type.SEGMENT) {
+        segments.refresh(c.getFlagKey());
+      } else {
+        snapshots.refresh(c.getFlagKey());
+        if (c.getPreviousKey() != null) snapshots.refresh(c.getPreviousKey());
+      }
+      lag.record(Duration.between(c.getChangedAt(), Instant.now()));
+    }
+    appliedSeq = Math.max(appliedSeq, c.getSeq());
+  }
+
+  // IDENTITY values are handed out before commit, so seq N+1 can become visible before N.
+  // lastSeq only moves past a gap once the missing change shows up, or after gap-timeout
+  // (the transaction that took it rolled back).
+  private void advance() {
+    while (!appliedAhead.isEmpty() && appliedAhead.first() <= lastSeq + 1) {
+      lastSeq = Math.max(lastSeq, appliedAhead.pollFirst());
+    }
+    if (appliedAhead.isEmpty()) {
+      gapSince = 0;
+    } else if (gapSince == 0) {
+      gapSince = System.nanoTime();
+    } else if (System.nanoTime() - gapSince > gapTimeoutNanos) {
+      logger.warn("Giving up on flag changes {}..{}", lastSeq + 1, appliedAhead.first() - 1);
+      lastSeq = appliedAhead.first() - 1;
+      gapSince = 0;
+      advance();
+    }
+  }
+
+  // Holds one pooled connection for LISTEN while enabled
+  private void listen() {
+    while (running) {
+      try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+        st.execute("LISTEN " + FlagChangeLog.CHANNEL);
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pg.getNotifications(LISTEN_TIMEOUT_MS);
+          if (notifications != null && notifications.length > 0) poller.execute(this::poll);
+        }
+      } catch (SQLException e) {
+        if (!running) return;
+        logger.warn("Flag change listener lost its connection, falling back to polling until it reconnects", e);
+        try {
+          Thread.sleep(pollInterval.toMillis() * 5);
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    poller.shutdownNow();
+    if (listener != null) listener.interrupt();
+  }
+}
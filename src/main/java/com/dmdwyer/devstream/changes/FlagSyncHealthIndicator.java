@@ -0,0 +1,38 @@
+package com.dmdwyer.devstream.changes;
+
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+// /actuator/health component "flagSync": UP while the snapshot tracks the database, STALE while
+// serving the snapshot file or the last good state during a database outage, DOWN with nothing
+// to serve
+@Component
+public class FlagSyncHealthIndicator implements HealthIndicator {
+  public static final Status STALE = new Status("STALE", "Serving flags that may be behind the database");
+
+  private final FlagChangeTailer tailer;
+  private final FlagSnapshotStore snapshots;
+
+  public FlagSyncHealthIndicator(FlagChangeTailer tailer, FlagSnapshotStore snapshots) {
+    this.tailer = tailer;
+    this.snapshots = snapshots;
+  }
+
+  @Override
+  public Health health() {
+    FlagChangeTailer.SyncStatus s = tailer.syncStatus();
+    FlagSnapshot snapshot = snapshots.current();
+    Health.Builder h = !s.stale() ? Health.up() : s.source().equals("none") ? Health.down() : Health.status(STALE);
+    h.withDetail("source", s.source())
+        .withDetail("snapshotVersion", snapshot.version())
+        .withDetail("flags", snapshot.flags().size());
+    if (s.lastSyncAt() != null) h.withDetail("lastSyncAt", s.lastSyncAt().toString());
+    if (s.fileWrittenAt() != null) h.withDetail("fileWrittenAt", s.fileWrittenAt().toString());
+    if (s.lastError() != null) h.withDetail("lastError", s.lastError());
+    return h.build();
+  }
+}
@@ -0,0 +1,32 @@
+package com.dmdwyer.devstream.common;
+
+// Just enough Accept-Encoding parsing to decide between identity and gzip
+public final class AcceptEncoding {
+  private AcceptEncoding() {}
+
+  // True when the header lists gzip (or *) with a non-zero q value
+  public static boolean allowsGzip(String header) {
+    if (header == null) return false;
+    for (String part : header.split(",")) {
+      String[] params = part.split(";");
+      String coding = params[0].trim();
+      if (!coding.equalsIgnoreCase("gzip") && !coding.equalsIgnoreCase("x-gzip") && !coding.equals("*")) continue;
+      if (quality(params) > 0) return true;
+    }
+    return false;
+  }
+
+  private static double quality(String[] params) {
+    for (int i = 1; i < params.length; i++) {
+      String p = params[i].trim();
+      if (p.length() > 2 && (p.charAt(0) == 'q' || p.charAt(0) == 'Q') && p.charAt(1) == '=') {
+        try {
+          return Double.parseDouble(p.substring(2).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+}
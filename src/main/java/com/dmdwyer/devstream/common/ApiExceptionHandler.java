@@ -1,6 +1,9 @@
 package com.dmdwyer.devstream.common;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.*;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +21,26 @@ public class ApiExceptionHandler {
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error","NOT_FOUND","message",ex.getMessage()));
   }
 
+  @ExceptionHandler(PreconditionFailedException.class)
+  public ResponseEntity<Map<String,Object>> preconditionFailed(PreconditionFailedException ex){
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error","PRECONDITION_FAILED","message",ex.getMessage()));
+  }
+
+  // A concurrent write bumped the version between our read and flush
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Map<String,Object>> conflictingWrite(OptimisticLockingFailureException ex){
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+      .body(Map.of("error","PRECONDITION_FAILED","message","Flag was modified concurrently; re-read and retry"));
+  }
+
+  // No connection within spring.datasource.hikari.connection-timeout (pool exhausted or the
+  // database is down): shed the request instead of queueing behind the pool
+  @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+  public ResponseEntity<Map<String,Object>> unavailable(Exception ex){
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+      .body(Map.of("error","SERVICE_UNAVAILABLE","message","Database connection unavailable; retry shortly"));
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Map<String,Object>> invalid(MethodArgumentNotValidException ex){
     var errors = ex.getBindingResult().getFieldErrors().stream()
@@ -0,0 +1,59 @@
+package com.dmdwyer.devstream.common;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+
+// Strong ETags for a flag row: its id and Flag.version, e.g. "12.3". The version alone would
+// start again at 0 when a key is deleted and re-created, or another flag is renamed into it,
+// and match a tag taken from different content.
+public final class ETags {
+  private ETags() {}
+
+  public record Tag(long id, long version) {
+    @Override
+    public String toString() { return id + "." + version; }
+  }
+
+  public static String of(Tag tag) {
+    return "\"" + tag + "\"";
+  }
+
+  public static String of(FlagDto flag) {
+    return of(tagOf(flag.id(), flag.version()));
+  }
+
+  public static Tag tagOf(Long id, Long version) {
+    return new Tag(id != null ? id : 0, version != null ? version : 0);
+  }
+
+  // If-None-Match uses weak comparison: W/ is ignored, and * matches any current representation
+  public static boolean anyMatch(String ifNoneMatch, String... etags) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*")) return true;
+      if (tag.startsWith("W/")) tag = tag.substring(2);
+      for (String etag : etags) {
+        if (tag.equals(etag)) return true;
+      }
+    }
+    return false;
+  }
+
+  // null when the header is absent or "*" (no version to check against)
+  public static Tag parseIfMatch(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+    String tag = ifMatch.trim();
+    // If-Match uses strong comparison, so a weak or unquoted tag can never match
+    if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+      throw new PreconditionFailedException("If-Match must be a single strong ETag: " + ifMatch);
+    }
+    String value = tag.substring(1, tag.length() - 1);
+    int dot = value.indexOf('.');
+    try {
+      if (dot > 0) return new Tag(Long.parseLong(value.substring(0, dot)), Long.parseLong(value.substring(dot + 1)));
+    } catch (NumberFormatException e) {
+      // falls through
+    }
+    throw new PreconditionFailedException("If-Match does not match any version: " + ifMatch);
+  }
+}
@@ -0,0 +1,8 @@
+package com.dmdwyer.devstream.common;
+
+// An If-Match precondition did not hold, or a concurrent write won the race (HTTP 412)
+public class PreconditionFailedException extends RuntimeException {
+  public PreconditionFailedException(String message) {
+    super(message);
+  }
+}
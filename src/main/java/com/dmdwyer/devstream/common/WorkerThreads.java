@@ -0,0 +1,20 @@
+package com.dmdwyer.devstream.common;
+
+import java.util.concurrent.ThreadFactory;
+
+// Thread factories for the long-lived background workers (change tailer, exposure writer,
+// stream publisher, snapshot file writer). They follow spring.threads.virtual.enabled, like
+// Tomcat's request threads: virtual threads when it is on, daemon platform threads otherwise.
+public final class WorkerThreads {
+  private WorkerThreads() {}
+
+  public static ThreadFactory factory(String name, boolean virtual) {
+    return virtual ? Thread.ofVirtual().name(name).factory() : Thread.ofPlatform().name(name).daemon().factory();
+  }
+
+  public static Thread start(String name, boolean virtual, Runnable task) {
+    Thread t = factory(name, virtual).newThread(task);
+    t.start();
+    return t;
+  }
+}
@@ -3,24 +3,55 @@ package com.dmdwyer.devstream.controller;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.dmdwyer.devstream.common.AcceptEncoding;
+import com.dmdwyer.devstream.common.ETags;
+import com.dmdwyer.devstream.dto.BulkEvaluationRequest;
+import com.dmdwyer.devstream.dto.BulkEvaluationResponse;
+import com.dmdwyer.devstream.dto.FlagChanges;
 import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagImportResult;
+import com.dmdwyer.devstream.dto.FlagSummary;
+import com.dmdwyer.devstream.service.FlagDeltaService;
 import com.dmdwyer.devstream.service.FlagService;
 import com.dmdwyer.devstream.service.FlagEvaluationService;
+import com.dmdwyer.devstream.service.FlagTransferService;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotPayload;
+import com.dmdwyer.devstream.stream.FlagStreamPublisher;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/flags")
 public class FlagController {
+  private static final String NDJSON = "application/x-ndjson";
+
   private final FlagService service;
   private final FlagEvaluationService flagEvaluationService;
+  private final FlagStreamPublisher streamPublisher;
+  private final FlagTransferService transferService;
+  private final FlagSnapshotPayload snapshotPayload;
+  private final FlagDeltaService deltaService;
 
-  public FlagController(FlagService service, FlagEvaluationService flagEvaluationService) { 
+  public FlagController(FlagService service, FlagEvaluationService flagEvaluationService, FlagStreamPublisher streamPublisher,
+                        FlagTransferService transferService, FlagSnapshotPayload snapshotPayload, FlagDeltaService deltaService) {
     this.service = service;
     this.flagEvaluationService = flagEvaluationService;
+    this.streamPublisher = streamPublisher;
+    this.transferService = transferService;
+    this.snapshotPayload = snapshotPayload;
+    this.deltaService = deltaService;
   }
 
   @PostMapping
@@ -28,22 +59,97 @@ public class FlagController {
     return ResponseEntity.ok(service.create(dto));
   }
 
+  // Two listing modes:
+  //  - offset (default): ?page=&size=&sort= → Page, with an ETag; a matching If-None-Match
+  //    is answered with 304 from the summary page, and a miss loads the full rows reusing its
+  //    count, tagged with the ETag of the rows actually returned
+  //  - keyset: ?limit=N[&after=<nextCursor>] → FlagCursorPage ordered by flagKey, no count query
+  // view=summary returns FlagSummary (key, enabled, version) instead of full flags in either mode.
   @GetMapping
-  public Page<FlagDto> list(Pageable pageable) { return service.list(pageable); }
+  public ResponseEntity<?> list(Pageable pageable,
+      @RequestParam(required = false) String after,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(defaultValue = "full") String view,
+      WebRequest request) {
+    boolean summary = switch (view) {
+      case "full" -> false;
+      case "summary" -> true;
+      default -> throw new IllegalArgumentException("view must be 'full' or 'summary': " + view);
+    };
+    if (after != null || limit != null) {
+      int n = limit != null ? limit : pageable.getPageSize();
+      return ResponseEntity.ok(summary ? service.listSummariesAfter(after, n) : service.listAfter(after, n));
+    }
+    if (summary) return ResponseEntity.ok(service.listSummaries(pageable));
+    Page<FlagSummary> tags = service.listSummaries(pageable);
+    if (request.checkNotModified(FlagService.listETag(tags))) return null;
+    Page<FlagDto> page = service.list(pageable, tags.getTotalElements());
+    return ResponseEntity.ok().eTag(FlagService.listETag(page.map(FlagSummary::of))).body(page);
+  }
+
+  // SSE: full snapshot on connect, then upsert/delete events per committed change plus heartbeats
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream() { return streamPublisher.subscribe(); }
+
+  // Every flag in one response, for SDKs and edge proxies. The bytes (plain and gzipped) are
+  // built once per snapshot version; requests only pick one and write it out. Each coding has
+  // its own ETag, but both name the same flags, so either one in If-None-Match gets a 304.
+  @GetMapping(path = "/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<byte[]> snapshot(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    FlagSnapshotPayload.Payload payload = snapshotPayload.current();
+    boolean gzip = AcceptEncoding.allowsGzip(acceptEncoding);
+    boolean notModified = ETags.anyMatch(ifNoneMatch, payload.etag(), payload.gzipEtag());
+    var response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+        .eTag(gzip ? payload.gzipEtag() : payload.etag())
+        .cacheControl(CacheControl.noCache())
+        .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (notModified) return response.build();
+    response.contentType(MediaType.APPLICATION_JSON);
+    if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    return response.body(gzip ? payload.gzip() : payload.json());
+  }
+
+  // Delta sync: flags created, updated or deleted after ?since= (the previous response's next)
+  @GetMapping("/changes")
+  public ResponseEntity<FlagChanges> changes(@RequestParam long since) {
+    return ResponseEntity.ok(deltaService.since(since));
+  }
+
+  // Bulk NDJSON (one FlagDto per line), streamed in both directions
+  @PostMapping(path = "/import", consumes = {NDJSON, MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE})
+  public ResponseEntity<FlagImportResult> importFlags(InputStream body) throws IOException {
+    return ResponseEntity.ok(transferService.importNdjson(body));
+  }
+
+  @GetMapping(path = "/export", produces = NDJSON)
+  public ResponseEntity<StreamingResponseBody> exportFlags() {
+    StreamingResponseBody body = out -> transferService.exportNdjson(out);
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+  }
 
   @GetMapping("/{key}")
-  public ResponseEntity<FlagDto> get(@PathVariable String key) {
-    return service.get(key).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+  public ResponseEntity<FlagDto> get(@PathVariable String key, WebRequest request) {
+    ETags.Tag tag = service.tag(key).orElse(null);
+    if (tag == null) return ResponseEntity.notFound().build();
+    if (request.checkNotModified(ETags.of(tag))) return null;
+    return service.get(key)
+        .map(f -> ResponseEntity.ok().eTag(ETags.of(f)).body(f))
+        .orElse(ResponseEntity.notFound().build());
   }
 
+  // Writes honour If-Match: a stale ETag fails with 412 instead of overwriting someone else's change
   @PatchMapping("/{key}")
-  public ResponseEntity<FlagDto> update(@PathVariable String key, @RequestBody FlagDto patch) {
-    return ResponseEntity.ok(service.update(key, patch));
+  public ResponseEntity<FlagDto> update(@PathVariable String key, @RequestBody FlagDto patch,
+      @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    FlagDto updated = service.update(key, patch, ETags.parseIfMatch(ifMatch));
+    return ResponseEntity.ok().eTag(ETags.of(updated)).body(updated);
   }
 
   @DeleteMapping("/{key}")
-  public ResponseEntity<Void> delete(@PathVariable String key) {
-    service.delete(key);
+  public ResponseEntity<Void> delete(@PathVariable String key,
+      @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    service.delete(key, ETags.parseIfMatch(ifMatch));
     return ResponseEntity.noContent().build();
   }
 
@@ -59,6 +165,12 @@ public class FlagController {
     return ResponseEntity.ok(Map.of("key", key, "userId", userId, "variant", variant));
   }
 
+  // Bulk evaluate: every flag (or just req.keys) for one user in a single round trip
+  @PostMapping("/evaluate")
+  public ResponseEntity<BulkEvaluationResponse> evaluateAll(@Valid @RequestBody BulkEvaluationRequest req) {
+    return ResponseEntity.ok(service.evaluateAll(req.userId(), req.attributes(), req.keys()));
+  }
+
   @GetMapping("/flag-status")
   public String getFlagStatus(@RequestParam String flagKey, @RequestParam boolean enabled) {
     return flagEvaluationService.evaluateFlag(flagKey, enabled);
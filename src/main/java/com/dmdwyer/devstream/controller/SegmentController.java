@@ -0,0 +1,53 @@
+package com.dmdwyer.devstream.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.dmdwyer.devstream.dto.SegmentSummary;
+import com.dmdwyer.devstream.service.SegmentService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/segments")
+public class SegmentController {
+  private final SegmentService service;
+
+  public SegmentController(SegmentService service) {
+    this.service = service;
+  }
+
+  @GetMapping
+  public ResponseEntity<List<SegmentSummary>> list() {
+    return ResponseEntity.ok(service.list());
+  }
+
+  @GetMapping("/{key}")
+  public ResponseEntity<SegmentSummary> get(@PathVariable String key) {
+    return service.get(key).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+  }
+
+  // Replaces the members with the body: one user id per line, streamed
+  @PutMapping(path = "/{key}/members", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public ResponseEntity<SegmentSummary> replaceMembers(@PathVariable String key, InputStream body) throws IOException {
+    return ResponseEntity.ok(service.replaceMembers(key, body));
+  }
+
+  @GetMapping("/{key}/members/{userId}")
+  public ResponseEntity<Map<String,Object>> isMember(@PathVariable String key, @PathVariable String userId) {
+    return service.isMember(key, userId)
+        .map(member -> ResponseEntity.ok(Map.<String,Object>of("segment", key, "userId", userId, "member", member)))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  // Rejected with 400 while a flag still targets the segment
+  @DeleteMapping("/{key}")
+  public ResponseEntity<Void> delete(@PathVariable String key) {
+    service.delete(key);
+    return ResponseEntity.noContent().build();
+  }
+}
@@ -0,0 +1,126 @@
+package com.dmdwyer.devstream.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Where read-only connections come from when replicas are configured (see
+// ReplicaDataSourceConfig): a replica that is healthy, no more than flags.datasource.replica-max-lag
+// behind, and has replayed every write committed through this instance, round-robin; the
+// primary when none qualifies. A replica that refuses a connection is marked down and the read
+// fails over to the primary; ReplicaMonitor brings it back once a check passes.
+public class ReplicaDataSource extends AbstractDataSource {
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final long maxLagMillis;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Counter primaryReads;
+  private final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+  private volatile LongSupplier requiredSeq = () -> 0;
+
+  public record Status(String name, boolean healthy, long seq, long lagMillis, String lastError) {}
+
+  // Written by ReplicaMonitor; seq is the newest flag_changes row the replica has replayed.
+  // Replicas start out down, so nothing is read from them before the first check.
+  static final class Replica {
+    final String name;
+    final HikariDataSource dataSource;
+    final Counter reads;
+    final Counter failovers;
+    volatile boolean healthy;
+    volatile long seq = -1;
+    volatile long lagMillis;
+    volatile String lastError;
+
+    Replica(HikariDataSource dataSource, MeterRegistry meterRegistry) {
+      this.name = dataSource.getPoolName();
+      this.dataSource = dataSource;
+      this.reads = Counter.builder("flag.datasource.reads").tag("target", name)
+          .description("Read-only transactions by the database that served them").register(meterRegistry);
+      this.failovers = Counter.builder("flag.datasource.replica.failovers").tag("replica", name)
+          .description("Reads moved to the primary because the replica refused a connection").register(meterRegistry);
+      Gauge.builder("flag.datasource.replica.healthy", this, r -> r.healthy ? 1 : 0).tag("replica", name)
+          .description("1 while the replica passes its checks").register(meterRegistry);
+      TimeGauge.builder("flag.datasource.replica.lag", this, TimeUnit.MILLISECONDS, r -> r.lagMillis).tag("replica", name)
+          .description("How far the replica's change log is behind the primary's").register(meterRegistry);
+    }
+
+    void up(long seq, long lagMillis) {
+      this.seq = seq;
+      this.lagMillis = lagMillis;
+      this.lastError = null;
+      this.healthy = true;
+    }
+
+    void down(String error) {
+      this.healthy = false;
+      this.lastError = error;
+    }
+  }
+
+  public ReplicaDataSource(DataSource primary, List<HikariDataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+    this.primary = primary;
+    for (HikariDataSource r : replicas) this.replicas.add(new Replica(r, meterRegistry));
+    this.maxLagMillis = maxLag.toMillis();
+    this.primaryReads = Counter.builder("flag.datasource.reads").tag("target", "primary")
+        .description("Read-only transactions by the database that served them").register(meterRegistry);
+  }
+
+  // Read-your-writes: a replica only qualifies once it has replayed this seq
+  void requireSeq(LongSupplier seq) {
+    this.requiredSeq = seq;
+  }
+
+  List<Replica> replicas() { return replicas; }
+
+  public List<Status> statuses() {
+    return replicas.stream().map(r -> new Status(r.name, r.healthy, r.seq, r.lagMillis, r.lastError)).toList();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    long required = requiredSeq.getAsLong();
+    int n = replicas.size();
+    int start = next.getAndIncrement();
+    for (int i = 0; i < n; i++) {
+      Replica r = replicas.get(Math.floorMod(start + i, n));
+      if (!r.healthy || r.seq < required || r.lagMillis > maxLagMillis) continue;
+      try {
+        Connection c = r.dataSource.getConnection();
+        r.reads.increment();
+        return c;
+      } catch (SQLException e) {
+        r.down(e.getMessage());
+        r.failovers.increment();
+        logger.warn("Replica {} refused a connection, reading from the primary until it passes a check: {}", r.name, e.getMessage());
+      }
+    }
+    primaryReads.increment();
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+  }
+
+  void close() {
+    for (Replica r : replicas) r.dataSource.close();
+  }
+}
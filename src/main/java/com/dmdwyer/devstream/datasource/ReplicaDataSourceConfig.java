@@ -0,0 +1,80 @@
+package com.dmdwyer.devstream.datasource;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Read replicas, when flags.datasource.replicas lists their JDBC URLs. The application's
+// DataSource becomes a LazyConnectionDataSourceProxy over the usual Hikari pool: it fetches a
+// connection on the first statement, once the transaction is known, and takes it from
+// ReplicaDataSource for @Transactional(readOnly = true) work (flag list/get, export, segment
+// summaries) and from the primary for everything else. Work that has to see the latest
+// committed state (initial loads, change-log tailing, /flags/changes cursors) runs in
+// read-write transactions for that reason.
+@Configuration
+@ConditionalOnProperty(name = "flags.datasource.replicas")
+public class ReplicaDataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties, MeterRegistry meterRegistry,
+                                      @Value("${flags.datasource.replicas}") String urls,
+                                      @Value("${flags.datasource.replica-username:}") String username,
+                                      @Value("${flags.datasource.replica-password:}") String password,
+                                      @Value("${flags.datasource.replica-pool-size:10}") int poolSize,
+                                      @Value("${flags.datasource.replica-max-lag:5s}") Duration maxLag) {
+    List<HikariDataSource> replicas = new ArrayList<>();
+    for (String url : Arrays.stream(urls.split(",")).map(String::trim).filter(u -> !u.isEmpty()).toList()) {
+      HikariDataSource r = new HikariDataSource();
+      r.setPoolName("replica-" + replicas.size());
+      r.setJdbcUrl(url);
+      r.setDriverClassName(properties.determineDriverClassName());
+      r.setUsername(username.isBlank() ? properties.determineUsername() : username);
+      r.setPassword(username.isBlank() ? properties.determinePassword() : password);
+      r.setMaximumPoolSize(poolSize);
+      r.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+      r.setReadOnly(true);
+      // Start even if a replica is down; it is simply not used until it passes a check
+      r.setInitializationFailTimeout(-1);
+      r.setMetricRegistry(meterRegistry);
+      replicas.add(r);
+    }
+    return new ReplicaDataSource(primaryDataSource, replicas, maxLag, meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+    LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+    proxy.setReadOnlyDataSource(replicaDataSource);
+    return proxy;
+  }
+
+  @Bean
+  ReplicaMonitor replicaMonitor(ReplicaDataSource replicaDataSource, HikariDataSource primaryDataSource, FlagChangeLog changeLog,
+                                @Value("${flags.datasource.replica-check-interval:1s}") Duration interval,
+                                @Value("${flags.datasource.replica-check-timeout:2s}") Duration timeout,
+                                @Value("${flags.datasource.replica-max-lag:5s}") Duration maxLag,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    return new ReplicaMonitor(replicaDataSource, primaryDataSource, changeLog, interval, timeout, maxLag, virtualThreads);
+  }
+}
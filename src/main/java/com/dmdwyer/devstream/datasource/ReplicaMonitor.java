@@ -0,0 +1,104 @@
+package com.dmdwyer.devstream.datasource;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.common.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Checks every replica each flags.datasource.replica-check-interval. Lag is measured on the
+// flag_changes log, so it works the same on any database: each check reads the primary's
+// newest seq and keeps a short history of them; a replica's lag is how long ago the primary
+// first had a change the replica still hasn't replayed. A failed check (connection, timeout,
+// missing table) marks the replica down until one passes.
+//
+// Checks start once the application is ready, so startup (initial loads, seeding) always
+// reads the primary.
+public class ReplicaMonitor {
+  private static final String MAX_SEQ = "select coalesce(max(seq), 0) from flag_changes";
+
+  private final ReplicaDataSource replicas;
+  private final DataSource primary;
+  private final Duration interval;
+  private final int timeoutSeconds;
+  private final long historyNanos;
+  private final ScheduledExecutorService checker;
+  private final ArrayDeque<long[]> primarySeqs = new ArrayDeque<>(); // {nanoTime, seq}, checker thread only
+  private final Logger logger = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+  public ReplicaMonitor(ReplicaDataSource replicas, DataSource primary, FlagChangeLog changeLog,
+                        Duration interval, Duration timeout, Duration maxLag, boolean virtualThreads) {
+    this.replicas = replicas;
+    this.primary = primary;
+    this.interval = interval;
+    this.timeoutSeconds = (int) Math.max(1, timeout.toSeconds());
+    this.historyNanos = maxLag.toNanos() * 2;
+    this.checker = Executors.newSingleThreadScheduledExecutor(WorkerThreads.factory("replica-monitor", virtualThreads));
+    replicas.requireSeq(changeLog::lastCommittedSeq);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    checker.scheduleWithFixedDelay(this::check, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void check() {
+    long primarySeq;
+    try {
+      primarySeq = maxSeq(primary);
+    } catch (SQLException | RuntimeException e) {
+      logger.debug("Skipping replica check, the primary is unreachable: {}", e.getMessage());
+      return;
+    }
+    long now = System.nanoTime();
+    primarySeqs.addLast(new long[] {now, primarySeq});
+    while (primarySeqs.size() > 1 && now - primarySeqs.peekFirst()[0] > historyNanos) primarySeqs.pollFirst();
+    for (ReplicaDataSource.Replica r : replicas.replicas()) {
+      try {
+        long seq = maxSeq(r.dataSource);
+        if (!r.healthy && r.lastError != null) logger.info("Replica {} passed its check again", r.name);
+        r.up(seq, lagMillis(seq, now));
+      } catch (SQLException | RuntimeException e) {
+        if (r.healthy || r.lastError == null) logger.warn("Replica {} failed its check, reading from the primary: {}", r.name, e.getMessage());
+        r.down(e.getMessage());
+      }
+    }
+  }
+
+  // 0 when caught up; at least the age of the whole history when behind all of it
+  private long lagMillis(long replicaSeq, long now) {
+    for (long[] sample : primarySeqs) {
+      if (sample[1] > replicaSeq) return TimeUnit.NANOSECONDS.toMillis(now - sample[0]);
+    }
+    return 0;
+  }
+
+  private long maxSeq(DataSource ds) throws SQLException {
+    try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+      st.setQueryTimeout(timeoutSeconds);
+      try (ResultSet rs = st.executeQuery(MAX_SEQ)) {
+        rs.next();
+        return rs.getLong(1);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    checker.shutdownNow();
+    replicas.close();
+  }
+}
@@ -0,0 +1,14 @@
+package com.dmdwyer.devstream.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.Map;
+
+// keys is optional: when null or empty every flag is evaluated, and no exposures are recorded
+public record BulkEvaluationRequest(
+  @NotBlank String userId,
+  Map<String,String> attributes,
+  @Size(max = 10000) List<String> keys
+) {}
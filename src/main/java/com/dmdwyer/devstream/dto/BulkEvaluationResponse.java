@@ -0,0 +1,10 @@
+package com.dmdwyer.devstream.dto;
+
+import java.util.Map;
+
+// version is the snapshot every variant was evaluated against; unknown keys are omitted from variants
+public record BulkEvaluationResponse(
+  String userId,
+  long version,
+  Map<String,String> variants
+) {}
@@ -0,0 +1,12 @@
+package com.dmdwyer.devstream.dto;
+
+import java.util.List;
+
+// GET /flags/changes response. Apply upserted and deleted, then ask again with since=next.
+// resyncRequired: the changes can't be listed (no cursor, the cursor is older than the
+// retained log, or too much changed); download GET /flags/snapshot and continue from next.
+public record FlagChanges(long since, long next, boolean resyncRequired, List<FlagDelta> upserted, List<FlagTombstone> deleted) {
+  public static FlagChanges resync(long since, long next) {
+    return new FlagChanges(since, next, true, List.of(), List.of());
+  }
+}
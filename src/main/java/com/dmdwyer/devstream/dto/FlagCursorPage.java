@@ -0,0 +1,9 @@
+package com.dmdwyer.devstream.dto;
+
+import java.util.List;
+
+// One keyset page; pass nextCursor back as ?after= for the next one (null on the last page)
+public record FlagCursorPage<T>(
+  List<T> items,
+  String nextCursor
+) {}
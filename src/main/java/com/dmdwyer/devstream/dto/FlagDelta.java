@@ -0,0 +1,14 @@
+package com.dmdwyer.devstream.dto;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+
+import java.time.Instant;
+
+// A flag created or updated since the requested cursor, with the seq and time of its last write
+public record FlagDelta(long seq, Instant updatedAt, FlagDto flag) {
+  // JPQL constructor projection (see FlagRepository.findDeltas)
+  public FlagDelta(Long seq, Instant updatedAt, Long id, String flagKey, Boolean enabled, String rulesJson,
+                   String variantsJson, BucketingMode bucketing, Long version) {
+    this(seq, updatedAt, new FlagDto(id, flagKey, enabled, rulesJson, variantsJson, bucketing, version));
+  }
+}
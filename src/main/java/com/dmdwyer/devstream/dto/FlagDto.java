@@ -1,5 +1,6 @@
 package com.dmdwyer.devstream.dto;
 
+import com.dmdwyer.devstream.engine.BucketingMode;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -8,6 +9,12 @@ public record FlagDto(
   Long id,
   @NotBlank @Pattern(regexp = "^[a-z0-9_\\-\\.]+$") String flagKey,
   Boolean enabled,
-  @Size(max = 20000) String rulesJson,
-  @Size(max = 20000) String variantsJson
-) {}
+  @Size(max = 200000) @ValidRules String rulesJson,
+  @Size(max = 20000) String variantsJson,
+  BucketingMode bucketing,
+  Long version
+) {
+  public FlagDto(Long id, String flagKey, Boolean enabled, String rulesJson, String variantsJson) {
+    this(id, flagKey, enabled, rulesJson, variantsJson, null, null);
+  }
+}
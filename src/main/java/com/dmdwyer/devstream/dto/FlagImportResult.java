@@ -0,0 +1,11 @@
+package com.dmdwyer.devstream.dto;
+
+import java.util.List;
+
+// errors holds the first few rejected lines as "line N: reason"
+public record FlagImportResult(
+  int inserted,
+  int updated,
+  int rejected,
+  List<String> errors
+) {}
@@ -0,0 +1,13 @@
+package com.dmdwyer.devstream.dto;
+
+// Projection of a flag without its rules/variants
+public record FlagSummary(
+  Long id,
+  String flagKey,
+  boolean enabled,
+  Long version
+) {
+  public static FlagSummary of(FlagDto f) {
+    return new FlagSummary(f.id(), f.flagKey(), Boolean.TRUE.equals(f.enabled()), f.version());
+  }
+}
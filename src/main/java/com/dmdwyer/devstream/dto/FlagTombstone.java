@@ -0,0 +1,6 @@
+package com.dmdwyer.devstream.dto;
+
+import java.time.Instant;
+
+// A flag deleted (or renamed away from this key) since the requested cursor
+public record FlagTombstone(String flagKey, long seq, Instant deletedAt) {}
@@ -0,0 +1,10 @@
+package com.dmdwyer.devstream.dto;
+
+import java.time.Instant;
+
+// A segment's metadata; members are never returned
+public record SegmentSummary(
+  String segmentKey,
+  int memberCount,
+  Instant updatedAt
+) {}
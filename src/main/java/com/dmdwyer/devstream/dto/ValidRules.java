@@ -0,0 +1,19 @@
+package com.dmdwyer.devstream.dto;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// rulesJson must compile: known ops, well-formed values, valid regexes and versions
+@Target({ElementType.FIELD, ElementType.PARAMETER, ElementType.RECORD_COMPONENT})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ValidRulesValidator.class)
+public @interface ValidRules {
+  String message() default "invalid rules";
+  Class<?>[] groups() default {};
+  Class<? extends Payload>[] payload() default {};
+}
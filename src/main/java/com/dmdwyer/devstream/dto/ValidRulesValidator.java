@@ -0,0 +1,24 @@
+package com.dmdwyer.devstream.dto;
+
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class ValidRulesValidator implements ConstraintValidator<ValidRules, String> {
+  private static final FlagCompiler COMPILER = new FlagCompiler(new ObjectMapper());
+
+  @Override
+  public boolean isValid(String rulesJson, ConstraintValidatorContext context) {
+    try {
+      COMPILER.checkRules(rulesJson);
+      return true;
+    } catch (IllegalArgumentException e) {
+      // the compiler's reason, escaped so braces in it aren't read as message parameters
+      String reason = e.getMessage().replace("\\", "\\\\").replace("{", "\\{").replace("}", "\\}").replace("$", "\\$");
+      context.disableDefaultConstraintViolation();
+      context.buildConstraintViolationWithTemplate(reason).addConstraintViolation();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.dmdwyer.devstream.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+import com.dmdwyer.devstream.engine.EvaluationReason;
+
+// Append-only exposure log. Rows are inserted in JDBC batches by JdbcExposureSink;
+// the entity exists so the table is managed like the rest of the schema.
+@Entity
+@Table(name = "exposures", indexes = @Index(name = "ix_exposure_flag_time", columnList = "flagKey, exposedAt"))
+public class Exposure {
+  @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false)
+  private Instant exposedAt;
+
+  @Column(nullable = false)
+  private String flagKey;
+
+  @Column(nullable = false)
+  private String variant;
+
+  @Column(nullable = false)
+  private String userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(length = 16)
+  private EvaluationReason reason;
+
+  protected Exposure() {}
+
+  public Long getId() { return id; }
+  public Instant getExposedAt() { return exposedAt; }
+  public String getFlagKey() { return flagKey; }
+  public String getVariant() { return variant; }
+  public String getUserId() { return userId; }
+  public EvaluationReason getReason() { return reason; }
+}
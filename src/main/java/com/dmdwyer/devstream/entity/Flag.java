@@ -1,10 +1,15 @@
 package com.dmdwyer.devstream.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.Instant;
 
+import com.dmdwyer.devstream.engine.BucketingMode;
+
 @Entity
-@Table(name = "flags", indexes = @Index(name = "ux_flag_key", columnList = "flagKey", unique = true))
+@Table(name = "flags", indexes = {
+    @Index(name = "ux_flag_key", columnList = "flagKey", unique = true),
+    @Index(name = "ix_flag_change_seq", columnList = "changeSeq")})
 public class Flag {
   @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -21,9 +26,22 @@ public class Flag {
   @Column(columnDefinition = "TEXT")
   private String rulesJson;        // e.g. [{"if":"country=IE","then":"A"}]
 
+  @Enumerated(EnumType.STRING)
+  @Column(length = 16)
+  private BucketingMode bucketing; // null on rows created before salted bucketing → LEGACY
+
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private Long version;            // optimistic lock, exposed in the ETag with the id
+
   @Column(nullable = false, updatable = false)
   private Instant createdAt = Instant.now();
 
+  private Long changeSeq;          // flag_changes seq of the last write; null on rows written before it existed
+
+  private Instant updatedAt;
+
   // getters/setters
   public Long getId() { return id; }
   public String getFlagKey() { return flagKey; }
@@ -34,5 +52,15 @@ public class Flag {
   public void setVariantsJson(String variantsJson) { this.variantsJson = variantsJson; }
   public String getRulesJson() { return rulesJson; }
   public void setRulesJson(String rulesJson) { this.rulesJson = rulesJson; }
+  public BucketingMode getBucketing() { return bucketing; }
+  public void setBucketing(BucketingMode bucketing) { this.bucketing = bucketing; }
+  public Long getVersion() { return version; }
   public Instant getCreatedAt() { return createdAt; }
+  public Long getChangeSeq() { return changeSeq; }
+  public Instant getUpdatedAt() { return updatedAt; }
+
+  public void markChanged(FlagChange change) {
+    this.changeSeq = change.getSeq();
+    this.updatedAt = change.getChangedAt();
+  }
 }
@@ -0,0 +1,49 @@
+package com.dmdwyer.devstream.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Outbox row appended in the same transaction as every flag write. seq is the
+// monotonic position other instances tail (see changes.FlagChangeTailer).
+@Entity
+@Table(name = "flag_changes")
+public class FlagChange {
+  // RELOAD: bulk write, flagKey is "*". SEGMENT: a segment's members were replaced or it
+  // was deleted, flagKey holds the segment key.
+  public enum Type { UPSERT, DELETE, RELOAD, SEGMENT }
+
+  @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long seq;
+
+  @Column(nullable = false)
+  private String flagKey;
+
+  private String previousKey;      // set when an update renamed the flag
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Type type;
+
+  @Column(nullable = false, length = 64)
+  private String origin;           // instance that made the change
+
+  @Column(nullable = false)
+  private Instant changedAt;
+
+  protected FlagChange() {}
+
+  public FlagChange(String flagKey, String previousKey, Type type, String origin, Instant changedAt) {
+    this.flagKey = flagKey;
+    this.previousKey = previousKey;
+    this.type = type;
+    this.origin = origin;
+    this.changedAt = changedAt;
+  }
+
+  public Long getSeq() { return seq; }
+  public String getFlagKey() { return flagKey; }
+  public String getPreviousKey() { return previousKey; }
+  public Type getType() { return type; }
+  public String getOrigin() { return origin; }
+  public Instant getChangedAt() { return changedAt; }
+}
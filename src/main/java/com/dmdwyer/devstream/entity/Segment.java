@@ -0,0 +1,40 @@
+package com.dmdwyer.devstream.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// A named set of user ids that rules can target with {"segment":key}. Only the metadata
+// lives here; the members are stored as sorted hash chunks in segment_chunks and are
+// read and written with JDBC by segment.SegmentStore / service.SegmentService.
+@Entity
+@Table(name = "segments", indexes = @Index(name = "ux_segment_key", columnList = "segmentKey", unique = true))
+public class Segment {
+  @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false, unique = true)
+  private String segmentKey;       // e.g. "beta_testers"
+
+  @Column(nullable = false)
+  private int memberCount;         // distinct members across all chunks
+
+  @Column(nullable = false)
+  private Instant updatedAt;
+
+  @Column(nullable = false, updatable = false)
+  private Instant createdAt = Instant.now();
+
+  protected Segment() {}
+
+  public Segment(String segmentKey) {
+    this.segmentKey = segmentKey;
+  }
+
+  public Long getId() { return id; }
+  public String getSegmentKey() { return segmentKey; }
+  public int getMemberCount() { return memberCount; }
+  public void setMemberCount(int memberCount) { this.memberCount = memberCount; }
+  public Instant getUpdatedAt() { return updatedAt; }
+  public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+  public Instant getCreatedAt() { return createdAt; }
+}
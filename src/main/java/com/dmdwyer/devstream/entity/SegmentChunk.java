@@ -0,0 +1,25 @@
+package com.dmdwyer.devstream.entity;
+
+import jakarta.persistence.*;
+
+// Up to SegmentStore.CHUNK_HASHES member hashes of a segment, as big-endian longs. Chunks
+// are numbered in hash order, so concatenating them gives the sorted membership array.
+// Mapped for the schema only; rows are written and read through JDBC.
+@Entity
+@Table(name = "segment_chunks",
+    uniqueConstraints = @UniqueConstraint(name = "ux_segment_chunk", columnNames = {"segmentId", "chunkNo"}))
+public class SegmentChunk {
+  @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false)
+  private Long segmentId;
+
+  @Column(nullable = false)
+  private int chunkNo;
+
+  @Column(nullable = false, length = 8 * 65536)
+  private byte[] hashes;
+
+  protected SegmentChunk() {}
+}
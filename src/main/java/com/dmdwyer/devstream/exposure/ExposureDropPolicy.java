@@ -0,0 +1,7 @@
+package com.dmdwyer.devstream.exposure;
+
+// What evaluate() does when the exposure buffer is full
+public enum ExposureDropPolicy {
+  DROP_NEWEST, // discard the incoming event immediately; evaluation latency is never affected
+  WAIT         // retry for up to flags.exposures.offer-timeout, then discard
+}
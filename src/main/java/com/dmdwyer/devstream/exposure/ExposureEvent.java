@@ -0,0 +1,14 @@
+package com.dmdwyer.devstream.exposure;
+
+import com.dmdwyer.devstream.engine.EvaluationReason;
+
+import java.time.Instant;
+
+// One user seeing one variant of one flag
+public record ExposureEvent(
+  Instant exposedAt,
+  String flagKey,
+  String variant,
+  String userId,
+  EvaluationReason reason
+) {}
@@ -0,0 +1,142 @@
+package com.dmdwyer.devstream.exposure;
+
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.engine.EvaluationReason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Non-blocking exposure log. record() runs on the evaluation path and only offers to a
+// lock-free ring buffer; one worker thread drains it in batches to every ExposureSink.
+// A batch is written once it reaches batch-size or its oldest event is flush-interval old.
+@Component
+public class ExposureRecorder {
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private final List<ExposureSink> sinks;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final ExposureDropPolicy dropPolicy;
+  private final long offerTimeoutNanos;
+  private final ExposureRingBuffer<ExposureEvent> buffer;
+  private final LongAdder dropped = new LongAdder();
+  private final List<Counter> written = new ArrayList<>();
+  private final List<Counter> failed = new ArrayList<>();
+  private final Thread worker;
+  private volatile boolean running = true;
+  private final Logger logger = LoggerFactory.getLogger(ExposureRecorder.class);
+
+  public ExposureRecorder(List<ExposureSink> sinks, MeterRegistry meterRegistry,
+                          @Value("${flags.exposures.enabled:true}") boolean enabled,
+                          @Value("${flags.exposures.capacity:65536}") int capacity,
+                          @Value("${flags.exposures.batch-size:500}") int batchSize,
+                          @Value("${flags.exposures.flush-interval:1s}") Duration flushInterval,
+                          @Value("${flags.exposures.drop-policy:DROP_NEWEST}") ExposureDropPolicy dropPolicy,
+                          @Value("${flags.exposures.offer-timeout:5ms}") Duration offerTimeout,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    if (batchSize < 1) throw new IllegalArgumentException("flags.exposures.batch-size must be positive: " + batchSize);
+    this.sinks = List.copyOf(sinks);
+    this.enabled = enabled && !sinks.isEmpty();
+    this.batchSize = batchSize;
+    this.flushIntervalNanos = flushInterval.toNanos();
+    this.dropPolicy = dropPolicy;
+    this.offerTimeoutNanos = offerTimeout.toNanos();
+    this.buffer = new ExposureRingBuffer<>(capacity);
+    Gauge.builder("flag.exposures.queue.depth", buffer, ExposureRingBuffer::size)
+        .description("Exposure events waiting to be written")
+        .register(meterRegistry);
+    FunctionCounter.builder("flag.exposures.dropped", dropped, LongAdder::sum)
+        .description("Exposure events discarded because the buffer was full")
+        .register(meterRegistry);
+    for (ExposureSink sink : this.sinks) {
+      written.add(Counter.builder("flag.exposures.written").tag("sink", sink.name())
+          .description("Exposure events written").register(meterRegistry));
+      failed.add(Counter.builder("flag.exposures.failed").tag("sink", sink.name())
+          .description("Exposure events lost to sink errors").register(meterRegistry));
+    }
+    if (this.enabled) {
+      worker = WorkerThreads.start("flag-exposure-writer", virtualThreads, this::drainLoop);
+    } else {
+      worker = null;
+    }
+  }
+
+  public boolean enabled() { return enabled; }
+
+  public void record(String flagKey, String variant, String userId, EvaluationReason reason) {
+    if (!enabled || !running) return;
+    ExposureEvent e = new ExposureEvent(Instant.now(), flagKey, variant, userId, reason);
+    if (buffer.offer(e)) return;
+    if (dropPolicy == ExposureDropPolicy.WAIT) {
+      long deadline = System.nanoTime() + offerTimeoutNanos;
+      // Virtual threads aren't time-sliced: spinning would hold the carrier (and starve the
+      // writer if it is virtual too), so give it up between attempts instead
+      boolean virtual = Thread.currentThread().isVirtual();
+      while (System.nanoTime() - deadline < 0) {
+        if (virtual) Thread.yield(); else Thread.onSpinWait();
+        if (buffer.offer(e)) return;
+      }
+    }
+    dropped.increment();
+  }
+
+  private void drainLoop() {
+    List<ExposureEvent> batch = new ArrayList<>(batchSize);
+    long flushDeadline = 0;
+    while (running || buffer.size() > 0 || !batch.isEmpty()) {
+      boolean wasEmpty = batch.isEmpty();
+      buffer.drainTo(batch, batchSize - batch.size());
+      if (wasEmpty && !batch.isEmpty()) flushDeadline = System.nanoTime() + flushIntervalNanos;
+      if (batch.size() >= batchSize || (!batch.isEmpty() && (!running || System.nanoTime() - flushDeadline >= 0))) {
+        write(batch);
+        batch.clear();
+      } else {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  // A failing sink loses this batch but never blocks the others or the buffer
+  private void write(List<ExposureEvent> batch) {
+    for (int i = 0; i < sinks.size(); i++) {
+      try {
+        sinks.get(i).write(batch);
+        written.get(i).increment(batch.size());
+      } catch (Exception ex) {
+        failed.get(i).increment(batch.size());
+        logger.warn("Exposure sink {} failed to write {} events", sinks.get(i).name(), batch.size(), ex);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    if (worker != null) {
+      LockSupport.unpark(worker);
+      worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    for (ExposureSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (Exception ex) {
+        logger.warn("Failed to close exposure sink {}", sink.name(), ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.dmdwyer.devstream.exposure;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free multi-producer, single-consumer ring buffer (Vyukov's sequence-per-slot
+// scheme). Producers claim a slot with one CAS on tail and publish it by bumping the slot's
+// sequence; the consumer never contends with them.
+public final class ExposureRingBuffer<E> {
+  private final int mask;
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong(); // written only by the consumer
+
+  public ExposureRingBuffer(int capacity) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two >= 2: " + capacity);
+    }
+    this.mask = capacity - 1;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) sequences.set(i, i);
+  }
+
+  public int capacity() { return mask + 1; }
+
+  public int size() {
+    return (int) Math.max(0, Math.min(capacity(), tail.get() - head.get()));
+  }
+
+  // false when the buffer is full
+  public boolean offer(E e) {
+    long pos = tail.get();
+    while (true) {
+      int idx = (int) pos & mask;
+      long diff = sequences.getAcquire(idx) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          slots.setPlain(idx, e);
+          sequences.setRelease(idx, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false; // the consumer hasn't freed this slot yet
+      } else {
+        pos = tail.get(); // another producer claimed it
+      }
+    }
+  }
+
+  // Single consumer only. Moves up to max events into out and returns how many were moved.
+  public int drainTo(List<? super E> out, int max) {
+    long pos = head.get();
+    int n = 0;
+    while (n < max) {
+      int idx = (int) pos & mask;
+      if (sequences.getAcquire(idx) != pos + 1) break; // not yet published
+      out.add(slots.getPlain(idx));
+      slots.setPlain(idx, null);
+      sequences.setRelease(idx, pos + mask + 1);
+      pos++;
+      n++;
+    }
+    head.lazySet(pos);
+    return n;
+  }
+}
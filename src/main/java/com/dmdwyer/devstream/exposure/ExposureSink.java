@@ -0,0 +1,13 @@
+package com.dmdwyer.devstream.exposure;
+
+import java.util.List;
+
+// Destination for drained exposure batches. Called only from the recorder's worker thread.
+public interface ExposureSink extends AutoCloseable {
+  String name();
+
+  void write(List<ExposureEvent> batch) throws Exception;
+
+  @Override
+  default void close() throws Exception {}
+}
@@ -0,0 +1,38 @@
+package com.dmdwyer.devstream.exposure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// One JDBC batch per drained batch into the exposures table (see entity.Exposure).
+// On Postgres, reWriteBatchedInserts=true turns the batch into multi-row inserts. Opt-in:
+// it turns evaluation traffic into inserts on the shared pool, and nothing prunes the table.
+@Component
+@ConditionalOnProperty(name = "flags.exposures.jdbc.enabled", havingValue = "true")
+public class JdbcExposureSink implements ExposureSink {
+  private static final String INSERT =
+      "insert into exposures (exposed_at, flag_key, variant, user_id, reason) values (?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbc;
+
+  public JdbcExposureSink(JdbcTemplate jdbc) {
+    this.jdbc = jdbc;
+  }
+
+  @Override
+  public String name() { return "jdbc"; }
+
+  @Override
+  public void write(List<ExposureEvent> batch) {
+    jdbc.batchUpdate(INSERT, batch, batch.size(), (ps, e) -> {
+      ps.setTimestamp(1, Timestamp.from(e.exposedAt()));
+      ps.setString(2, e.flagKey());
+      ps.setString(3, e.variant());
+      ps.setString(4, e.userId());
+      ps.setString(5, e.reason().name());
+    });
+  }
+}
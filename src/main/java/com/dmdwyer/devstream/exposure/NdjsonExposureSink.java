@@ -0,0 +1,81 @@
+package com.dmdwyer.devstream.exposure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Rolling newline-delimited JSON files: exposures-<yyyyMMdd>-<n>.ndjson in flags.exposures.ndjson.dir.
+// A new file starts at each UTC day and whenever the current one passes max-file-size.
+@Component
+@ConditionalOnProperty(name = "flags.exposures.ndjson.dir")
+public class NdjsonExposureSink implements ExposureSink {
+  private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+  private final ObjectWriter writer;
+  private final Path dir;
+  private final long maxFileBytes;
+  private OutputStream out;
+  private LocalDate day;
+  private int part;
+  private long bytes;
+
+  public NdjsonExposureSink(ObjectMapper om,
+                            @Value("${flags.exposures.ndjson.dir}") Path dir,
+                            @Value("${flags.exposures.ndjson.max-file-size:67108864}") long maxFileBytes) {
+    this.writer = om.writer().withRootValueSeparator("\n");
+    this.dir = dir;
+    this.maxFileBytes = maxFileBytes;
+  }
+
+  @Override
+  public String name() { return "ndjson"; }
+
+  @Override
+  public void write(List<ExposureEvent> batch) throws IOException {
+    rollIfNeeded();
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(batch.size() * 160);
+    try (SequenceWriter w = writer.writeValues(buf)) {
+      w.writeAll(batch);
+    }
+    buf.write('\n');
+    buf.writeTo(out);
+    out.flush();
+    bytes += buf.size();
+  }
+
+  private void rollIfNeeded() throws IOException {
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    if (out != null && today.equals(day) && bytes < maxFileBytes) return;
+    close();
+    Files.createDirectories(dir);
+    if (!today.equals(day)) { day = today; part = 0; }
+    Path file;
+    do {
+      file = dir.resolve("exposures-" + DAY.format(day) + "-" + part++ + ".ndjson");
+    } while (Files.exists(file) && Files.size(file) >= maxFileBytes);
+    out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    bytes = Files.size(file);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+    }
+  }
+}
@@ -1,24 +1,35 @@
 package com.dmdwyer.devstream.flag;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
 
-import com.dmdwyer.devstream.entity.Flag;
+import com.dmdwyer.devstream.dto.FlagDto;
 import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.service.FlagService;
 
 @Configuration
 public class FlagSeed {
+  private static final Logger logger = LoggerFactory.getLogger(FlagSeed.class);
+
   @Bean
-  CommandLineRunner seed(FlagRepository repo) {
+  CommandLineRunner seed(FlagRepository repo, FlagService service) {
     return args -> {
-      if (repo.count() == 0) {
-        Flag f = new Flag();
-        f.setFlagKey("homepage_banner");
-        f.setEnabled(true);
-        f.setVariantsJson("{\"A\":50,\"B\":50}");
-        f.setRulesJson("[{\"if\":\"country=IE\",\"then\":\"A\"},{\"if\":\"plan=premium\",\"then\":\"B\"}]");
-        repo.save(f);
+      try {
+        if (repo.count() == 0) {
+          // Seed through the service so the flag is published to the evaluation snapshot
+          service.create(new FlagDto(null, "homepage_banner", true,
+              "[{\"if\":\"country=IE\",\"then\":\"A\"},{\"if\":\"plan=premium\",\"then\":\"B\"}]",
+              "{\"A\":50,\"B\":50}"));
+        }
+      } catch (DataAccessException | TransactionException e) {
+        // A runner that throws aborts startup; an instance booting from the snapshot file during
+        // a database outage must still come up, and a database that has flags needs no seed
+        logger.warn("Skipping flag seed, database unreachable: {}", e.getMessage());
       }
     };
   }
@@ -0,0 +1,129 @@
+package com.dmdwyer.devstream.flag;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagImportResult;
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.service.FlagTransferService;
+import com.dmdwyer.devstream.service.SegmentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Synthetic dataset for the k6 load tests (src/test/k6/load-*.js): flags.seed.count flags named
+// load_00000.. plus one segment, written through the NDJSON import so thousands of flags take
+// a few batches. The contents come from a fixed random seed, so every run against a fresh
+// database sees the same flags. The shape of flag i is picked by i % 20, so the scripts know
+// which flags are plain rollouts (load-mixed.js PATCHes those):
+//   0-7    percentage rollout, no rules
+//   8-10   country/plan rules in front of a rollout
+//   11     an `in` list of hundreds of account ids
+//   12-13  20-40 per-tenant rules (indexed, see RuleIndex)
+//   14-15  semver and numeric conditions combined with and/or
+//   16     segment rule; 17 prerequisite on a rollout; 18-19 disabled
+@Configuration
+@Profile("loadtest")
+public class LoadTestSeed {
+  private static final String SEGMENT = "load_beta";
+  private static final String[] COUNTRIES = {"IE", "GB", "FR", "DE", "ES", "IT", "NL", "PL", "US", "CA", "BR", "IN", "JP", "AU"};
+  private static final String[] PLANS = {"free", "pro", "premium", "enterprise"};
+
+  private final Logger logger = LoggerFactory.getLogger(LoadTestSeed.class);
+
+  @Bean
+  CommandLineRunner loadTestData(FlagRepository repo, FlagTransferService transfer, SegmentService segments, ObjectMapper om,
+                                 @Value("${flags.seed.count:5000}") int count,
+                                 @Value("${flags.seed.segment-members:100000}") int segmentMembers,
+                                 @Value("${flags.seed.random-seed:42}") long seed) {
+    return args -> {
+      if (count <= 0 || repo.existsByFlagKey(key(count - 1))) return;
+      long start = System.nanoTime();
+      // Every other user id up to 2 * segmentMembers, so about half of the k6 users are members
+      StringBuilder members = new StringBuilder(segmentMembers * 12);
+      for (int i = 0; i < segmentMembers; i++) members.append("user-").append(i * 2).append('\n');
+      segments.replaceMembers(SEGMENT, new ByteArrayInputStream(members.toString().getBytes(StandardCharsets.UTF_8)));
+
+      SplittableRandom rnd = new SplittableRandom(seed);
+      ByteArrayOutputStream ndjson = new ByteArrayOutputStream(count * 400);
+      for (int i = 0; i < count; i++) {
+        om.writeValue(ndjson, flag(i, rnd));
+        ndjson.write('\n');
+      }
+      FlagImportResult result = transfer.importNdjson(new ByteArrayInputStream(ndjson.toByteArray()));
+      logger.info("Seeded {} load-test flags ({} rejected) and segment {} with {} members in {} ms",
+          result.inserted() + result.updated(), result.rejected(), SEGMENT, segmentMembers, (System.nanoTime() - start) / 1_000_000);
+    };
+  }
+
+  static String key(int i) {
+    return String.format("load_%05d", i);
+  }
+
+  private static FlagDto flag(int i, SplittableRandom rnd) {
+    int shape = i % 20;
+    String rules = switch (shape) {
+      case 8, 9, 10 -> "[" + countryRule(rnd) + ",{\"if\":\"plan=" + pick(rnd, PLANS) + "\",\"then\":\"B\"}]";
+      case 11 -> "[{\"when\":{\"attr\":\"account\",\"op\":\"in\",\"values\":" + accounts(rnd) + "},\"then\":\"B\"}," + countryRule(rnd) + "]";
+      case 12, 13 -> tenantRules(rnd);
+      case 14, 15 -> "[{\"when\":{\"and\":[{\"attr\":\"app_version\",\"op\":\"semver_gte\",\"value\":\"2." + rnd.nextInt(10) + ".0\"},"
+          + "{\"or\":[{\"attr\":\"plan\",\"op\":\"eq\",\"value\":\"" + pick(rnd, PLANS) + "\"},"
+          + "{\"attr\":\"age\",\"op\":\"gt\",\"value\":" + (18 + rnd.nextInt(40)) + "}]}]},\"then\":\"B\"}]";
+      case 16 -> "[{\"segment\":\"" + SEGMENT + "\",\"then\":\"B\"}," + countryRule(rnd) + "]";
+      // Depends on a plain rollout in the same block of 20, which is always seeded first
+      case 17 -> "[{\"when\":{\"flag\":\"" + key(i - 17 + rnd.nextInt(8)) + "\",\"value\":\"B\"},\"then\":\"B\"}]";
+      default -> null;
+    };
+    return new FlagDto(null, key(i), shape < 18, rules, rollout(rnd), BucketingMode.MURMUR3, null);
+  }
+
+  private static String rollout(SplittableRandom rnd) {
+    return switch (rnd.nextInt(4)) {
+      case 0 -> "{\"A\":100}";
+      case 1 -> "{\"A\":50,\"B\":50}";
+      case 2 -> {
+        int a = 1 + rnd.nextInt(99);
+        yield "{\"A\":" + a + ",\"B\":" + (100 - a) + "}";
+      }
+      default -> "{\"A\":34,\"B\":33,\"C\":33}";
+    };
+  }
+
+  private static String countryRule(SplittableRandom rnd) {
+    List<String> countries = new ArrayList<>();
+    for (String c : COUNTRIES) if (rnd.nextInt(3) == 0) countries.add("\"" + c + "\"");
+    if (countries.isEmpty()) countries.add("\"IE\"");
+    return "{\"when\":{\"attr\":\"country\",\"op\":\"in\",\"values\":" + countries + "},\"then\":\"A\"}";
+  }
+
+  private static String accounts(SplittableRandom rnd) {
+    List<String> ids = new ArrayList<>();
+    for (int n = 200 + rnd.nextInt(600); n > 0; n--) ids.add("\"acct-" + rnd.nextInt(100_000) + "\"");
+    return ids.toString();
+  }
+
+  // Per-customer overrides: one equality rule per tenant
+  private static String tenantRules(SplittableRandom rnd) {
+    StringBuilder rules = new StringBuilder("[");
+    for (int t = 0, n = 20 + rnd.nextInt(21); t < n; t++) {
+      if (t > 0) rules.append(',');
+      rules.append("{\"if\":\"tenant=t-").append(rnd.nextInt(500)).append("\",\"then\":\"").append(t % 2 == 0 ? "A" : "B").append("\"}");
+    }
+    return rules.append(']').toString();
+  }
+
+  private static String pick(SplittableRandom rnd, String[] values) {
+    return values[rnd.nextInt(values.length)];
+  }
+}
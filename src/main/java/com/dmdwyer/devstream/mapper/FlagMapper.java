@@ -9,7 +9,9 @@ import com.dmdwyer.devstream.entity.Flag;
 public interface FlagMapper {
   @Mapping(target = "id", ignore = true)
   @Mapping(target = "createdAt", ignore = true)
+  @Mapping(target = "version", ignore = true)
   @Mapping(target = "enabled", source = "enabled", defaultValue = "false")
+  @Mapping(target = "bucketing", source = "bucketing", defaultValue = "MURMUR3")
   Flag toEntity(FlagDto dto);
 
   FlagDto toDto(Flag entity);
@@ -17,6 +19,7 @@ public interface FlagMapper {
   @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
   @Mapping(target = "id", ignore = true)
   @Mapping(target = "createdAt", ignore = true)
+  @Mapping(target = "version", ignore = true)
   @Mapping(target = "enabled", ignore = true)
   void updateEntity(@MappingTarget Flag target, FlagDto patch);
   
@@ -0,0 +1,140 @@
+package com.dmdwyer.devstream.metrics;
+
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.EvaluationReason;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// flag.evaluations{flag,variant,reason}. The hot path is a map read plus a LongAdder
+// increment: each compiled plan is bound once to an array of adders indexed by outcome,
+// and LongAdder stripes contended increments across cells instead of one cache line.
+// Micrometer only reads the sums at scrape time via FunctionCounter. A deleted or renamed
+// flag's binding, series and tagged-flag slot are released, so key churn can't grow memory
+// or use up max-flags. An evaluation still running on an older snapshot after that is counted
+// under _other instead of binding the flag's series again.
+@Component
+public class FlagEvaluationMetrics {
+  static final String OTHER = "_other";     // flags/variants past the cardinality limits
+  static final String UNKNOWN = "_unknown"; // keys that don't exist are caller-supplied, so never a tag
+
+  private final MeterRegistry registry;
+  private final int maxFlags;
+  private final int maxVariantsPerFlag;
+  private final Map<String, Binding> bindings = new ConcurrentHashMap<>();
+  private final Map<Series, LongAdder> series = new ConcurrentHashMap<>();
+  private final Set<String> taggedFlags = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger taggedCount = new AtomicInteger(); // reserved before a key joins taggedFlags
+  private final LongAdder notFound;
+  private volatile FlagSnapshot snapshot; // null until the first change, when every key counts as live
+
+  private record Binding(CompiledFlag plan, LongAdder[] outcomes) {}
+  private record Series(String flag, String variant, EvaluationReason reason) {}
+
+  public FlagEvaluationMetrics(MeterRegistry registry,
+                               @Value("${flags.metrics.max-flags:1000}") int maxFlags,
+                               @Value("${flags.metrics.max-variants-per-flag:20}") int maxVariantsPerFlag) {
+    this.registry = registry;
+    this.maxFlags = maxFlags;
+    this.maxVariantsPerFlag = maxVariantsPerFlag;
+    this.notFound = adder(new Series(UNKNOWN, "none", EvaluationReason.NOT_FOUND));
+  }
+
+  public void record(CompiledFlag plan, int outcome) {
+    Binding b = bindings.get(plan.key());
+    if (b == null || b.plan() != plan) b = bind(plan);
+    b.outcomes()[outcome].increment();
+  }
+
+  public void recordNotFound() {
+    notFound.increment();
+  }
+
+  // Called under the snapshot store's write lock, once per change
+  @EventListener
+  public void onSnapshotChanged(FlagSnapshotChangedEvent event) {
+    // Set before evicting, so a bind that runs after an eviction sees the key is gone
+    snapshot = event.snapshot();
+    if (event.isReload()) {
+      Set<String> gone = new HashSet<>(taggedFlags);
+      gone.addAll(bindings.keySet());
+      gone.removeIf(event.snapshot().flags()::containsKey);
+      gone.forEach(this::evict);
+    } else if (event.removedKey() != null) {
+      evict(event.removedKey());
+    }
+  }
+
+  // Runs once per plan (i.e. after each change to the flag), not per evaluation. compute()
+  // and evict()'s remove() lock the same key, so a binding either sees the new snapshot and
+  // stays unbound, or is made first and then evicted.
+  private Binding bind(CompiledFlag plan) {
+    Binding b = bindings.compute(plan.key(), (key, old) -> {
+      if (old != null && old.plan() == plan) return old;
+      return isLive(key) ? new Binding(plan, outcomesFor(plan, tag(key) ? key : OTHER)) : null;
+    });
+    return b != null ? b : new Binding(plan, outcomesFor(plan, OTHER));
+  }
+
+  private boolean isLive(String key) {
+    FlagSnapshot current = snapshot;
+    return current == null || current.flags().containsKey(key);
+  }
+
+  // Reserves a tagged-flag slot first, so concurrent binds of different keys can't overshoot max-flags
+  private boolean tag(String key) {
+    if (taggedFlags.contains(key)) return true;
+    int n;
+    do {
+      n = taggedCount.get();
+      if (n >= maxFlags) return false;
+    } while (!taggedCount.compareAndSet(n, n + 1));
+    taggedFlags.add(key);
+    return true;
+  }
+
+  private LongAdder[] outcomesFor(CompiledFlag plan, String flag) {
+    Set<String> variants = new HashSet<>();
+    LongAdder[] outcomes = new LongAdder[plan.outcomeCount()];
+    for (int i = 0; i < outcomes.length; i++) {
+      String variant = plan.variantOf(i);
+      if (!variants.contains(variant)) {
+        if (variants.size() >= maxVariantsPerFlag) variant = OTHER;
+        else variants.add(variant);
+      }
+      outcomes[i] = adder(new Series(flag, variant, plan.reasonOf(i)));
+    }
+    return outcomes;
+  }
+
+  // A flag folded into _other only has its binding; its counts stay in the shared series
+  private void evict(String key) {
+    bindings.remove(key);
+    if (!taggedFlags.contains(key)) return;
+    series.keySet().removeIf(s -> s.flag().equals(key));
+    for (Meter m : registry.find("flag.evaluations").tag("flag", key).meters()) registry.remove(m);
+    if (taggedFlags.remove(key)) taggedCount.decrementAndGet();
+  }
+
+  // Series outlive plans, so counts keep accumulating across edits and reloads
+  private LongAdder adder(Series s) {
+    return series.computeIfAbsent(s, k -> {
+      LongAdder adder = new LongAdder();
+      FunctionCounter.builder("flag.evaluations", adder, LongAdder::sum)
+          .description("Flag evaluations by flag, variant and reason")
+          .tags("flag", k.flag(), "variant", k.variant(), "reason", k.reason().name())
+          .register(registry);
+      return adder;
+    });
+  }
+}
@@ -0,0 +1,36 @@
+package com.dmdwyer.devstream.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dmdwyer.devstream.entity.FlagChange;
+
+import java.time.Instant;
+import java.util.List;
+
+// Read-write transactions throughout: log positions must come from the primary, never from a
+// read replica that may be behind it
+@Transactional
+public interface FlagChangeRepository extends JpaRepository<FlagChange, Long> {
+  List<FlagChange> findBySeqGreaterThanOrderBySeqAsc(long seq, Limit limit);
+
+  @Query("select coalesce(max(c.seq), 0) from FlagChange c")
+  long maxSeq();
+
+  // Oldest change still retained; everything before it has been compacted (0 when empty)
+  @Query("select coalesce(min(c.seq), 0) from FlagChange c")
+  long minSeq();
+
+  // Deletes and renames in (since, until]; the keys they removed are tombstones
+  @Query("select c from FlagChange c where c.seq > :since and c.seq <= :until"
+      + " and (c.type = :delete or (c.type = :upsert and c.previousKey is not null)) order by c.seq")
+  List<FlagChange> findRemovals(long since, long until, FlagChange.Type delete, FlagChange.Type upsert, Limit limit);
+
+  // Compaction. The newest row is always kept so minSeq() and maxSeq() stay meaningful.
+  @Modifying
+  @Query("delete from FlagChange c where c.changedAt < :cutoff and c.seq < (select max(m.seq) from FlagChange m)")
+  int deleteChangedBefore(Instant cutoff);
+}
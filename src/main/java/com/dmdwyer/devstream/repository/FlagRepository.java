@@ -1,12 +1,48 @@
 package com.dmdwyer.devstream.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import com.dmdwyer.devstream.dto.FlagDelta;
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagSummary;
 import com.dmdwyer.devstream.entity.Flag;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface FlagRepository extends JpaRepository<Flag, Long> {
   Optional<Flag> findByFlagKey(String flagKey);
   boolean existsByFlagKey(String flagKey);
+
+  // Cheap lookups for ETag checks: never load the TEXT columns
+  Optional<FlagSummary> findSummaryByFlagKey(String flagKey);
+
+  @Query("select f.id from Flag f where f.flagKey = :flagKey")
+  Optional<Long> findIdByFlagKey(String flagKey);
+
+  Page<FlagSummary> findSummariesBy(Pageable pageable);
+
+  // Offset page content only, with no count query: the caller already has the total
+  List<Flag> findFlagsBy(Pageable pageable);
+
+  // Read-only DTO projection: no entity is instantiated, tracked or dirty-checked
+  @Query("select new com.dmdwyer.devstream.dto.FlagDto(f.id, f.flagKey, f.enabled, f.rulesJson, f.variantsJson, f.bucketing, f.version)"
+      + " from Flag f where f.flagKey = :flagKey")
+  Optional<FlagDto> findDtoByFlagKey(String flagKey);
+
+  // Keyset pages over the unique flagKey index: no offset scan and no count query
+  @Query("select new com.dmdwyer.devstream.dto.FlagDto(f.id, f.flagKey, f.enabled, f.rulesJson, f.variantsJson, f.bucketing, f.version)"
+      + " from Flag f where f.flagKey > :after order by f.flagKey")
+  List<FlagDto> findDtosAfter(String after, Limit limit);
+
+  List<FlagSummary> findSummariesByFlagKeyGreaterThanOrderByFlagKeyAsc(String after, Limit limit);
+
+  // Flags whose last write falls in (since, until], over the changeSeq index
+  @Query("select new com.dmdwyer.devstream.dto.FlagDelta(f.changeSeq, f.updatedAt, f.id, f.flagKey, f.enabled, f.rulesJson,"
+      + " f.variantsJson, f.bucketing, f.version) from Flag f where f.changeSeq > :since and f.changeSeq <= :until order by f.changeSeq")
+  List<FlagDelta> findDeltas(long since, long until, Limit limit);
 }
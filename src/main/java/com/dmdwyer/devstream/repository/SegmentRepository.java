@@ -0,0 +1,13 @@
+package com.dmdwyer.devstream.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.dmdwyer.devstream.entity.Segment;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SegmentRepository extends JpaRepository<Segment, Long> {
+  Optional<Segment> findBySegmentKey(String segmentKey);
+  List<Segment> findAllByOrderBySegmentKeyAsc();
+}
@@ -0,0 +1,5 @@
+package com.dmdwyer.devstream.segment;
+
+// Published by SegmentStore after a segment's members are replaced or removed.
+// segmentKey is null when every segment was (re)loaded at once.
+public record SegmentChangedEvent(String segmentKey) {}
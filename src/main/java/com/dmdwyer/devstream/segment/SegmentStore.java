@@ -0,0 +1,126 @@
+package com.dmdwyer.devstream.segment;
+
+import com.dmdwyer.devstream.engine.SegmentMembers;
+import com.dmdwyer.devstream.engine.SegmentRef;
+import com.dmdwyer.devstream.engine.SegmentResolver;
+import com.dmdwyer.devstream.entity.Segment;
+import com.dmdwyer.devstream.repository.SegmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory segment memberships, one SegmentRef per key. Compiled flags hold on to the
+// refs, so loading or replacing a segment is a single volatile write that every flag
+// targeting it sees on its next evaluation. Members are read from segment_chunks one
+// chunk at a time straight into the final array. Loaded by changes.FlagChangeTailer
+// before the flag snapshot, and refreshed by it when another instance changes a segment.
+// Every change publishes a SegmentChangedEvent (e.g. for snapshot.FlagSnapshotFile).
+@Component
+public class SegmentStore implements SegmentResolver {
+  public static final int CHUNK_HASHES = 65536;
+
+  private final SegmentRepository repo;
+  private final JdbcTemplate jdbc;
+  private final ApplicationEventPublisher events;
+  private final ConcurrentHashMap<String, SegmentRef> refs = new ConcurrentHashMap<>();
+  private final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+
+  public SegmentStore(SegmentRepository repo, JdbcTemplate jdbc, ApplicationEventPublisher events) {
+    this.repo = repo;
+    this.jdbc = jdbc;
+    this.events = events;
+  }
+
+  @Override
+  public SegmentRef ref(String key) {
+    return refs.computeIfAbsent(key, SegmentRef::new);
+  }
+
+  public Optional<SegmentMembers> members(String key) {
+    SegmentRef ref = refs.get(key);
+    return ref != null ? Optional.ofNullable(ref.members()) : Optional.empty();
+  }
+
+  // Every defined segment's current members
+  public Map<String, SegmentMembers> all() {
+    Map<String, SegmentMembers> all = new HashMap<>();
+    refs.forEach((key, ref) -> { if (ref.members() != null) all.put(key, ref.members()); });
+    return all;
+  }
+
+  // Read-write transactions here and in refresh() keep these reads on the primary
+  @Transactional
+  public void load() {
+    Set<String> loaded = new HashSet<>();
+    long total = 0;
+    for (Segment s : repo.findAll()) {
+      ref(s.getSegmentKey()).set(readMembers(s));
+      loaded.add(s.getSegmentKey());
+      total += s.getMemberCount();
+    }
+    refs.forEach((key, ref) -> { if (!loaded.contains(key)) ref.set(null); });
+    logger.info("Loaded {} segments with {} members", loaded.size(), total);
+    events.publishEvent(new SegmentChangedEvent(null));
+  }
+
+  // Replaces every segment, e.g. with the memberships from the local snapshot file
+  public void loadFrom(Map<String, SegmentMembers> segments, String source) {
+    segments.forEach((key, members) -> ref(key).set(members));
+    refs.forEach((key, ref) -> { if (!segments.containsKey(key)) ref.set(null); });
+    logger.info("Loaded {} segments from {}", segments.size(), source);
+    events.publishEvent(new SegmentChangedEvent(null));
+  }
+
+  // Re-reads one segment's committed state, for changes made by another instance
+  @Transactional
+  public void refresh(String key) {
+    Optional<Segment> row = repo.findBySegmentKey(key);
+    ref(key).set(row.map(this::readMembers).orElse(null));
+    events.publishEvent(new SegmentChangedEvent(key));
+  }
+
+  // Publishes once the surrounding transaction commits; null members un-defines the segment
+  public void publishAfterCommit(String key, SegmentMembers members) {
+    SegmentRef ref = ref(key);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      ref.set(members);
+      events.publishEvent(new SegmentChangedEvent(key));
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        ref.set(members);
+        events.publishEvent(new SegmentChangedEvent(key));
+      }
+    });
+  }
+
+  private SegmentMembers readMembers(Segment s) {
+    long[] hashes = new long[s.getMemberCount()];
+    int[] filled = {0};
+    jdbc.query("select hashes from segment_chunks where segment_id = ? order by chunk_no", rs -> {
+      byte[] chunk = rs.getBytes(1);
+      int n = Math.min(chunk.length / Long.BYTES, hashes.length - filled[0]);
+      ByteBuffer.wrap(chunk).asLongBuffer().get(hashes, filled[0], n);
+      filled[0] += n;
+    }, s.getId());
+    if (filled[0] != hashes.length) {
+      throw new IllegalStateException("Segment " + s.getSegmentKey() + " has " + filled[0] + " of " + hashes.length + " members stored");
+    }
+    return SegmentMembers.ofSortedHashes(hashes);
+  }
+}
@@ -0,0 +1,60 @@
+package com.dmdwyer.devstream.service;
+
+import com.dmdwyer.devstream.changes.FlagChangeTailer;
+import com.dmdwyer.devstream.dto.FlagChanges;
+import com.dmdwyer.devstream.dto.FlagDelta;
+import com.dmdwyer.devstream.dto.FlagTombstone;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+// GET /flags/changes: what changed after a client's cursor. Upserts come from flags.change_seq
+// (set to the flag_changes seq of every write, imports included); deletes and renames come
+// from their flag_changes rows, which act as tombstones until compacted. Results stop at the
+// tailer's visible seq, so a transaction that commits out of seq order is never skipped.
+// Not read-only: cursors are primary log positions, so a read replica must not answer.
+@Service
+@Transactional
+public class FlagDeltaService {
+  private final FlagRepository flags;
+  private final FlagChangeRepository changes;
+  private final FlagChangeTailer tailer;
+  private final int maxChanges;
+
+  public FlagDeltaService(FlagRepository flags, FlagChangeRepository changes, FlagChangeTailer tailer,
+                          @Value("${flags.changes.max-delta:1000}") int maxChanges) {
+    this.flags = flags;
+    this.changes = changes;
+    this.tailer = tailer;
+    this.maxChanges = maxChanges;
+  }
+
+  public FlagChanges since(long since) {
+    if (since < 0) throw new IllegalArgumentException("since must not be negative: " + since);
+    long until = tailer.visibleSeq();
+    if (since == 0) return FlagChanges.resync(since, until);                      // no cursor yet
+    if (since > changes.maxSeq()) return FlagChanges.resync(since, until);        // cursor from another log, e.g. a rebuilt database
+    if (since < changes.minSeq() - 1) return FlagChanges.resync(since, until);    // changes after it were compacted
+    if (since >= until) return new FlagChanges(since, since, false, List.of(), List.of());
+
+    List<FlagDelta> upserted = flags.findDeltas(since, until, Limit.of(maxChanges + 1));
+    List<FlagChange> removals = changes.findRemovals(since, until, FlagChange.Type.DELETE, FlagChange.Type.UPSERT, Limit.of(maxChanges + 1));
+    if (upserted.size() + removals.size() > maxChanges) return FlagChanges.resync(since, until);
+
+    // A key that exists again (recreated, or renamed back) is an upsert, not a tombstone
+    Set<String> live = new HashSet<>();
+    for (FlagDelta d : upserted) live.add(d.flag().flagKey());
+    Map<String, FlagTombstone> deleted = new LinkedHashMap<>();
+    for (FlagChange c : removals) {
+      String key = c.getType() == FlagChange.Type.DELETE ? c.getFlagKey() : c.getPreviousKey();
+      if (!live.contains(key)) deleted.put(key, new FlagTombstone(key, c.getSeq(), c.getChangedAt()));
+    }
+    return new FlagChanges(since, until, false, upserted, List.copyOf(deleted.values()));
+  }
+}
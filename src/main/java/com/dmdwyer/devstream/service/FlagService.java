@@ -1,19 +1,32 @@
 package com.dmdwyer.devstream.service;
 
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.common.ETags;
+import com.dmdwyer.devstream.common.PreconditionFailedException;
+import com.dmdwyer.devstream.dto.BulkEvaluationResponse;
+import com.dmdwyer.devstream.dto.FlagCursorPage;
 import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagSummary;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagLookup;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.dmdwyer.devstream.engine.PrerequisiteGraph;
 import com.dmdwyer.devstream.entity.Flag;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.exposure.ExposureRecorder;
 import com.dmdwyer.devstream.mapper.FlagMapper;
+import com.dmdwyer.devstream.metrics.FlagEvaluationMetrics;
 import com.dmdwyer.devstream.repository.FlagRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -23,15 +36,15 @@ import java.util.*;
 public class FlagService {
   private final FlagRepository repo;
   private final FlagMapper mapper;
-  private final ObjectMapper om;
-  private final Logger logger = LoggerFactory.getLogger(FlagService.class);
-  private final Counter flagEvaluationCounter;
+  private final FlagSnapshotStore snapshots;
+  private final FlagEvaluationMetrics metrics;
+  private final ExposureRecorder exposures;
+  private final FlagChangeLog changeLog;
 
-  public FlagService(FlagRepository repo, FlagMapper mapper, ObjectMapper om, MeterRegistry meterRegistry) {
-    this.repo = repo; this.mapper = mapper; this.om = om;
-    this.flagEvaluationCounter = Counter.builder("flag.evaluations")
-        .description("Number of flag evaluations")
-        .register(meterRegistry);
+  public FlagService(FlagRepository repo, FlagMapper mapper, FlagSnapshotStore snapshots,
+                     FlagEvaluationMetrics metrics, ExposureRecorder exposures, FlagChangeLog changeLog) {
+    this.repo = repo; this.mapper = mapper; this.snapshots = snapshots; this.metrics = metrics;
+    this.exposures = exposures; this.changeLog = changeLog;
   }
 
   // CRUD
@@ -40,82 +53,183 @@ public class FlagService {
       throw new IllegalArgumentException("Flag key already exists: " + dto.flagKey());
     }
     Flag f = mapper.toEntity(dto);
-    return mapper.toDto(repo.save(f));
+    CompiledFlag plan = snapshots.compile(mapper.toDto(f)); // reject malformed rules/variants before touching the DB
+    checkPrerequisites(plan, null);
+    f.markChanged(changeLog.append(f.getFlagKey(), null, FlagChange.Type.UPSERT));
+    FlagDto created = mapper.toDto(repo.save(f));
+    snapshots.upsertAfterCommit(null, created, plan);
+    return created;
   }
 
-  public Page<FlagDto> list(Pageable pageable) {
-    return repo.findAll(pageable).map(mapper::toDto);
+  public static final int MAX_CURSOR_LIMIT = 1000;
+
+  // total comes from the listSummaries() page the ETag was checked against, so a listing
+  // runs one count(*) instead of two
+  @Transactional(readOnly = true)
+  public Page<FlagDto> list(Pageable pageable, long total) {
+    return new PageImpl<>(repo.findFlagsBy(pageable).stream().map(mapper::toDto).toList(), pageable, total);
+  }
+
+  @Transactional(readOnly = true)
+  public Page<FlagSummary> listSummaries(Pageable pageable) {
+    return repo.findSummariesBy(pageable);
+  }
+
+  // Keyset listing ordered by flagKey; after is the previous page's nextCursor (null for the first page)
+  @Transactional(readOnly = true)
+  public FlagCursorPage<FlagDto> listAfter(String after, int limit) {
+    List<FlagDto> items = repo.findDtosAfter(after != null ? after : "", cursorLimit(limit));
+    return new FlagCursorPage<>(items, nextCursor(items.size(), limit, items.isEmpty() ? null : items.get(items.size() - 1).flagKey()));
   }
 
+  @Transactional(readOnly = true)
+  public FlagCursorPage<FlagSummary> listSummariesAfter(String after, int limit) {
+    List<FlagSummary> items = repo.findSummariesByFlagKeyGreaterThanOrderByFlagKeyAsc(after != null ? after : "", cursorLimit(limit));
+    return new FlagCursorPage<>(items, nextCursor(items.size(), limit, items.isEmpty() ? null : items.get(items.size() - 1).flagKey()));
+  }
+
+  private static Limit cursorLimit(int limit) {
+    if (limit < 1 || limit > MAX_CURSOR_LIMIT) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_CURSOR_LIMIT + ": " + limit);
+    }
+    return Limit.of(limit);
+  }
+
+  // A short page is the last one; a full page may or may not be, which costs at most one empty request
+  private static String nextCursor(int size, int limit, String lastKey) {
+    return size == limit ? lastKey : null;
+  }
+
+  // Single-flag reads come from the snapshot: no transaction, connection or persistence
+  // context. A miss falls through to a read-only projection query in its own short
+  // read-only transaction (the repository default), so a flag this snapshot hasn't seen
+  // yet is still found.
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public Optional<FlagDto> get(String key) {
-    flagEvaluationCounter.increment();
-    return repo.findByFlagKey(key).map(mapper::toDto);
+    FlagSnapshot.Entry e = snapshots.current().flags().get(key);
+    return e != null ? Optional.of(e.flag()) : repo.findDtoByFlagKey(key);
+  }
+
+  // ETag support: id/version lookups that never load the TEXT columns
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public Optional<ETags.Tag> tag(String key) {
+    FlagSnapshot.Entry e = snapshots.current().flags().get(key);
+    return e != null ? Optional.of(ETags.tagOf(e.flag().id(), e.flag().version()))
+        : repo.findSummaryByFlagKey(key).map(s -> ETags.tagOf(s.id(), s.version()));
+  }
+
+  // Page-level ETag from position, total and each row's key and id.version: a summary page and
+  // the full page with the same rows hash alike
+  public static String listETag(Page<FlagSummary> page) {
+    StringBuilder sb = new StringBuilder()
+        .append(page.getNumber()).append('/').append(page.getSize()).append('/').append(page.getTotalElements());
+    for (FlagSummary s : page) sb.append('|').append(s.flagKey()).append(':').append(ETags.tagOf(s.id(), s.version()));
+    return "\"" + DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
   }
 
   public FlagDto update(String key, FlagDto patch) {
+    return update(key, patch, null);
+  }
+
+  // expected comes from If-Match; null skips the check (last write wins)
+  public FlagDto update(String key, FlagDto patch, ETags.Tag expected) {
     Flag f = repo.findByFlagKey(key).orElseThrow(() -> new NoSuchElementException("Flag not found: " + key));
+    checkVersion(f, expected);
     mapper.updateEntity(f, patch);
-    return mapper.toDto(f);
+    f.markChanged(changeLog.append(f.getFlagKey(), key.equals(f.getFlagKey()) ? null : key, FlagChange.Type.UPSERT));
+    // flush so the bumped @Version is what we return and publish; a concurrent writer fails here
+    FlagDto updated = mapper.toDto(repo.saveAndFlush(f));
+    CompiledFlag plan = snapshots.compile(updated); // a malformed patch rolls the update back
+    if (!key.equals(updated.flagKey())) checkNotPrerequisite(key);
+    checkPrerequisites(plan, key);
+    snapshots.upsertAfterCommit(key, updated, plan);
+    return updated;
   }
 
   public void delete(String key) {
-    repo.findByFlagKey(key).ifPresent(repo::delete);
+    delete(key, null);
   }
 
-  // Evaluation
-  public String evaluate(String key, String userId, Map<String,String> attrs) {
-    Flag f = repo.findByFlagKey(key).orElseThrow(() -> new NoSuchElementException("Flag not found: " + key));
-    if (!f.isEnabled()) return "OFF";
-
-    // 1) Rules (very simple demo parser: "field=value" → return variant)
-    if (f.getRulesJson() != null && !f.getRulesJson().isBlank()) {
-      try {
-        for (JsonNode rule : om.readTree(f.getRulesJson())) {
-          JsonNode ifNode = rule.get("if");
-          JsonNode thenNode = rule.get("then");
-          String cond = ifNode != null ? ifNode.asText("") : ""; // e.g. country=IE
-          String then = thenNode != null ? thenNode.asText("") : ""; // e.g. A
-          String[] parts = cond.split("=", 2);
-          if (parts.length == 2) {
-            String field = parts[0].trim();
-            String expected = parts[1].trim();
-            if (expected.equalsIgnoreCase(attrs.getOrDefault(field, ""))) {
-              return then;
-            }
-          }
-        }
-      } catch (Exception e) {
-        logger.debug("Failed to parse rules JSON for flag {}: {}", key, e.getMessage());
-      }
-    }
+  public void delete(String key, ETags.Tag expected) {
+    repo.findByFlagKey(key).ifPresent(f -> {
+      checkVersion(f, expected);
+      checkNotPrerequisite(key);
+      changeLog.append(key, null, FlagChange.Type.DELETE); // the row is the flag's tombstone
+      repo.delete(f);
+      snapshots.removeAfterCommit(key);
+    });
+  }
+
+  // Checked against this instance's snapshot, like segment references. previousKey (a rename)
+  // no longer exists once the write commits.
+  private void checkPrerequisites(CompiledFlag plan, String previousKey) {
+    FlagSnapshot snapshot = snapshots.current();
+    FlagLookup plans = snapshot.plans();
+    PrerequisiteGraph.check(plan, k -> k.equals(previousKey) ? null : plans.find(k), snapshot.allPlans());
+  }
 
-    // 2) Variant split via consistent hashing
-    Map<String,Integer> splits = parseSplits(f.getVariantsJson()); // {"A":50,"B":50}
-    if (splits.isEmpty()) return "ON"; // fallback when no variants configured
+  // A flag can't be deleted or renamed while other flags name it as a prerequisite
+  private void checkNotPrerequisite(String key) {
+    List<String> dependents = PrerequisiteGraph.dependents(key, snapshots.current().allPlans());
+    if (!dependents.isEmpty()) throw new IllegalArgumentException("Flag " + key + " is a prerequisite of flags " + dependents);
+  }
+
+  private static void checkVersion(Flag f, ETags.Tag expected) {
+    ETags.Tag actual = ETags.tagOf(f.getId(), f.getVersion());
+    if (expected != null && !expected.equals(actual)) {
+      throw new PreconditionFailedException("Flag " + f.getFlagKey() + " is at " + ETags.of(actual) + ", not " + ETags.of(expected));
+    }
+  }
 
-    int bucket = Math.floorMod(positiveHash(userId), 100);
-    int cumulative = 0;
-    for (Map.Entry<String,Integer> e : splits.entrySet()) {
-      cumulative += e.getValue();
-      if (bucket < cumulative) return e.getKey();
+  // Evaluation: served from the precompiled plans in the in-memory snapshot, so no
+  // transaction, connection or JSON parsing is involved
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public String evaluate(String key, String userId, Map<String,String> attrs) {
+    FlagSnapshot snapshot = snapshots.current();
+    FlagSnapshot.Entry e = snapshot.flags().get(key);
+    if (e == null) {
+      metrics.recordNotFound();
+      throw new NoSuchElementException("Flag not found: " + key);
     }
-    return splits.keySet().iterator().next(); // safety fallback
+    CompiledFlag f = e.plan();
+    // prerequisites are evaluated from the same snapshot, each at most once
+    int outcome = f.hasPrerequisites()
+        ? f.evaluateOutcome(HashedUser.of(userId, snapshot.plans()), attrs)
+        : f.evaluateOutcome(userId, attrs);
+    metrics.record(f, outcome);
+    exposures.record(key, f.variantOf(outcome), userId, f.reasonOf(outcome));
+    return f.variantOf(outcome);
   }
 
-  private Map<String,Integer> parseSplits(String json) {
-    Map<String,Integer> map = new LinkedHashMap<>();
-    if (json == null || json.isBlank()) return map;
-    try {
-      JsonNode n = om.readTree(json);
-      n.fieldNames().forEachRemaining(k -> map.put(k, n.get(k).asInt()));
-    } catch (Exception ignored) {}
-    return map;
+  // Bulk evaluation: one snapshot read and one user hash for every requested flag.
+  // A null or empty key list evaluates all flags; unknown keys are skipped. Only explicitly
+  // requested keys record exposures: evaluating every flag doesn't mean the user saw them all.
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public BulkEvaluationResponse evaluateAll(String userId, Map<String,String> attrs, Collection<String> keys) {
+    FlagSnapshot snapshot = snapshots.current();
+    Map<String,String> safeAttrs = attrs != null ? attrs : Map.of();
+    HashedUser user = HashedUser.of(userId, snapshot.plans());
+    Map<String,String> variants;
+    if (keys == null || keys.isEmpty()) {
+      variants = new LinkedHashMap<>(snapshot.flags().size() * 4 / 3 + 1);
+      for (FlagSnapshot.Entry e : snapshot.flags().values()) {
+        variants.put(e.plan().key(), evaluate(e.plan(), userId, user, safeAttrs, false));
+      }
+    } else {
+      variants = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+      for (String key : keys) {
+        FlagSnapshot.Entry e = snapshot.flags().get(key);
+        if (e != null) variants.put(key, evaluate(e.plan(), userId, user, safeAttrs, true));
+        else metrics.recordNotFound();
+      }
+    }
+    return new BulkEvaluationResponse(userId, snapshot.version(), variants);
   }
 
-  private static int positiveHash(String s) {
-    if (s == null) s = "";
-    int h = Arrays.hashCode(s.getBytes(StandardCharsets.UTF_8));
-    if (h == Integer.MIN_VALUE) h = 0; // avoid Math.abs overflow
-    return Math.abs(h);
+  private String evaluate(CompiledFlag f, String userId, HashedUser user, Map<String,String> attrs, boolean exposed) {
+    int outcome = f.evaluateOutcome(user, attrs);
+    metrics.record(f, outcome);
+    if (exposed) exposures.record(f.key(), f.variantOf(outcome), userId, f.reasonOf(outcome));
+    return f.variantOf(outcome);
   }
 }
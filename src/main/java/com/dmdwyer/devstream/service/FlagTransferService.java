@@ -0,0 +1,198 @@
+package com.dmdwyer.devstream.service;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagImportResult;
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+
+// NDJSON bulk import/export, one FlagDto per line. Import reads and validates the whole body
+// before it opens a transaction, so no connection is held while the client uploads; it then
+// writes every batch-size flags as two JDBC batches (inserts, updates). Export walks a
+// forward-only cursor with a fixed fetch size. Rows go through JDBC rather than the entity,
+// so no persistence context grows with the import.
+@Service
+public class FlagTransferService {
+  private static final int MAX_REPORTED_ERRORS = 100;
+  private static final String INSERT = "insert into flags (flag_key, enabled, rules_json, variants_json, bucketing, version, created_at,"
+      + " change_seq, updated_at) values (?, ?, ?, ?, ?, 0, ?, ?, ?)";
+  private static final String UPDATE = "update flags set enabled = ?, rules_json = ?, variants_json = ?,"
+      + " bucketing = coalesce(?, bucketing), version = version + 1, change_seq = ?, updated_at = ? where flag_key = ?";
+  // Marks rows written by an import until its RELOAD seq is known; never a real seq
+  private static final long PENDING_SEQ = -1;
+  private static final String STAMP = "update flags set change_seq = ?, updated_at = ? where change_seq = " + PENDING_SEQ;
+  private static final String EXPORT = "select id, flag_key, enabled, rules_json, variants_json, bucketing, version"
+      + " from flags order by flag_key";
+
+  private final JdbcTemplate jdbc;
+  private final NamedParameterJdbcTemplate named;
+  private final FlagSnapshotStore snapshots;
+  private final FlagChangeLog changeLog;
+  private final Validator validator;
+  private final TransactionTemplate tx;
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+  private final int batchSize;
+  private final int fetchSize;
+
+  public FlagTransferService(JdbcTemplate jdbc, FlagSnapshotStore snapshots, FlagChangeLog changeLog,
+                             Validator validator, ObjectMapper om, PlatformTransactionManager transactions,
+                             @Value("${flags.import.batch-size:1000}") int batchSize,
+                             @Value("${flags.export.fetch-size:1000}") int fetchSize) {
+    this.jdbc = jdbc;
+    this.named = new NamedParameterJdbcTemplate(jdbc);
+    this.snapshots = snapshots;
+    this.changeLog = changeLog;
+    this.validator = validator;
+    this.tx = new TransactionTemplate(transactions);
+    this.reader = om.readerFor(FlagDto.class);
+    this.writer = om.writerFor(FlagDto.class).withRootValueSeparator("\n").without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    this.batchSize = batchSize;
+    this.fetchSize = fetchSize;
+  }
+
+  // Upserts by flagKey; within one import a later line for the same key wins. Invalid lines
+  // are skipped and reported, the rest commit together.
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public FlagImportResult importNdjson(InputStream body) throws IOException {
+    Map<String, FlagDto> flags = new LinkedHashMap<>();
+    List<String> errors = new ArrayList<>();
+    int[] counts = new int[3]; // inserted, updated, rejected
+    BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    String line;
+    for (int n = 1; (line = lines.readLine()) != null; n++) {
+      if (line.isBlank()) continue;
+      String error = null;
+      try {
+        FlagDto flag = reader.readValue(line);
+        error = validate(flag);
+        if (error == null) flags.put(flag.flagKey(), flag);
+      } catch (JsonProcessingException e) {
+        error = "malformed JSON: " + e.getOriginalMessage();
+      }
+      if (error != null) {
+        counts[2]++;
+        if (errors.size() < MAX_REPORTED_ERRORS) errors.add("line " + n + ": " + error);
+      }
+    }
+    if (!flags.isEmpty()) tx.executeWithoutResult(status -> write(flags.values(), counts));
+    return new FlagImportResult(counts[0], counts[1], counts[2], errors);
+  }
+
+  // Rows are written with PENDING_SEQ, and the RELOAD change is appended only once they all
+  // are, so its seq is taken just before commit: a seq held open for the length of an import
+  // would be given up on by other instances' tailers (gap-timeout) and skipped by deltas.
+  private void write(Collection<FlagDto> flags, int[] counts) {
+    Map<String, FlagDto> batch = new LinkedHashMap<>();
+    for (FlagDto f : flags) {
+      batch.put(f.flagKey(), f);
+      if (batch.size() >= batchSize) flush(batch, counts);
+    }
+    flush(batch, counts);
+    FlagChange change = changeLog.append("*", null, FlagChange.Type.RELOAD);
+    jdbc.update(STAMP, change.getSeq(), Timestamp.from(change.getChangedAt()));
+    snapshots.reloadAfterCommit();
+  }
+
+  private String validate(FlagDto flag) {
+    Set<ConstraintViolation<FlagDto>> violations = validator.validate(flag);
+    if (!violations.isEmpty()) {
+      ConstraintViolation<FlagDto> v = violations.iterator().next();
+      return v.getPropertyPath() + " " + v.getMessage();
+    }
+    try {
+      snapshots.compile(flag);
+      return null;
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+
+  private void flush(Map<String, FlagDto> batch, int[] counts) {
+    if (batch.isEmpty()) return;
+    Set<String> existing = new HashSet<>(named.queryForList(
+        "select flag_key from flags where flag_key in (:keys)", Map.of("keys", batch.keySet()), String.class));
+    List<FlagDto> inserts = new ArrayList<>(batch.size());
+    List<FlagDto> updates = new ArrayList<>(existing.size());
+    for (FlagDto f : batch.values()) (existing.contains(f.flagKey()) ? updates : inserts).add(f);
+    Timestamp now = Timestamp.from(Instant.now());
+    jdbc.batchUpdate(INSERT, inserts, inserts.size(), (ps, f) -> {
+      ps.setString(1, f.flagKey());
+      ps.setBoolean(2, Boolean.TRUE.equals(f.enabled()));
+      ps.setString(3, f.rulesJson());
+      ps.setString(4, f.variantsJson());
+      ps.setString(5, (f.bucketing() != null ? f.bucketing() : BucketingMode.MURMUR3).name());
+      ps.setTimestamp(6, now);
+      ps.setLong(7, PENDING_SEQ);
+      ps.setTimestamp(8, now);
+    });
+    jdbc.batchUpdate(UPDATE, updates, updates.size(), (ps, f) -> {
+      ps.setBoolean(1, Boolean.TRUE.equals(f.enabled()));
+      ps.setString(2, f.rulesJson());
+      ps.setString(3, f.variantsJson());
+      if (f.bucketing() != null) ps.setString(4, f.bucketing().name()); else ps.setNull(4, Types.VARCHAR);
+      ps.setLong(5, PENDING_SEQ);
+      ps.setTimestamp(6, now);
+      ps.setString(7, f.flagKey());
+    });
+    counts[0] += inserts.size();
+    counts[1] += updates.size();
+    batch.clear();
+  }
+
+  // Runs in a read-only transaction so Postgres honours the fetch size with a server-side cursor
+  @Transactional(readOnly = true)
+  public int exportNdjson(OutputStream out) throws IOException {
+    int[] count = {0};
+    try (SequenceWriter w = writer.writeValues(out)) {
+      jdbc.query(con -> {
+        var ps = con.prepareStatement(EXPORT, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return ps;
+      }, rs -> {
+        String bucketing = rs.getString("bucketing");
+        FlagDto flag = new FlagDto(rs.getLong("id"), rs.getString("flag_key"), rs.getBoolean("enabled"),
+            rs.getString("rules_json"), rs.getString("variants_json"),
+            bucketing != null ? BucketingMode.valueOf(bucketing) : null, rs.getLong("version"));
+        try {
+          w.write(flag);
+          count[0]++;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    if (count[0] > 0) out.write('\n');
+    return count[0];
+  }
+}
@@ -0,0 +1,146 @@
+package com.dmdwyer.devstream.service;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.dto.SegmentSummary;
+import com.dmdwyer.devstream.engine.SegmentMembers;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.entity.Segment;
+import com.dmdwyer.devstream.repository.SegmentRepository;
+import com.dmdwyer.devstream.segment.SegmentStore;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Segment uploads and deletes. An upload is read line by line (one user id per line) and
+// only each id's 64-bit hash is kept, so the body never sits on the heap; the hashes are
+// sorted once and stored as fixed-size chunks. The body is read before the transaction
+// starts, so a slow upload holds no connection. The change is published to this instance
+// after commit and to the others through the flag_changes log.
+@Service
+@Transactional
+public class SegmentService {
+  private static final Pattern KEY = Pattern.compile("^[a-z0-9_\\-\\.]+$");
+  private static final int CHUNKS_PER_BATCH = 8;
+
+  private final SegmentRepository repo;
+  private final SegmentStore segments;
+  private final FlagSnapshotStore snapshots;
+  private final FlagChangeLog changeLog;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final int maxMembers;
+
+  public SegmentService(SegmentRepository repo, SegmentStore segments, FlagSnapshotStore snapshots,
+                        FlagChangeLog changeLog, JdbcTemplate jdbc, PlatformTransactionManager transactions,
+                        @Value("${flags.segments.max-members:20000000}") int maxMembers) {
+    this.repo = repo;
+    this.segments = segments;
+    this.snapshots = snapshots;
+    this.changeLog = changeLog;
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactions);
+    this.maxMembers = maxMembers;
+  }
+
+  @Transactional(readOnly = true)
+  public List<SegmentSummary> list() {
+    return repo.findAllByOrderBySegmentKeyAsc().stream().map(SegmentService::summary).toList();
+  }
+
+  @Transactional(readOnly = true)
+  public Optional<SegmentSummary> get(String key) {
+    return repo.findBySegmentKey(key).map(SegmentService::summary);
+  }
+
+  // Answered from memory, like evaluation; empty if the segment isn't loaded here
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public Optional<Boolean> isMember(String key, String userId) {
+    return segments.members(key).map(m -> m.contains(userId));
+  }
+
+  // Creates the segment or replaces all of its members. Blank lines are skipped and
+  // duplicate ids count once.
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public SegmentSummary replaceMembers(String key, InputStream body) throws IOException {
+    if (key == null || !KEY.matcher(key).matches()) throw new IllegalArgumentException("Invalid segment key: " + key);
+    SegmentMembers.Builder builder = SegmentMembers.builder(1 << 16);
+    BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    String line;
+    while ((line = lines.readLine()) != null) {
+      String userId = line.strip();
+      if (userId.isEmpty()) continue;
+      if (builder.size() >= maxMembers) {
+        throw new IllegalArgumentException("Segment " + key + " has more than " + maxMembers + " members");
+      }
+      builder.add(userId);
+    }
+    SegmentMembers members = builder.build();
+    return tx.execute(status -> storeMembers(key, members));
+  }
+
+  private SegmentSummary storeMembers(String key, SegmentMembers members) {
+    Segment segment = repo.findBySegmentKey(key).orElseGet(() -> new Segment(key));
+    segment.setMemberCount(members.size());
+    segment.setUpdatedAt(Instant.now());
+    segment = repo.saveAndFlush(segment);
+    jdbc.update("delete from segment_chunks where segment_id = ?", segment.getId());
+    writeChunks(segment.getId(), members);
+    changeLog.append(key, null, FlagChange.Type.SEGMENT);
+    segments.publishAfterCommit(key, members);
+    return summary(segment);
+  }
+
+  // Refused while a flag still targets the segment
+  public void delete(String key) {
+    Optional<Segment> row = repo.findBySegmentKey(key);
+    if (row.isEmpty()) return;
+    Segment segment = row.get();
+    List<String> users = new ArrayList<>();
+    for (FlagSnapshot.Entry e : snapshots.current().flags().values()) {
+      if (e.plan().segmentKeys().contains(key)) users.add(e.flag().flagKey());
+    }
+    if (!users.isEmpty()) throw new IllegalArgumentException("Segment " + key + " is used by flags " + users);
+    jdbc.update("delete from segment_chunks where segment_id = ?", segment.getId());
+    repo.delete(segment);
+    changeLog.append(key, null, FlagChange.Type.SEGMENT);
+    segments.publishAfterCommit(key, null);
+  }
+
+  private void writeChunks(long segmentId, SegmentMembers members) {
+    int chunkCount = (members.size() + SegmentStore.CHUNK_HASHES - 1) / SegmentStore.CHUNK_HASHES;
+    List<Object[]> batch = new ArrayList<>(CHUNKS_PER_BATCH);
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      int from = chunk * SegmentStore.CHUNK_HASHES;
+      int count = Math.min(SegmentStore.CHUNK_HASHES, members.size() - from);
+      ByteBuffer bytes = ByteBuffer.allocate(count * Long.BYTES);
+      members.copyHashes(from, count, bytes.asLongBuffer());
+      batch.add(new Object[] {segmentId, chunk, bytes.array()});
+      if (batch.size() == CHUNKS_PER_BATCH || chunk == chunkCount - 1) {
+        jdbc.batchUpdate("insert into segment_chunks (segment_id, chunk_no, hashes) values (?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private static SegmentSummary summary(Segment s) {
+    return new SegmentSummary(s.getSegmentKey(), s.getMemberCount(), s.getUpdatedAt());
+  }
+}
@@ -0,0 +1,50 @@
+package com.dmdwyer.devstream.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagLookup;
+
+import java.util.*;
+
+// Immutable view of every flag at a given version. Never mutated once published;
+// writers derive a new snapshot and swap it in through FlagSnapshotStore.
+public record FlagSnapshot(long version, Map<String, FlagSnapshot.Entry> flags) {
+  public static final FlagSnapshot EMPTY = new FlagSnapshot(0, Map.of());
+
+  // A flag as stored alongside the plan it was compiled into
+  public record Entry(FlagDto flag, CompiledFlag plan) {}
+
+  public FlagSnapshot {
+    flags = Collections.unmodifiableMap(flags);
+  }
+
+  public static FlagSnapshot of(long version, Collection<Entry> entries) {
+    Map<String, Entry> byKey = new HashMap<>(Math.max(16, entries.size() * 4 / 3 + 1));
+    for (Entry e : entries) byKey.put(e.flag().flagKey(), e);
+    return new FlagSnapshot(version, byKey);
+  }
+
+  public Optional<Entry> find(String key) {
+    return Optional.ofNullable(flags.get(key));
+  }
+
+  // Compiled plans by key, for prerequisite conditions
+  public FlagLookup plans() {
+    return key -> {
+      Entry e = flags.get(key);
+      return e != null ? e.plan() : null;
+    };
+  }
+
+  public Iterable<CompiledFlag> allPlans() {
+    return () -> flags.values().stream().map(Entry::plan).iterator();
+  }
+
+  // Copy-on-write: removes removedKey (if any) and puts upserted (if any) in one step.
+  public FlagSnapshot apply(String removedKey, Entry upserted) {
+    Map<String, Entry> next = new HashMap<>(flags);
+    if (removedKey != null) next.remove(removedKey);
+    if (upserted != null) next.put(upserted.flag().flagKey(), upserted);
+    return new FlagSnapshot(version + 1, next);
+  }
+}
@@ -0,0 +1,11 @@
+package com.dmdwyer.devstream.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+
+// Published synchronously, in version order, every time a new snapshot is swapped in.
+// removedKey/upserted describe the change; both are null when the whole snapshot was reloaded.
+public record FlagSnapshotChangedEvent(FlagSnapshot snapshot, String removedKey, FlagDto upserted) {
+  public boolean isReload() {
+    return removedKey == null && upserted == null;
+  }
+}
@@ -0,0 +1,228 @@
+package com.dmdwyer.devstream.snapshot;
+
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.SegmentMembers;
+import com.dmdwyer.devstream.segment.SegmentChangedEvent;
+import com.dmdwyer.devstream.segment.SegmentStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+// Last-known-good flags and segment memberships on local disk, so a pod can start (and keep
+// serving) without the database. Rewritten a short delay after snapshot or segment changes, via
+// a temp file and an atomic move; read back through a memory-mapped FileChannel and rejected
+// unless the CRC32C matches.
+//
+// Layout (big-endian): magic "DSFS", format version, written-at epoch millis, flag count,
+// then per flag: id, version, enabled, bucketing ordinal (-1 = none), key, rules, variants;
+// then (format 2) segment count, and per segment: key, member count, the sorted member hashes.
+// Strings are a byte length (-1 = null) plus UTF-8; last comes the CRC32C of all of the above.
+// Format 1 files (flags only) are still read, with no segments.
+@Component
+public class FlagSnapshotFile {
+  static final int MAGIC = 0x44534653;
+  static final int FORMAT_VERSION = 2;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+  private static final int WRITE_CHUNK_HASHES = 8192;
+
+  public record Contents(Instant writtenAt, List<FlagDto> flags, Map<String, SegmentMembers> segments) {}
+
+  private final Path path;
+  private final FlagSnapshotStore snapshots;
+  private final SegmentStore segments;
+  private final Duration writeDelay;
+  private final AtomicBoolean writePending = new AtomicBoolean();
+  private final ScheduledExecutorService writer;
+  private final Logger logger = LoggerFactory.getLogger(FlagSnapshotFile.class);
+
+  public FlagSnapshotFile(FlagSnapshotStore snapshots, SegmentStore segments,
+                          @Value("${flags.snapshot-file.path:}") String path,
+                          @Value("${flags.snapshot-file.write-delay:2s}") Duration writeDelay,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.snapshots = snapshots;
+    this.segments = segments;
+    this.path = path.isBlank() ? null : Path.of(path);
+    this.writeDelay = writeDelay;
+    this.writer = Executors.newSingleThreadScheduledExecutor(WorkerThreads.factory("flag-snapshot-file-writer", virtualThreads));
+  }
+
+  public boolean enabled() { return path != null; }
+
+  // Empty when disabled, missing, or corrupt (a corrupt file is logged and ignored)
+  public Optional<Contents> read() {
+    if (path == null || !Files.exists(path)) return Optional.empty();
+    try {
+      return Optional.of(read(path));
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Ignoring unreadable flag snapshot file {}: {}", path, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  @EventListener
+  public void onSnapshotChanged(FlagSnapshotChangedEvent event) {
+    scheduleWrite();
+  }
+
+  @EventListener
+  public void onSegmentChanged(SegmentChangedEvent event) {
+    scheduleWrite();
+  }
+
+  // Coalesces bursts of changes into one write of whatever is current when it runs
+  private void scheduleWrite() {
+    if (path == null || !writePending.compareAndSet(false, true)) return;
+    writer.schedule(() -> {
+      writePending.set(false);
+      try {
+        write(path, snapshots.current().flags().values().stream().map(FlagSnapshot.Entry::flag).toList(),
+            segments.all(), Instant.now());
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Failed to write flag snapshot file {}", path, e);
+      }
+    }, writeDelay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    writer.shutdownNow();
+  }
+
+  public static void write(Path path, Collection<FlagDto> flags, Map<String, SegmentMembers> segments,
+                           Instant writtenAt) throws IOException {
+    Path dir = path.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        CRC32C crc = new CRC32C();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new CheckedOutputStream(Channels.newOutputStream(ch), crc), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(writtenAt.toEpochMilli());
+        out.writeInt(flags.size());
+        for (FlagDto f : flags) {
+          out.writeLong(f.id() != null ? f.id() : -1);
+          out.writeLong(f.version() != null ? f.version() : -1);
+          out.writeBoolean(Boolean.TRUE.equals(f.enabled()));
+          out.writeByte(f.bucketing() != null ? f.bucketing().ordinal() : -1);
+          writeString(out, f.flagKey());
+          writeString(out, f.rulesJson());
+          writeString(out, f.variantsJson());
+        }
+        out.writeInt(segments.size());
+        ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_HASHES * Long.BYTES);
+        for (Map.Entry<String, SegmentMembers> s : segments.entrySet()) {
+          SegmentMembers members = s.getValue();
+          writeString(out, s.getKey());
+          out.writeInt(members.size());
+          for (int from = 0; from < members.size(); from += WRITE_CHUNK_HASHES) {
+            int n = Math.min(WRITE_CHUNK_HASHES, members.size() - from);
+            members.copyHashes(from, n, chunk.clear().asLongBuffer());
+            out.write(chunk.array(), 0, n * Long.BYTES);
+          }
+        }
+        out.flush();
+        ch.write(ByteBuffer.allocate(4).putInt(0, (int) crc.getValue()));
+        ch.force(true);
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  public static Contents read(Path path) throws IOException {
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = ch.size();
+      if (size < HEADER_BYTES + 4 || size > Integer.MAX_VALUE) throw new IOException("unexpected size " + size);
+      MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int end = (int) size - 4;
+      CRC32C crc = new CRC32C();
+      crc.update(buf.slice(0, end));
+      if ((int) crc.getValue() != buf.getInt(end)) throw new IOException("checksum mismatch");
+      if (buf.getInt() != MAGIC) throw new IOException("not a flag snapshot file");
+      int format = buf.getInt();
+      if (format != 1 && format != FORMAT_VERSION) throw new IOException("unsupported format version " + format);
+      Instant writtenAt = Instant.ofEpochMilli(buf.getLong());
+      int count = buf.getInt();
+      BucketingMode[] modes = BucketingMode.values();
+      List<FlagDto> flags = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        long id = buf.getLong();
+        long version = buf.getLong();
+        boolean enabled = buf.get() != 0;
+        byte mode = buf.get();
+        String key = readString(buf);
+        String rules = readString(buf);
+        String variants = readString(buf);
+        flags.add(new FlagDto(id >= 0 ? id : null, key, enabled, rules, variants,
+            mode >= 0 ? modes[mode] : null, version >= 0 ? version : null));
+      }
+      Map<String, SegmentMembers> segments = new HashMap<>();
+      int segmentCount = format >= 2 ? buf.getInt() : 0;
+      for (int i = 0; i < segmentCount; i++) {
+        String key = readString(buf);
+        int members = buf.getInt();
+        if (members < 0 || members > (end - buf.position()) / Long.BYTES) throw new IOException("segment " + key + " overruns the file");
+        long[] hashes = new long[members];
+        buf.asLongBuffer().get(hashes);
+        buf.position(buf.position() + members * Long.BYTES);
+        segments.put(key, SegmentMembers.ofSortedHashes(hashes));
+      }
+      if (buf.position() != end) throw new IOException("trailing bytes after " + count + " flags and " + segmentCount + " segments");
+      return new Contents(writtenAt, flags, segments);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buf) {
+    int len = buf.getInt();
+    if (len < 0) return null;
+    byte[] bytes = new byte[len];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,86 @@
+package com.dmdwyer.devstream.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+// GET /flags/snapshot body: every flag serialized and gzipped once per snapshot version, then
+// shared by all requests until the snapshot changes. Flags are sorted by key and the ETag is a
+// hash of the JSON, so instances holding the same flags serve the same bytes and ETag even
+// though their local snapshot versions differ. The gzipped bytes are a different representation
+// and get the same hash with a -gzip suffix, since a strong ETag can't be shared by two codings.
+@Component
+public class FlagSnapshotPayload {
+  public record Body(List<FlagDto> flags) {}
+
+  public record Payload(FlagSnapshot snapshot, String etag, String gzipEtag, byte[] json, byte[] gzip) {}
+
+  private final FlagSnapshotStore snapshots;
+  private final ObjectMapper om;
+  private final Counter builds;
+  private final ReentrantLock buildLock = new ReentrantLock();
+  private volatile Payload payload;
+
+  public FlagSnapshotPayload(FlagSnapshotStore snapshots, ObjectMapper om, MeterRegistry meterRegistry) {
+    this.snapshots = snapshots;
+    this.om = om;
+    this.builds = Counter.builder("flag.snapshot.payload.builds")
+        .description("Times the GET /flags/snapshot body was serialized and compressed")
+        .register(meterRegistry);
+  }
+
+  // Built on first request after a change. A burst of requests for a new version waits for
+  // one build instead of each serializing its own copy.
+  public Payload current() {
+    FlagSnapshot snapshot = snapshots.current();
+    Payload p = payload;
+    if (p != null && p.snapshot() == snapshot) return p;
+    buildLock.lock();
+    try {
+      snapshot = snapshots.current();
+      p = payload;
+      if (p == null || p.snapshot() != snapshot) {
+        p = build(snapshot);
+        payload = p;
+      }
+      return p;
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
+  private Payload build(FlagSnapshot snapshot) {
+    List<FlagDto> flags = snapshot.flags().values().stream()
+        .map(FlagSnapshot.Entry::flag)
+        .sorted(Comparator.comparing(FlagDto::flagKey))
+        .toList();
+    try {
+      byte[] json = om.writeValueAsBytes(new Body(flags));
+      ByteArrayOutputStream gzipped = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+      try (GZIPOutputStream gz = new GZIPOutputStream(gzipped, 8192)) {
+        gz.write(json);
+      }
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+      String hash = HexFormat.of().formatHex(digest, 0, 16);
+      builds.increment();
+      return new Payload(snapshot, "\"" + hash + "\"", "\"" + hash + "-gzip\"", json, gzipped.toByteArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
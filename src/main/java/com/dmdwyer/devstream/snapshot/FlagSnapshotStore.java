@@ -0,0 +1,165 @@
+package com.dmdwyer.devstream.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.SegmentResolver;
+import com.dmdwyer.devstream.mapper.FlagMapper;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// Holds the current FlagSnapshot. Reads are a single volatile load and never lock;
+// writes build a new snapshot off to the side and swap it in, so in-flight evaluations
+// keep working against the version they started with. Writers are serialized so that
+// FlagSnapshotChangedEvents go out in version order. The initial load is done by
+// changes.FlagChangeTailer so it lines up with the change-log position it tails from.
+@Component
+public class FlagSnapshotStore {
+  private final FlagRepository repo;
+  private final FlagMapper mapper;
+  private final FlagCompiler compiler;
+  private final ApplicationEventPublisher events;
+  private final AtomicReference<FlagSnapshot> current = new AtomicReference<>(FlagSnapshot.EMPTY);
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Logger logger = LoggerFactory.getLogger(FlagSnapshotStore.class);
+
+  public FlagSnapshotStore(FlagRepository repo, FlagMapper mapper, ObjectMapper om, SegmentResolver segments,
+                           ApplicationEventPublisher events) {
+    this.repo = repo; this.mapper = mapper; this.compiler = new FlagCompiler(om, segments); this.events = events;
+  }
+
+  // Read-write transactions here and in refresh() keep these reads on the primary
+  @Transactional
+  public void load() {
+    loadFrom(repo.findAll().stream().map(mapper::toDto).toList(), "database");
+  }
+
+  // Replaces the whole snapshot, e.g. with the flags from the local snapshot file
+  public void loadFrom(Collection<FlagDto> flags, String source) {
+    var entries = flags.stream().map(this::compileLenient).toList();
+    FlagSnapshot loaded = swap(s -> FlagSnapshot.of(s.version() + 1, entries), null, null);
+    logger.info("Loaded flag snapshot v{} with {} flags from {}", loaded.version(), loaded.flags().size(), source);
+  }
+
+  public FlagSnapshot current() {
+    return current.get();
+  }
+
+  // Compiles a flag about to be written; malformed rules/variants throw IllegalArgumentException
+  public CompiledFlag compile(FlagDto flag) {
+    return compiler.compile(flag.flagKey(), Boolean.TRUE.equals(flag.enabled()), flag.rulesJson(), flag.variantsJson(), flag.bucketing());
+  }
+
+  // Publishes once the surrounding transaction commits; a rollback publishes nothing.
+  public void upsertAfterCommit(String previousKey, FlagDto flag, CompiledFlag plan) {
+    String removed = previousKey != null && !previousKey.equals(flag.flagKey()) ? previousKey : null;
+    FlagSnapshot.Entry entry = new FlagSnapshot.Entry(flag, plan);
+    afterCommit(() -> {
+      writeLock.lock();
+      try {
+        // A delete that committed after this write may have been published already, and a
+        // missing entry always looks older: check the committed row is still this flag, under
+        // the lock like refresh(), so the delete can't be undone
+        if (!repo.findIdByFlagKey(flag.flagKey()).map(id -> id.equals(flag.id())).orElse(false)) {
+          if (removed != null) removeIfSame(removed, flag.id());
+          return;
+        }
+        // a refresh() may already have published a newer version of this flag
+        if (!isNewer(flag, false)) return;
+        swap(s -> s.apply(removed, entry), removed, flag);
+      } finally {
+        writeLock.unlock();
+      }
+    });
+  }
+
+  public void removeAfterCommit(String key) {
+    afterCommit(() -> swap(s -> s.apply(key, null), key, null));
+  }
+
+  // For bulk writes, where per-flag publishing would cost more than one full load
+  public void reloadAfterCommit() {
+    afterCommit(this::load);
+  }
+
+  // Publishes the flag's committed state immediately, for changes made by another instance.
+  // The read happens under the write lock so a concurrent local publish can't be overtaken
+  // by an older row; re-applying a change that is already in the snapshot is a no-op.
+  @Transactional
+  public void refresh(String key) {
+    writeLock.lock();
+    try {
+      Optional<FlagDto> row = repo.findDtoByFlagKey(key);
+      if (row.isPresent()) {
+        FlagDto flag = row.get();
+        if (!isNewer(flag, true)) return;
+        FlagSnapshot.Entry entry = compileLenient(flag);
+        swap(s -> s.apply(null, entry), null, flag);
+      } else if (current.get().flags().containsKey(key)) {
+        swap(s -> s.apply(key, null), key, null);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  // For a rename whose new key is gone again: the old key still has to go
+  private void removeIfSame(String key, Long id) {
+    FlagSnapshot.Entry existing = current.get().flags().get(key);
+    if (existing != null && Objects.equals(existing.flag().id(), id)) swap(s -> s.apply(key, null), key, null);
+  }
+
+  private boolean isNewer(FlagDto flag, boolean skipSameVersion) {
+    FlagSnapshot.Entry existing = current.get().flags().get(flag.flagKey());
+    if (existing == null || !Objects.equals(existing.flag().id(), flag.id())
+        || existing.flag().version() == null || flag.version() == null) return true;
+    return skipSameVersion ? flag.version() > existing.flag().version() : flag.version() >= existing.flag().version();
+  }
+
+  private FlagSnapshot swap(UnaryOperator<FlagSnapshot> change, String removedKey, FlagDto upserted) {
+    writeLock.lock();
+    try {
+      FlagSnapshot next = change.apply(current.get());
+      current.set(next);
+      events.publishEvent(new FlagSnapshotChangedEvent(next, removedKey, upserted));
+      return next;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private FlagSnapshot.Entry compileLenient(FlagDto flag) {
+    try {
+      return new FlagSnapshot.Entry(flag, compile(flag));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Stored flag {} does not compile cleanly, ignoring the invalid parts: {}", flag.flagKey(), e.getMessage());
+      return new FlagSnapshot.Entry(flag,
+          compiler.compileLenient(flag.flagKey(), Boolean.TRUE.equals(flag.enabled()), flag.rulesJson(), flag.variantsJson(), flag.bucketing()));
+    }
+  }
+
+  private static void afterCommit(Runnable publish) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      publish.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() { publish.run(); }
+    });
+  }
+}
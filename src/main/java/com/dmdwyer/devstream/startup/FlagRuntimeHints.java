@@ -0,0 +1,29 @@
+package com.dmdwyer.devstream.startup;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.entity.Flag;
+import com.dmdwyer.devstream.exposure.ExposureEvent;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotPayload;
+import com.dmdwyer.devstream.stream.FlagStreamEvent;
+import com.dmdwyer.devstream.stream.FlagStreamSnapshot;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+// Reflection hints for the fast-start (AOT) build. Request and response bodies of controller
+// methods are registered by Spring AOT itself; these are the types serialized by hand instead
+// (NDJSON import/export and exposure files, SSE events, the /flags/snapshot payload), plus the
+// entity and the generated MapStruct mapper. The JVM doesn't need them, but a native image
+// built from the same AOT output does.
+public class FlagRuntimeHints implements RuntimeHintsRegistrar {
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+        FlagDto.class, FlagSnapshotPayload.Body.class, FlagStreamEvent.class, FlagStreamSnapshot.class, ExposureEvent.class);
+    hints.reflection().registerType(Flag.class, MemberCategory.values());
+    hints.reflection().registerType(TypeReference.of("com.dmdwyer.devstream.mapper.FlagMapperImpl"),
+        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+  }
+}
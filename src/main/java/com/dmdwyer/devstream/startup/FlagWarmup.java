@@ -0,0 +1,139 @@
+package com.dmdwyer.devstream.startup;
+
+import com.dmdwyer.devstream.changes.FlagChangeTailer;
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotPayload;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Keeps this instance out of rotation until it can answer evaluations at full speed. Once the
+// application is ready it waits (in the background) for flags to be loaded, from the database
+// or the snapshot file, then runs the evaluation path flags.warmup.iterations times so the JIT
+// has compiled it, builds the /flags/snapshot payload and runs one query through the
+// connection pool. The "flagWarmup" health component, part of the readiness group, is DOWN
+// until then. Warming stops early at flags.warmup.timeout; waiting for data does not.
+//
+// Times are measured from JVM start and published as flag.startup.data.loaded.time and
+// flag.startup.warmed.time, next to Spring Boot's application.ready.time.
+@Component
+public class FlagWarmup {
+  private static final Map<String,String> ATTRS = Map.of("country", "IE", "plan", "premium", "tenant", "t-1", "app_version", "2.4.0");
+
+  private final FlagChangeTailer tailer;
+  private final FlagSnapshotStore snapshots;
+  private final FlagSnapshotPayload payload;
+  private final FlagRepository repo;
+  private final boolean enabled;
+  private final int iterations;
+  private final Duration timeout;
+  private final boolean virtualThreads;
+  private final Logger logger = LoggerFactory.getLogger(FlagWarmup.class);
+
+  private volatile State state = new State(false, -1, -1, 0);
+
+  // Times are milliseconds since JVM start, -1 until reached
+  public record State(boolean warm, long dataLoadedMs, long warmedMs, int evaluations) {}
+
+  public FlagWarmup(FlagChangeTailer tailer, FlagSnapshotStore snapshots, FlagSnapshotPayload payload, FlagRepository repo,
+                    MeterRegistry meterRegistry,
+                    @Value("${flags.warmup.enabled:true}") boolean enabled,
+                    @Value("${flags.warmup.iterations:20000}") int iterations,
+                    @Value("${flags.warmup.timeout:30s}") Duration timeout,
+                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.tailer = tailer;
+    this.snapshots = snapshots;
+    this.payload = payload;
+    this.repo = repo;
+    this.enabled = enabled;
+    this.iterations = iterations;
+    this.timeout = timeout;
+    this.virtualThreads = virtualThreads;
+    TimeGauge.builder("flag.startup.data.loaded.time", this, TimeUnit.MILLISECONDS, w -> orNaN(w.state.dataLoadedMs()))
+        .description("Time from JVM start until flags were first available to evaluate")
+        .register(meterRegistry);
+    TimeGauge.builder("flag.startup.warmed.time", this, TimeUnit.MILLISECONDS, w -> orNaN(w.state.warmedMs()))
+        .description("Time from JVM start until the evaluation path was warmed and readiness could report UP")
+        .register(meterRegistry);
+  }
+
+  public State state() { return state; }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      long now = uptimeMs();
+      state = new State(true, now, now, 0);
+      return;
+    }
+    WorkerThreads.start("flag-warmup", virtualThreads, this::run);
+  }
+
+  private void run() {
+    try {
+      // Nothing to serve yet: the tailer keeps retrying the database load meanwhile
+      while (tailer.syncStatus().source().equals("none")) Thread.sleep(50);
+    } catch (InterruptedException e) {
+      return;
+    }
+    long loaded = uptimeMs();
+    state = new State(false, loaded, -1, 0);
+    long deadline = System.nanoTime() + timeout.toNanos();
+    int evaluations = 0;
+    try {
+      FlagSnapshot snapshot = snapshots.current();
+      evaluations = evaluate(snapshot, deadline);
+      payload.current();
+      if (!snapshot.flags().isEmpty()) repo.findByFlagKey(snapshot.flags().keySet().iterator().next());
+    } catch (RuntimeException e) {
+      // Warming is an optimization; an instance with flags loaded can serve without it
+      logger.warn("Flag warm-up failed after {} evaluations, reporting ready anyway: {}", evaluations, e.getMessage());
+    }
+    long warmed = uptimeMs();
+    state = new State(true, loaded, warmed, evaluations);
+    logger.info("Flags available {} ms after JVM start; evaluation path warmed ({} evaluations) and ready after {} ms",
+        loaded, evaluations, warmed);
+  }
+
+  // Both evaluate entry points (by user id, and by HashedUser as bulk evaluation and
+  // prerequisites use), cycling through every flag with a different user each time
+  private int evaluate(FlagSnapshot snapshot, long deadline) {
+    List<CompiledFlag> plans = new ArrayList<>();
+    snapshot.allPlans().forEach(plans::add);
+    if (plans.isEmpty()) return 0;
+    int n = 0;
+    for (; n < iterations; n++) {
+      if ((n & 1023) == 0 && System.nanoTime() > deadline) break;
+      CompiledFlag f = plans.get(n % plans.size());
+      String userId = "warmup-" + n;
+      f.evaluateOutcome(userId, ATTRS);
+      f.evaluateOutcome(HashedUser.of(userId, snapshot.plans()), ATTRS);
+    }
+    return n;
+  }
+
+  private static long uptimeMs() {
+    return ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+
+  private static double orNaN(long ms) {
+    return ms < 0 ? Double.NaN : ms;
+  }
+}
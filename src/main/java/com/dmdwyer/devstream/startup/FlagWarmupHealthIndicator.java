@@ -0,0 +1,25 @@
+package com.dmdwyer.devstream.startup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// /actuator/health component "flagWarmup", included in the readiness group: DOWN until flags
+// are loaded and the evaluation path is warm (see FlagWarmup), UP from then on
+@Component
+public class FlagWarmupHealthIndicator implements HealthIndicator {
+  private final FlagWarmup warmup;
+
+  public FlagWarmupHealthIndicator(FlagWarmup warmup) {
+    this.warmup = warmup;
+  }
+
+  @Override
+  public Health health() {
+    FlagWarmup.State s = warmup.state();
+    Health.Builder h = s.warm() ? Health.up() : Health.down();
+    if (s.dataLoadedMs() >= 0) h.withDetail("dataLoadedMs", s.dataLoadedMs());
+    if (s.warmedMs() >= 0) h.withDetail("warmedMs", s.warmedMs()).withDetail("evaluations", s.evaluations());
+    return h.build();
+  }
+}
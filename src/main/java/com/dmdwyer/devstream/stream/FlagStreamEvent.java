@@ -0,0 +1,6 @@
+package com.dmdwyer.devstream.stream;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+
+// Payload of upsert/delete/heartbeat events; flag is only set on upsert
+public record FlagStreamEvent(long version, String flagKey, FlagDto flag) {}
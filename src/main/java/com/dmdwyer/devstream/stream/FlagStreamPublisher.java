@@ -0,0 +1,230 @@
+package com.dmdwyer.devstream.stream;
+
+import com.dmdwyer.devstream.common.WorkerThreads;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotChangedEvent;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotPayload;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Fans snapshot changes out to GET /flags/stream subscribers. Emitters are async, so a
+// subscriber holds a connection but no request thread. The publisher thread decides what each
+// subscriber gets, in version order, and only enqueues it: every event is serialized once and
+// the same bytes go into each subscriber's bounded queue (the snapshot event reuses the
+// FlagSnapshotPayload JSON). Each queue is drained by its own sender task, so a client that
+// stops reading only stalls itself. A subscriber whose queue overflows, or whose send has
+// been blocked for flags.stream.send-timeout, is disconnected; it reconnects and gets a fresh
+// snapshot.
+@Component
+public class FlagStreamPublisher {
+  private final FlagSnapshotStore snapshots;
+  private final FlagSnapshotPayload payload;
+  private final ObjectMapper om;
+  private final Duration timeout;
+  private final int queueCapacity;
+  private final long sendTimeoutNanos;
+  private final ScheduledExecutorService publisher;
+  private final ExecutorService senders;
+  private final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+  private final Counter evicted;
+  private final Logger logger = LoggerFactory.getLogger(FlagStreamPublisher.class);
+  private SnapshotEvent snapshotEvent; // publisher thread only
+
+  private record SnapshotEvent(FlagSnapshotPayload.Payload payload, Set<DataWithMediaType> event) {}
+
+  public FlagStreamPublisher(FlagSnapshotStore snapshots, FlagSnapshotPayload payload, ObjectMapper om, MeterRegistry meterRegistry,
+                             @Value("${flags.stream.timeout:30m}") Duration timeout,
+                             @Value("${flags.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                             @Value("${flags.stream.queue-capacity:256}") int queueCapacity,
+                             @Value("${flags.stream.send-timeout:10s}") Duration sendTimeout,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.snapshots = snapshots;
+    this.payload = payload;
+    this.om = om;
+    this.timeout = timeout;
+    this.queueCapacity = queueCapacity;
+    this.sendTimeoutNanos = sendTimeout.toNanos();
+    this.publisher = Executors.newSingleThreadScheduledExecutor(WorkerThreads.factory("flag-stream-publisher", virtualThreads));
+    // Senders only exist while a subscriber has something queued
+    this.senders = Executors.newCachedThreadPool(WorkerThreads.factory("flag-stream-sender", virtualThreads));
+    Gauge.builder("flag.stream.subscribers", subscribers, Map::size)
+        .description("Number of connected flag stream subscribers")
+        .register(meterRegistry);
+    this.evicted = Counter.builder("flag.stream.evicted")
+        .description("Stream subscribers disconnected for falling behind (queue full or send timed out)")
+        .register(meterRegistry);
+    long heartbeatMillis = heartbeatInterval.toMillis();
+    publisher.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    long checkMillis = Math.max(100, sendTimeout.toMillis() / 4);
+    publisher.scheduleWithFixedDelay(this::evictStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public SseEmitter subscribe() {
+    SseEmitter emitter = new SseEmitter(timeout.toMillis());
+    Subscriber subscriber = new Subscriber(emitter, queueCapacity);
+    emitter.onCompletion(() -> subscribers.remove(emitter));
+    emitter.onTimeout(() -> subscribers.remove(emitter));
+    emitter.onError(e -> subscribers.remove(emitter));
+    // Register and queue the full snapshot on the publisher thread, so no change can slip in between
+    publisher.execute(() -> {
+      subscribers.put(emitter, subscriber);
+      sendSnapshot(subscriber);
+    });
+    return emitter;
+  }
+
+  // Called under the snapshot store's write lock: only hand the work to the publisher thread
+  @EventListener
+  public void onSnapshotChanged(FlagSnapshotChangedEvent event) {
+    publisher.execute(() -> broadcast(event));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    publisher.shutdownNow();
+    senders.shutdownNow();
+    subscribers.keySet().forEach(SseEmitter::complete);
+  }
+
+  private void broadcast(FlagSnapshotChangedEvent event) {
+    FlagSnapshot snapshot = event.snapshot();
+    long version = snapshot.version();
+    Set<DataWithMediaType> delete = event.removedKey() == null || event.isReload() ? null
+        : event("delete", version, new FlagStreamEvent(version, event.removedKey(), null));
+    Set<DataWithMediaType> upsert = event.upserted() == null || event.isReload() ? null
+        : event("upsert", version, new FlagStreamEvent(version, event.upserted().flagKey(), event.upserted()));
+    for (Subscriber s : subscribers.values()) {
+      if (version <= s.version) continue; // already covered by the snapshot it was sent
+      if (event.isReload()) {
+        sendSnapshot(s);
+        continue;
+      }
+      if (delete != null) enqueue(s, version, delete);
+      if (upsert != null) enqueue(s, version, upsert);
+    }
+  }
+
+  // The id stays at the version each subscriber was last sent; one serialized heartbeat per distinct id
+  private void heartbeat() {
+    long current = snapshots.current().version();
+    Map<Long, Set<DataWithMediaType>> beats = new HashMap<>();
+    for (Subscriber s : subscribers.values()) {
+      if (!s.queue.isEmpty()) continue; // it has something to read already
+      enqueue(s, s.version, beats.computeIfAbsent(s.version, v -> event("heartbeat", v, new FlagStreamEvent(current, null, null))));
+    }
+  }
+
+  private void evictStalled() {
+    long now = System.nanoTime();
+    for (Subscriber s : subscribers.values()) {
+      long started = s.sendStarted;
+      if (started != 0 && now - started > sendTimeoutNanos) evict(s, "send blocked for over " + Duration.ofNanos(sendTimeoutNanos));
+    }
+  }
+
+  // The snapshot event is {"version":N,"flags":[...]} (FlagStreamSnapshot); the flags array is
+  // spliced in from the cached GET /flags/snapshot JSON instead of serialized again
+  private void sendSnapshot(Subscriber s) {
+    FlagSnapshotPayload.Payload p = payload.current();
+    if (snapshotEvent == null || snapshotEvent.payload() != p) {
+      long version = p.snapshot().version();
+      byte[] prefix = ("{\"version\":" + version + ",").getBytes(StandardCharsets.UTF_8);
+      byte[] body = new byte[prefix.length + p.json().length - 1];
+      System.arraycopy(prefix, 0, body, 0, prefix.length);
+      System.arraycopy(p.json(), 1, body, prefix.length, p.json().length - 1);
+      snapshotEvent = new SnapshotEvent(p, SseEmitter.event().id(Long.toString(version)).name("snapshot")
+          .data(body, MediaType.APPLICATION_JSON).build());
+    }
+    s.queue.clear(); // anything still queued is older than the snapshot
+    enqueue(s, snapshotEvent.payload().snapshot().version(), snapshotEvent.event());
+  }
+
+  private Set<DataWithMediaType> event(String name, long version, FlagStreamEvent data) {
+    try {
+      return SseEmitter.event().id(Long.toString(version)).name(name)
+          .data(om.writeValueAsBytes(data), MediaType.APPLICATION_JSON).build();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void enqueue(Subscriber s, long version, Set<DataWithMediaType> event) {
+    if (!s.queue.offer(event)) {
+      evict(s, "more than " + queueCapacity + " events behind");
+      return;
+    }
+    s.version = version;
+    if (s.draining.compareAndSet(false, true)) senders.execute(() -> drain(s));
+  }
+
+  private void drain(Subscriber s) {
+    while (true) {
+      Set<DataWithMediaType> event;
+      while ((event = s.queue.poll()) != null) {
+        s.sendStarted = System.nanoTime();
+        try {
+          s.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+          // the container reports the failure through onError, which also removes the emitter
+          logger.debug("Dropping flag stream subscriber: {}", e.getMessage());
+          subscribers.remove(s.emitter);
+          s.queue.clear();
+        } finally {
+          s.sendStarted = 0;
+        }
+      }
+      s.draining.set(false);
+      // an enqueue that saw draining still set relies on this loop to pick its event up
+      if (s.queue.isEmpty() || !s.draining.compareAndSet(false, true)) return;
+    }
+  }
+
+  private void evict(Subscriber s, String reason) {
+    if (subscribers.remove(s.emitter) == null) return;
+    s.queue.clear();
+    evicted.increment();
+    logger.info("Disconnecting flag stream subscriber: {}", reason);
+    // complete() waits for a blocked send to give up, so don't do it on the publisher thread
+    senders.execute(s.emitter::complete);
+  }
+
+  private static final class Subscriber {
+    final SseEmitter emitter;
+    final ArrayBlockingQueue<Set<DataWithMediaType>> queue;
+    final AtomicBoolean draining = new AtomicBoolean();
+    volatile long sendStarted; // nanoTime of the send in progress, 0 when idle
+    long version;              // newest version queued; publisher thread only
+
+    Subscriber(SseEmitter emitter, int capacity) {
+      this.emitter = emitter;
+      this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+  }
+}
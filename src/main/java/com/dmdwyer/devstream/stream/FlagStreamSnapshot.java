@@ -0,0 +1,9 @@
+package com.dmdwyer.devstream.stream;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+
+import java.util.List;
+
+// Payload of the snapshot event sent on connect (and after a full reload). FlagStreamPublisher
+// writes this shape from the cached FlagSnapshotPayload JSON rather than serializing it.
+public record FlagStreamSnapshot(long version, List<FlagDto> flags) {}
@@ -0,0 +1,61 @@
+package com.dmdwyer.devstream.integration.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dmdwyer.devstream.AbstractPostgresContainerTest;
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.changes.FlagChangeSchema;
+import com.dmdwyer.devstream.entity.FlagChange;
+
+import io.qameta.allure.Description;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Feature;
+import io.qameta.allure.Severity;
+import io.qameta.allure.SeverityLevel;
+import io.qameta.allure.Story;
+
+@SpringBootTest
+@Import(AbstractPostgresContainerTest.class)
+@Epic("Feature Flags Management")
+@Feature("Cross-instance Change Log")
+public class FlagChangeSchemaIT {
+
+    @Autowired
+    private FlagChangeSchema schema;
+
+    @Autowired
+    private FlagChangeLog changeLog;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Test
+    @Story("Schema upgrade")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that a flag_changes type check constraint from an older schema is widened so newer change types can be written")
+    void shouldWidenTypeCheckFromOlderSchema() {
+        // The constraint ddl-auto created before SEGMENT and RELOAD existed
+        jdbc.update("delete from flag_changes where type not in ('UPSERT', 'DELETE')");
+        jdbc.execute("alter table flag_changes drop constraint if exists flag_changes_type_check,"
+            + " add constraint flag_changes_type_check check (type in ('UPSERT', 'DELETE'))");
+
+        schema.widenTypeCheck();
+
+        tx.executeWithoutResult(status -> {
+            changeLog.append("beta", null, FlagChange.Type.SEGMENT);
+            changeLog.append("*", null, FlagChange.Type.RELOAD);
+        });
+        assertThat(jdbc.queryForObject("select count(*) from flag_changes where type in ('SEGMENT', 'RELOAD')", Integer.class))
+            .isGreaterThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,157 @@
+package com.dmdwyer.devstream.integration.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.changes.FlagChangeTailer;
+import com.dmdwyer.devstream.entity.Flag;
+import com.dmdwyer.devstream.entity.FlagChange;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
+import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.segment.SegmentStore;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotFile;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.Description;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Feature;
+import io.qameta.allure.Severity;
+import io.qameta.allure.SeverityLevel;
+import io.qameta.allure.Story;
+
+// Runs against the default embedded H2 database, so only polling is exercised
+@SpringBootTest(properties = "flags.changes.poll-interval=50ms")
+@Epic("Feature Flags Management")
+@Feature("Cross-instance Change Log")
+public class FlagChangeTailerIT {
+
+    @Autowired
+    private FlagRepository flagRepository;
+
+    @Autowired
+    private FlagChangeRepository changeRepository;
+
+    @Autowired
+    private FlagSnapshotStore snapshotStore;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SegmentStore segmentStore;
+
+    @Autowired
+    private FlagChangeLog changeLog;
+
+    @Autowired
+    private FlagSnapshotFile snapshotFile;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @Story("Apply changes from other instances")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that creates, updates and deletes committed by another instance reach this instance's snapshot through flag_changes")
+    void shouldApplyChangesCommittedByAnotherInstance() throws Exception {
+        tx.executeWithoutResult(status -> {
+            Flag f = new Flag();
+            f.setFlagKey("remote-flag");
+            f.setEnabled(true);
+            flagRepository.save(f);
+            changeRepository.save(new FlagChange("remote-flag", null, FlagChange.Type.UPSERT, "other-instance", Instant.now()));
+        });
+        await(() -> snapshotStore.current().find("remote-flag").isPresent());
+        assertThat(snapshotStore.current().find("remote-flag").get().plan().evaluate("u1", Map.of())).isEqualTo("ON");
+
+        tx.executeWithoutResult(status -> {
+            Flag f = flagRepository.findByFlagKey("remote-flag").orElseThrow();
+            f.setEnabled(false);
+            changeRepository.save(new FlagChange("remote-flag", null, FlagChange.Type.UPSERT, "other-instance", Instant.now()));
+        });
+        await(() -> snapshotStore.current().find("remote-flag").map(e -> !e.flag().enabled()).orElse(false));
+
+        tx.executeWithoutResult(status -> {
+            flagRepository.delete(flagRepository.findByFlagKey("remote-flag").orElseThrow());
+            changeRepository.save(new FlagChange("remote-flag", null, FlagChange.Type.DELETE, "other-instance", Instant.now()));
+        });
+        await(() -> snapshotStore.current().find("remote-flag").isEmpty());
+
+        assertThat(meterRegistry.get("flag.changes.lag").timer().count()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    @Story("Apply changes from other instances")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that a change whose seq was taken before a full load, but which commits after it, is still applied")
+    void shouldApplyLowerSeqCommittedAfterReconcile() throws Exception {
+        // An open transaction holds seq N while a later one commits N+1
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        long[] lateSeq = new long[1];
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            Flag f = new Flag();
+            f.setFlagKey("late-flag");
+            f.setEnabled(true);
+            flagRepository.save(f);
+            lateSeq[0] = changeRepository.save(new FlagChange("late-flag", null, FlagChange.Type.UPSERT, "other-instance", Instant.now())).getSeq();
+            inserted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+        long laterSeq = tx.execute(status ->
+            changeRepository.save(new FlagChange("later-flag", null, FlagChange.Type.UPSERT, "other-instance", Instant.now())).getSeq());
+        assertThat(laterSeq).isGreaterThan(lateSeq[0]);
+
+        // A second tailer does its full load now, while N is still in flight; its own registry
+        // counts only the changes it applies
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FlagChangeTailer tailer = new FlagChangeTailer(changeRepository, snapshotStore, segmentStore, changeLog, snapshotFile,
+            dataSource, registry, true, Duration.ofMillis(50), 500, Duration.ofSeconds(30), false);
+        try {
+            tailer.start();
+            assertThat(tailer.visibleSeq()).isLessThan(lateSeq[0]);
+
+            release.countDown();
+            late.get(10, TimeUnit.SECONDS);
+            await(() -> tailer.visibleSeq() >= laterSeq);
+            assertThat(registry.get("flag.changes.lag").timer().count()).isEqualTo(1); // N; N+1 was in the load
+            assertThat(snapshotStore.current().find("late-flag")).isPresent();
+        } finally {
+            release.countDown();
+            tailer.shutdown();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Change was not applied within 10s");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -16,9 +16,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.dmdwyer.devstream.AbstractPostgresContainerTest;
+import com.dmdwyer.devstream.dto.BulkEvaluationRequest;
+import com.dmdwyer.devstream.dto.BulkEvaluationResponse;
 import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.dto.FlagImportResult;
+import com.dmdwyer.devstream.repository.FlagChangeRepository;
 import com.dmdwyer.devstream.repository.FlagRepository;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
 
 import io.qameta.allure.Description;
 import io.qameta.allure.Epic;
@@ -42,12 +50,19 @@ public class FlagControllerIT {
     @Autowired
     private FlagRepository flagRepository;
 
+    @Autowired
+    private FlagSnapshotStore snapshotStore;
+
+    @Autowired
+    private FlagChangeRepository changeRepository;
+
     private String baseUrl;
 
     @BeforeEach
     void setup() {
         baseUrl = "http://localhost:" + port + "/flags";
         flagRepository.deleteAll();
+        snapshotStore.load(); // the repository bypasses the service, so resync the in-memory snapshot
     }
 
     @Test
@@ -218,4 +233,338 @@ public class FlagControllerIT {
         assertThat(evalResp.getBody()).isNotNull();
         assertThat(evalResp.getBody().get("variant")).isIn("A", "B");
     }
+
+    @Test
+    @Story("Reject malformed flag definitions")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that a flag whose rulesJson is not valid JSON is rejected with 400 BAD REQUEST at write time")
+    void shouldRejectMalformedRules() {
+        FlagDto dto = new FlagDto(null, "malformed-flag", true, "[{\"if\":", null);
+
+        ResponseEntity<String> resp = restTemplate.postForEntity(baseUrl, new HttpEntity<>(dto), String.class);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(resp.getBody()).contains("rulesJson");
+        assertThat(flagRepository.existsByFlagKey("malformed-flag")).isFalse();
+    }
+
+    @Test
+    @Story("Reject malformed flag definitions")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that typed rules are validated on FlagDto and evaluated once saved")
+    void shouldValidateAndEvaluateTypedRules() {
+        FlagDto bad = new FlagDto(null, "typed-bad", true, "[{\"when\":{\"attr\":\"age\",\"op\":\"older_than\",\"value\":18},\"then\":\"A\"}]", null);
+        ResponseEntity<JsonNode> rejected = restTemplate.postForEntity(baseUrl, new HttpEntity<>(bad), JsonNode.class);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(rejected.getBody().get("error").asText()).isEqualTo("VALIDATION_FAILED");
+        assertThat(rejected.getBody().get("details").get(0).get("message").asText()).contains("unknown op 'older_than'");
+
+        FlagDto good = new FlagDto(null, "typed-good", true,
+            "[{\"when\":{\"and\":[{\"attr\":\"country\",\"op\":\"in\",\"values\":[\"IE\",\"GB\"]},"
+                + "{\"attr\":\"app\",\"op\":\"semver_gte\",\"value\":\"2.0.0\"}]},\"then\":\"new\"}]", null);
+        assertThat(restTemplate.postForEntity(baseUrl, new HttpEntity<>(good), FlagDto.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForObject(baseUrl + "/typed-good/evaluate?userId=u1&country=gb&app=2.1.0", java.util.Map.class).get("variant")).isEqualTo("new");
+        assertThat(restTemplate.getForObject(baseUrl + "/typed-good/evaluate?userId=u1&country=gb&app=1.9.9", java.util.Map.class).get("variant")).isEqualTo("ON");
+    }
+
+    @Test
+    @Story("Bulk evaluate flags for user")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that POST /flags/evaluate returns the variant of every requested flag in one response and skips unknown keys")
+    void shouldBulkEvaluateFlagsForUser() {
+        String rulesJson = "[{\"if\":\"country=IE\",\"then\":\"ireland-variant\"}]";
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "bulk-rules", true, rulesJson, null)), FlagDto.class);
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "bulk-off", false, null, null)), FlagDto.class);
+
+        BulkEvaluationRequest req = new BulkEvaluationRequest("user123", java.util.Map.of("country", "IE"),
+            java.util.List.of("bulk-rules", "bulk-off", "bulk-missing"));
+        ResponseEntity<BulkEvaluationResponse> resp = restTemplate.postForEntity(
+            baseUrl + "/evaluate", new HttpEntity<>(req), BulkEvaluationResponse.class);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().variants())
+            .containsEntry("bulk-rules", "ireland-variant")
+            .containsEntry("bulk-off", "OFF")
+            .doesNotContainKey("bulk-missing");
+    }
+
+    @Test
+    @Story("Conditional requests")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that GET /flags/{key} returns an ETag and answers a matching If-None-Match with 304")
+    void shouldReturnNotModifiedForMatchingETag() {
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "etag-flag", true, null, null)), FlagDto.class);
+
+        ResponseEntity<FlagDto> first = restTemplate.getForEntity(baseUrl + "/etag-flag", FlagDto.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"" + first.getBody().id() + ".0\"");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<FlagDto> second = restTemplate.exchange(
+            baseUrl + "/etag-flag", HttpMethod.GET, new HttpEntity<>(headers), FlagDto.class);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getBody()).isNull();
+
+        ResponseEntity<String> list = restTemplate.getForEntity(baseUrl, String.class);
+        HttpHeaders listHeaders = new HttpHeaders();
+        listHeaders.setIfNoneMatch(list.getHeaders().getETag());
+        ResponseEntity<String> listAgain = restTemplate.exchange(baseUrl, HttpMethod.GET, new HttpEntity<>(listHeaders), String.class);
+        assertThat(listAgain.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        // Re-created under the same key: version 0 again, but a different row
+        restTemplate.delete(baseUrl + "/etag-flag");
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "etag-flag", false, null, null)), FlagDto.class);
+        ResponseEntity<FlagDto> recreated = restTemplate.exchange(
+            baseUrl + "/etag-flag", HttpMethod.GET, new HttpEntity<>(headers), FlagDto.class);
+        assertThat(recreated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(recreated.getHeaders().getETag()).isNotEqualTo(etag);
+        ResponseEntity<String> listRecreated = restTemplate.exchange(baseUrl, HttpMethod.GET, new HttpEntity<>(listHeaders), String.class);
+        assertThat(listRecreated.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @Story("Optimistic locking")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that PATCH with a current If-Match succeeds and bumps the ETag, while a stale If-Match fails with 412")
+    void shouldRejectStaleIfMatch() {
+        Long id = restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "locked-flag", false, null, null)), FlagDto.class)
+            .getBody().id();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setIfMatch("\"" + id + ".0\"");
+        ResponseEntity<FlagDto> patched = restTemplate.exchange(baseUrl + "/locked-flag", HttpMethod.PATCH,
+            new HttpEntity<>(new FlagDto(null, null, true, null, null), headers), FlagDto.class);
+        assertThat(patched.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(patched.getHeaders().getETag()).isEqualTo("\"" + id + ".1\"");
+        assertThat(patched.getBody().version()).isEqualTo(1L);
+
+        ResponseEntity<String> stale = restTemplate.exchange(baseUrl + "/locked-flag", HttpMethod.PATCH,
+            new HttpEntity<>(new FlagDto(null, null, false, null, null), headers), String.class);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        ResponseEntity<Void> staleDelete = restTemplate.exchange(baseUrl + "/locked-flag", HttpMethod.DELETE,
+            new HttpEntity<>(headers), Void.class);
+        assertThat(staleDelete.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(flagRepository.findByFlagKey("locked-flag")).get().extracting(f -> f.isEnabled()).isEqualTo(true);
+    }
+
+    @Test
+    @Story("Keyset pagination")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that GET /flags?limit=&after= walks every flag in key order and view=summary omits rules and variants")
+    void shouldPageFlagsByCursor() throws Exception {
+        for (String key : new String[] {"page-c", "page-a", "page-b"}) {
+            restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, key, true, null, "{\"A\":100}")), FlagDto.class);
+        }
+        ObjectMapper om = new ObjectMapper();
+
+        JsonNode first = om.readTree(restTemplate.getForObject(baseUrl + "?limit=2", String.class));
+        assertThat(first.path("items")).extracting(n -> n.path("flagKey").asText()).containsExactly("page-a", "page-b");
+        assertThat(first.path("nextCursor").asText()).isEqualTo("page-b");
+
+        JsonNode second = om.readTree(
+            restTemplate.getForObject(baseUrl + "?limit=2&after=page-b&view=summary", String.class));
+        assertThat(second.path("items")).extracting(n -> n.path("flagKey").asText()).containsExactly("page-c");
+        assertThat(second.path("items").get(0).has("variantsJson")).isFalse();
+        assertThat(second.path("items").get(0).path("version").asLong()).isZero();
+        assertThat(second.path("nextCursor").isNull()).isTrue();
+    }
+
+    @Test
+    @Story("Bulk import and export")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that POST /flags/import upserts NDJSON lines, reports invalid ones, and GET /flags/export streams them back")
+    void shouldImportAndExportNdjson() {
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "import-existing", false, null, null)), FlagDto.class);
+        String ndjson = String.join("\n",
+            "{\"flagKey\":\"import-existing\",\"enabled\":true}",
+            "{\"flagKey\":\"import-new\",\"enabled\":true,\"variantsJson\":\"{\\\"A\\\":100}\"}",
+            "{\"flagKey\":\"Not Valid\"}",
+            "{\"flagKey\":");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        ResponseEntity<FlagImportResult> imported = restTemplate.postForEntity(
+            baseUrl + "/import", new HttpEntity<>(ndjson, headers), FlagImportResult.class);
+
+        assertThat(imported.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(imported.getBody()).isNotNull();
+        assertThat(imported.getBody().inserted()).isEqualTo(1);
+        assertThat(imported.getBody().updated()).isEqualTo(1);
+        assertThat(imported.getBody().rejected()).isEqualTo(2);
+        assertThat(imported.getBody().errors()).hasSize(2).first().asString().startsWith("line 3:");
+
+        // the import is published to the snapshot once it commits
+        assertThat(restTemplate.getForObject(baseUrl + "/import-new/evaluate?userId=u1", java.util.Map.class).get("variant")).isEqualTo("A");
+
+        String exported = restTemplate.getForObject(baseUrl + "/export", String.class);
+        assertThat(exported.lines().toList()).hasSize(2)
+            .anySatisfy(l -> assertThat(l).contains("\"flagKey\":\"import-existing\"").contains("\"enabled\":true").contains("\"version\":1"))
+            .anySatisfy(l -> assertThat(l).contains("\"flagKey\":\"import-new\""));
+    }
+
+    @Test
+    @Story("Target user segments")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that a streamed segment upload is targetable from a flag rule and cannot be deleted while a flag uses it")
+    void shouldTargetSegmentMembers() {
+        String segmentsUrl = "http://localhost:" + port + "/segments";
+        HttpHeaders text = new HttpHeaders();
+        text.setContentType(MediaType.TEXT_PLAIN);
+        ResponseEntity<JsonNode> uploaded = restTemplate.exchange(segmentsUrl + "/it-beta/members", HttpMethod.PUT,
+            new HttpEntity<>("u1\nu2\n\nu2\n", text), JsonNode.class);
+        assertThat(uploaded.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(uploaded.getBody().get("memberCount").asInt()).isEqualTo(2);
+
+        ResponseEntity<FlagDto> created = restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "segment-flag", true,
+            "[{\"segment\":\"it-beta\",\"then\":\"beta\"}]", null)), FlagDto.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForObject(baseUrl + "/segment-flag/evaluate?userId=u2", java.util.Map.class).get("variant")).isEqualTo("beta");
+        assertThat(restTemplate.getForObject(baseUrl + "/segment-flag/evaluate?userId=u3", java.util.Map.class).get("variant")).isEqualTo("ON");
+
+        ResponseEntity<String> unknown = restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "unknown-segment-flag", true,
+            "[{\"segment\":\"it-missing\",\"then\":\"beta\"}]", null)), String.class);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        ResponseEntity<String> inUse = restTemplate.exchange(segmentsUrl + "/it-beta", HttpMethod.DELETE, null, String.class);
+        assertThat(inUse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        restTemplate.delete(baseUrl + "/segment-flag");
+        ResponseEntity<Void> deleted = restTemplate.exchange(segmentsUrl + "/it-beta", HttpMethod.DELETE, null, Void.class);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(restTemplate.getForEntity(segmentsUrl + "/it-beta", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @Story("Stream flag changes")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that GET /flags/stream sends a snapshot on connect and an upsert event once a created flag commits")
+    void shouldStreamSnapshotThenChanges() throws Exception {
+        java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(java.net.URI.create(baseUrl + "/stream"))
+            .header("Accept", "text/event-stream")
+            .build();
+        java.net.http.HttpResponse<java.util.stream.Stream<String>> response =
+            client.send(request, java.net.http.HttpResponse.BodyHandlers.ofLines());
+        java.util.Iterator<String> lines = response.body().iterator();
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        awaitLine(lines, "event:snapshot");
+
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "streamed-flag", true, null, null)), FlagDto.class);
+
+        awaitLine(lines, "event:upsert");
+        assertThat(awaitLine(lines, "data:")).contains("streamed-flag");
+        response.body().close();
+    }
+
+    @Test
+    @Story("Download all flags")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that GET /flags/snapshot serves gzip on request under its own ETag, answers If-None-Match with either ETag with 304, and changes its ETag after a write")
+    void shouldServeCompressedSnapshotWithETag() throws Exception {
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "snap-b", true, null, null)), FlagDto.class);
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "snap-a", false, null, null)), FlagDto.class);
+        java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+        java.net.URI uri = java.net.URI.create(baseUrl + "/snapshot");
+
+        java.net.http.HttpResponse<byte[]> gzipped = client.send(java.net.http.HttpRequest.newBuilder(uri)
+            .header("Accept-Encoding", "gzip").build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(gzipped.statusCode()).isEqualTo(200);
+        assertThat(gzipped.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        String etag = gzipped.headers().firstValue("ETag").orElseThrow();
+        JsonNode body;
+        try (var in = new java.util.zip.GZIPInputStream(new java.io.ByteArrayInputStream(gzipped.body()))) {
+            body = new ObjectMapper().readTree(in);
+        }
+        assertThat(body.path("flags")).extracting(n -> n.path("flagKey").asText()).containsExactly("snap-a", "snap-b");
+
+        java.net.http.HttpResponse<String> plain = client.send(java.net.http.HttpRequest.newBuilder(uri).build(),
+            java.net.http.HttpResponse.BodyHandlers.ofString());
+        assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+        String plainEtag = plain.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).endsWith("-gzip\"").isEqualTo(plainEtag.replaceFirst("\"$", "-gzip\""));
+        assertThat(new ObjectMapper().readTree(plain.body())).isEqualTo(body);
+
+        java.net.http.HttpResponse<byte[]> notModified = client.send(java.net.http.HttpRequest.newBuilder(uri)
+            .header("If-None-Match", etag).build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(notModified.statusCode()).isEqualTo(304);
+        assertThat(notModified.headers().firstValue("ETag")).hasValue(plainEtag);
+
+        java.net.http.HttpResponse<byte[]> notModifiedGzip = client.send(java.net.http.HttpRequest.newBuilder(uri)
+            .header("Accept-Encoding", "gzip").header("If-None-Match", "\"other\", " + plainEtag).build(),
+            java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(notModifiedGzip.statusCode()).isEqualTo(304);
+        assertThat(notModifiedGzip.headers().firstValue("ETag")).hasValue(etag);
+
+        restTemplate.delete(baseUrl + "/snap-b");
+        java.net.http.HttpResponse<String> changed = client.send(java.net.http.HttpRequest.newBuilder(uri)
+            .header("If-None-Match", etag).build(), java.net.http.HttpResponse.BodyHandlers.ofString());
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.headers().firstValue("ETag")).isNotEqualTo(java.util.Optional.of(etag));
+        assertThat(changed.body()).doesNotContain("snap-b");
+    }
+
+    @Test
+    @Story("Delta sync")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that GET /flags/changes returns upserts and tombstones after a cursor, and asks for a resync without a cursor or once the log is compacted")
+    void shouldListChangesSinceCursor() throws Exception {
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "delta-seed", true, null, null)), FlagDto.class);
+        JsonNode bootstrap = awaitChanges(0, c -> c.path("next").asLong() > 0);
+        assertThat(bootstrap.path("resyncRequired").asBoolean()).isTrue();
+        long cursor = bootstrap.path("next").asLong();
+
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "delta-a", true, null, null)), FlagDto.class);
+        restTemplate.postForEntity(baseUrl, new HttpEntity<>(new FlagDto(null, "delta-b", true, null, null)), FlagDto.class);
+        HttpHeaders json = new HttpHeaders();
+        json.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange(baseUrl + "/delta-b", HttpMethod.PATCH, new HttpEntity<>(new FlagDto(null, "delta-c", null, null, null), json), FlagDto.class);
+        restTemplate.delete(baseUrl + "/delta-a");
+
+        JsonNode delta = awaitChanges(cursor, c -> keys(c.path("upserted"), "flag").contains("delta-c")
+            && keys(c.path("deleted"), null).contains("delta-a"));
+        assertThat(delta.path("resyncRequired").asBoolean()).isFalse();
+        assertThat(keys(delta.path("upserted"), "flag")).contains("delta-c").doesNotContain("delta-a", "delta-b");
+        assertThat(keys(delta.path("deleted"), null)).contains("delta-a", "delta-b").doesNotContain("delta-c");
+        assertThat(delta.path("next").asLong()).isGreaterThan(cursor);
+        for (JsonNode u : delta.path("upserted")) assertThat(u.path("seq").asLong()).isBetween(cursor + 1, delta.path("next").asLong());
+
+        assertThat(restTemplate.getForObject(baseUrl + "/changes?since=" + Long.MAX_VALUE, JsonNode.class)
+            .path("resyncRequired").asBoolean()).isTrue();
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=-1", String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        changeRepository.deleteChangedBefore(java.time.Instant.now().plusSeconds(60));
+        assertThat(restTemplate.getForObject(baseUrl + "/changes?since=" + cursor, JsonNode.class)
+            .path("resyncRequired").asBoolean()).isTrue();
+    }
+
+    private JsonNode awaitChanges(long since, java.util.function.Predicate<JsonNode> done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        JsonNode changes;
+        do {
+            changes = restTemplate.getForObject(baseUrl + "/changes?since=" + since, JsonNode.class);
+            if (done.test(changes)) return changes;
+            Thread.sleep(100);
+        } while (System.currentTimeMillis() < deadline);
+        throw new AssertionError("Changes since " + since + " never matched: " + changes);
+    }
+
+    private static java.util.List<String> keys(JsonNode items, String field) {
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        for (JsonNode item : items) keys.add((field != null ? item.path(field) : item).path("flagKey").asText());
+        return keys;
+    }
+
+    private static String awaitLine(java.util.Iterator<String> lines, String prefix) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith(prefix)) return line;
+        }
+        throw new AssertionError("No SSE line starting with " + prefix);
+    }
 }
@@ -0,0 +1,132 @@
+package com.dmdwyer.devstream.integration.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.dmdwyer.devstream.changes.FlagChangeLog;
+import com.dmdwyer.devstream.datasource.ReplicaDataSource;
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.service.FlagService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.qameta.allure.Description;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Feature;
+import io.qameta.allure.Severity;
+import io.qameta.allure.SeverityLevel;
+import io.qameta.allure.Story;
+
+// Two embedded H2 databases stand in for a primary and its replica. Replication is done by
+// hand (SCRIPT on the primary, RUNSCRIPT on the replica), so the test decides how far behind
+// the replica is.
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:rr-primary;DB_CLOSE_DELAY=-1",
+    "flags.datasource.replicas=" + ReplicaRoutingIT.REPLICA_URL,
+    "flags.datasource.replica-check-interval=100ms"
+})
+@Epic("Application Infrastructure")
+@Feature("Read Replicas")
+public class ReplicaRoutingIT {
+    static final String PRIMARY_URL = "jdbc:h2:mem:rr-primary";
+    static final String REPLICA_URL = "jdbc:h2:mem:rr-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private FlagService flagService;
+
+    @Autowired
+    private ReplicaDataSource replicas;
+
+    @Autowired
+    private FlagChangeLog changeLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @Story("Route read-only transactions to replicas")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that reads go to a caught-up replica, that reads after a write stay on the primary until the replica has replayed it, and that an unhealthy replica is skipped")
+    void shouldRouteReadsByReplicaHealthAndLag() throws Exception {
+        // The replica has no schema yet, so it fails its checks and lists come from the primary
+        await(() -> replicas.statuses().get(0).lastError() != null);
+        assertThat(replicas.statuses().get(0).healthy()).isFalse();
+        double primaryReads = reads("primary");
+        assertThat(variants("homepage_banner")).isEqualTo("{\"A\":50,\"B\":50}");
+        assertThat(reads("primary")).isGreaterThan(primaryReads);
+
+        // Caught up: a row only the replica has proves where the list was read
+        replicate();
+        awaitCaughtUp();
+        execute(REPLICA_URL, "update flags set variants_json = '{\"REPLICA\":100}' where flag_key = 'homepage_banner'");
+        double replicaReads = reads("replica-0");
+        assertThat(variants("homepage_banner")).isEqualTo("{\"REPLICA\":100}");
+        assertThat(reads("replica-0")).isGreaterThan(replicaReads);
+
+        // Read-your-writes: the replica hasn't replayed the update, so reads go back to the primary
+        flagService.update("homepage_banner", new FlagDto(null, null, null, null, "{\"A\":100}"));
+        assertThat(replicas.statuses().get(0).seq()).isLessThan(changeLog.lastCommittedSeq());
+        assertThat(variants("homepage_banner")).isEqualTo("{\"A\":100}");
+
+        replicate();
+        awaitCaughtUp();
+        replicaReads = reads("replica-0");
+        assertThat(variants("homepage_banner")).isEqualTo("{\"A\":100}");
+        assertThat(reads("replica-0")).isGreaterThan(replicaReads);
+
+        // Replica lost: it fails its next check and reads fail over to the primary
+        execute(REPLICA_URL, "shutdown");
+        await(() -> !replicas.statuses().get(0).healthy());
+        primaryReads = reads("primary");
+        assertThat(variants("homepage_banner")).isEqualTo("{\"A\":100}");
+        assertThat(reads("primary")).isGreaterThan(primaryReads);
+    }
+
+    private String variants(String key) {
+        return flagService.listAfter(null, 100).items().stream()
+            .filter(f -> f.flagKey().equals(key)).findFirst().orElseThrow().variantsJson();
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("flag.datasource.reads").tag("target", target).counter().count();
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        long required = changeLog.lastCommittedSeq();
+        await(() -> replicas.statuses().get(0).healthy() && replicas.statuses().get(0).seq() >= required);
+    }
+
+    private static void replicate() throws Exception {
+        Path script = Files.createTempFile("replica", ".sql");
+        try {
+            execute(PRIMARY_URL, "script to '" + script.toString().replace("'", "''") + "'");
+            execute(REPLICA_URL, "drop all objects", "runscript from '" + script.toString().replace("'", "''") + "'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    private static void execute(String url, String... sql) throws SQLException {
+        try (Connection c = DriverManager.getConnection(url, "sa", ""); Statement st = c.createStatement()) {
+            for (String s : sql) st.execute(s);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Condition not met within 10s");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -12,11 +13,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import com.dmdwyer.devstream.AbstractPostgresContainerTest;
 import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.entity.Flag;
 import com.dmdwyer.devstream.repository.FlagRepository;
 import com.dmdwyer.devstream.service.FlagService;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotStore;
 
 import io.qameta.allure.Description;
 import io.qameta.allure.Epic;
@@ -25,7 +29,7 @@ import io.qameta.allure.Severity;
 import io.qameta.allure.SeverityLevel;
 import io.qameta.allure.Story;
 
-@SpringBootTest
+@SpringBootTest(properties = "flags.exposures.jdbc.enabled=true")
 @Import(AbstractPostgresContainerTest.class)
 @Epic("Feature Flags Management")
 @Feature("Flag Service Layer")
@@ -37,9 +41,16 @@ public class FlagServiceIT {
     @Autowired
     private FlagRepository flagRepository;
 
+    @Autowired
+    private FlagSnapshotStore snapshotStore;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
     @BeforeEach
     void cleanup() {
         flagRepository.deleteAll();
+        snapshotStore.load(); // the repository bypasses the service, so resync the in-memory snapshot
     }
 
     @Test
@@ -210,4 +221,80 @@ public class FlagServiceIT {
         assertThat(flagService.evaluate("complex-rules-flag", "user2", usAttrs)).isEqualTo("usa");
         assertThat(flagService.evaluate("complex-rules-flag", "user3", premiumAttrs)).isEqualTo("premium");
     }
+
+    @Test
+    @Story("Evaluate reflects committed updates")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that evaluation, which is served from the in-memory snapshot, sees updates and deletes once they commit")
+    void shouldEvaluateAgainstLatestSnapshot() {
+        flagService.create(new FlagDto(null, "snapshot-flag", true, null, null));
+        assertThat(flagService.evaluate("snapshot-flag", "user123", Map.of())).isEqualTo("ON");
+
+        flagService.update("snapshot-flag", new FlagDto(null, null, false, null, null));
+        assertThat(flagService.evaluate("snapshot-flag", "user123", Map.of())).isEqualTo("OFF");
+
+        flagService.delete("snapshot-flag");
+        assertThatThrownBy(() -> flagService.evaluate("snapshot-flag", "user123", Map.of()))
+            .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    @Story("Evaluate reflects committed updates")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that an update published after a concurrent delete's publish does not bring the deleted flag back")
+    void shouldNotResurrectFlagDeletedBeforeUpdatePublished() {
+        flagService.create(new FlagDto(null, "raced-flag", true, null, null));
+        FlagDto updated = flagService.update("raced-flag", new FlagDto(null, null, false, null, null));
+        flagService.delete("raced-flag");
+
+        // The update's after-commit publish running late, after the delete's
+        snapshotStore.upsertAfterCommit("raced-flag", updated, snapshotStore.compile(updated));
+
+        assertThat(snapshotStore.current().find("raced-flag")).isEmpty();
+        assertThat(flagService.get("raced-flag")).isEmpty();
+    }
+
+    @Test
+    @Story("Read path")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that get falls back to a database projection for a flag the in-memory snapshot has not seen")
+    void shouldGetFlagMissingFromSnapshot() {
+        Flag f = new Flag();
+        f.setFlagKey("unpublished-flag");
+        f.setEnabled(true);
+        flagRepository.save(f); // bypasses the service, so the snapshot never hears about it
+
+        assertThat(snapshotStore.current().find("unpublished-flag")).isEmpty();
+        assertThat(flagService.get("unpublished-flag"))
+            .hasValueSatisfying(dto -> {
+                assertThat(dto.enabled()).isTrue();
+                assertThat(dto.version()).isZero();
+            });
+    }
+
+    @Test
+    @Story("Exposure logging")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Tests that bulk evaluation records exposures only for explicitly requested keys, not for every flag")
+    void shouldRecordBulkExposuresOnlyForRequestedKeys() throws InterruptedException {
+        flagService.create(new FlagDto(null, "bulk-a", true, null, null));
+        flagService.create(new FlagDto(null, "bulk-b", true, null, null));
+
+        assertThat(flagService.evaluateAll("bulk-all-user", Map.of(), null).variants()).containsKeys("bulk-a", "bulk-b");
+        assertThat(flagService.evaluateAll("bulk-keys-user", Map.of(), List.of("bulk-b")).variants()).containsOnlyKeys("bulk-b");
+
+        // Exposures are written in order, so once the second call's is in, the first's would be too
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (exposures("bulk-keys-user") == 0) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Exposure was not written within 10s");
+            Thread.sleep(20);
+        }
+        assertThat(jdbc.queryForList("select flag_key from exposures where user_id = ?", String.class, "bulk-keys-user"))
+            .containsExactly("bulk-b");
+        assertThat(exposures("bulk-all-user")).isZero();
+    }
+
+    private int exposures(String userId) {
+        return jdbc.queryForObject("select count(*) from exposures where user_id = ?", Integer.class, userId);
+    }
 }
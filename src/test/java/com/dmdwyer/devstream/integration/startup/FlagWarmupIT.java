@@ -0,0 +1,60 @@
+package com.dmdwyer.devstream.integration.startup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.dmdwyer.devstream.startup.FlagWarmup;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.qameta.allure.Description;
+import io.qameta.allure.Epic;
+import io.qameta.allure.Feature;
+import io.qameta.allure.Severity;
+import io.qameta.allure.SeverityLevel;
+import io.qameta.allure.Story;
+
+// Runs against the default embedded H2 database, which FlagSeed fills with one flag
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "flags.warmup.iterations=5000")
+@Epic("Application Infrastructure")
+@Feature("Readiness")
+public class FlagWarmupIT {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private FlagWarmup warmup;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @Story("Cache-warm readiness gate")
+    @Severity(SeverityLevel.CRITICAL)
+    @Description("Tests that readiness reports UP only once flags are loaded and the evaluation path has been warmed, and that the startup times are published")
+    void readinessWaitsForWarmup() throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        ResponseEntity<JsonNode> response;
+        while ((response = restTemplate.getForEntity("/actuator/health/readiness", JsonNode.class)).getStatusCode() != HttpStatus.OK) {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Readiness was not UP within 30s");
+            Thread.sleep(20);
+        }
+
+        JsonNode component = response.getBody().path("components").path("flagWarmup");
+        assertThat(component.path("status").asText()).isEqualTo("UP");
+        assertThat(component.path("details").has("warmedMs")).isTrue();
+        assertThat(component.path("details").path("evaluations").asInt()).isBetween(0, 5000);
+        FlagWarmup.State state = warmup.state();
+        assertThat(state.warm()).isTrue();
+        assertThat(state.warmedMs()).isGreaterThanOrEqualTo(state.dataLoadedMs()).isPositive();
+        assertThat(meterRegistry.get("flag.startup.warmed.time").timeGauge().value()).isPositive();
+    }
+}
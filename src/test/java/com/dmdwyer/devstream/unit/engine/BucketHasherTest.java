@@ -0,0 +1,80 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.BucketHasher;
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Feature Flags Management")
+@Feature("Bucketing")
+public class BucketHasherTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+
+  @Test
+  @Story("Legacy compatibility")
+  @Severity(SeverityLevel.BLOCKER)
+  @Description("Verify that legacy bucketing reproduces the original Arrays.hashCode assignment exactly")
+  public void legacyBucket_matchesOriginalAssignment() {
+    for (int i = 0; i < 10_000; i++) {
+      String userId = "user-" + i;
+      int h = Arrays.hashCode(userId.getBytes(StandardCharsets.UTF_8));
+      if (h == Integer.MIN_VALUE) h = 0;
+      assertThat(BucketHasher.legacyBucket(userId)).isEqualTo(Math.floorMod(Math.abs(h), 100));
+    }
+  }
+
+  @Test
+  @Story("Salted bucketing")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that salted buckets cover the basis-point range evenly")
+  public void bucket_isRoughlyUniform() {
+    int[] deciles = new int[10];
+    int salt = BucketHasher.murmur3("some_flag");
+    for (int i = 0; i < 100_000; i++) {
+      int bucket = BucketHasher.bucket(BucketHasher.murmur3("user-" + i), salt);
+      assertThat(bucket).isBetween(0, 9_999);
+      deciles[bucket / 1_000]++;
+    }
+    for (int count : deciles) assertThat(count).isBetween(9_500, 10_500);
+  }
+
+  @Test
+  @Story("Salted bucketing")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that the flag key salt decorrelates assignments between experiments")
+  public void bucket_differsPerFlag() {
+    CompiledFlag first = compiler.compile("experiment_one", true, null, "{\"A\":50,\"B\":50}", BucketingMode.MURMUR3);
+    CompiledFlag second = compiler.compile("experiment_two", true, null, "{\"A\":50,\"B\":50}", BucketingMode.MURMUR3);
+    int same = 0;
+    for (int i = 0; i < 10_000; i++) {
+      String userId = "user-" + i;
+      if (first.evaluate(userId, Map.of()).equals(second.evaluate(userId, Map.of()))) same++;
+    }
+    assertThat(same).isBetween(4_500, 5_500);
+  }
+
+  @Test
+  @Story("Bulk evaluation")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that evaluating with a pre-hashed user gives the same variant as hashing per flag")
+  public void hashedUser_matchesPerFlagHashing() {
+    CompiledFlag salted = compiler.compile("salted", true, null, "{\"A\":10,\"B\":90}", BucketingMode.MURMUR3);
+    CompiledFlag legacy = compiler.compile("legacy", true, null, "{\"A\":10,\"B\":90}", BucketingMode.LEGACY);
+    for (int i = 0; i < 1_000; i++) {
+      String userId = "user-" + i;
+      HashedUser user = HashedUser.of(userId);
+      assertThat(salted.evaluate(user, Map.of())).isEqualTo(salted.evaluate(userId, Map.of()));
+      assertThat(legacy.evaluate(user, Map.of())).isEqualTo(legacy.evaluate(userId, Map.of()));
+    }
+  }
+}
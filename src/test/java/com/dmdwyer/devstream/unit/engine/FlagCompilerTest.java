@@ -0,0 +1,95 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("Flag Compiler")
+public class FlagCompilerTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+
+  @Test
+  @Story("Rule evaluation")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that the first matching rule wins and conditions are trimmed and case-insensitive")
+  public void evaluate_returnsFirstMatchingRule() {
+    CompiledFlag flag = compiler.compile("f", true,
+        "[{\"if\":\" country = ie \",\"then\":\"ireland\"},{\"if\":\"plan=premium\",\"then\":\"premium\"}]", null, BucketingMode.MURMUR3);
+
+    assertThat(flag.evaluate("u1", Map.of("country", "IE", "plan", "premium"))).isEqualTo("ireland");
+    assertThat(flag.evaluate("u1", Map.of("plan", "PREMIUM"))).isEqualTo("premium");
+    assertThat(flag.evaluate("u1", Map.of())).isEqualTo(CompiledFlag.ON);
+  }
+
+  @Test
+  @Story("Variant split")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that buckets past the configured weights fall back to the first variant")
+  public void evaluate_withPartialWeights_fallsBackToFirstVariant() {
+    CompiledFlag flag = compiler.compile("f", true, null, "{\"A\":0,\"B\":0}", BucketingMode.MURMUR3);
+
+    assertThat(flag.evaluate("anyone", Map.of())).isEqualTo("A");
+  }
+
+  @Test
+  @Story("Disabled flag")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that a disabled flag evaluates to OFF even when rules match")
+  public void evaluate_disabled_returnsOff() {
+    CompiledFlag flag = compiler.compile("f", false, "[{\"if\":\"country=IE\",\"then\":\"A\"}]", null, BucketingMode.MURMUR3);
+
+    assertThat(flag.evaluate("u1", Map.of("country", "IE"))).isEqualTo(CompiledFlag.OFF);
+  }
+
+  @Test
+  @Story("Write-time validation")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that malformed rules and variants are rejected at compile time")
+  public void compile_rejectsMalformedDefinitions() {
+    assertThatThrownBy(() -> compiler.compile("f", true, "[{\"if\":", null, BucketingMode.MURMUR3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("rulesJson");
+    assertThatThrownBy(() -> compiler.compile("f", true, "[{\"if\":\"country\",\"then\":\"A\"}]", null, BucketingMode.MURMUR3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("field=value");
+    assertThatThrownBy(() -> compiler.compile("f", true, null, "{\"A\":\"lots\"}", BucketingMode.MURMUR3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("variantsJson");
+    assertThatThrownBy(() -> compiler.compile("f", true, null, "{\"A\":70,\"B\":70}", BucketingMode.MURMUR3))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("more than 100");
+  }
+
+  @Test
+  @Story("Loading stored flags")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that lenient compilation ignores malformed rules but keeps the variant split")
+  public void compileLenient_ignoresMalformedRules() {
+    CompiledFlag flag = compiler.compileLenient("f", true, "not json", "{\"A\":100}", BucketingMode.MURMUR3);
+
+    assertThat(flag.evaluate("u1", Map.of("country", "IE"))).isEqualTo("A");
+  }
+
+  @Test
+  @Story("Write-time validation")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that basis-point weights are accepted for salted bucketing but not for legacy bucketing")
+  public void compile_basisPointWeights_onlyForSaltedBucketing() {
+    CompiledFlag flag = compiler.compile("f", true, null, "{\"A\":33.33,\"B\":66.67}", BucketingMode.MURMUR3);
+
+    assertThat(flag.evaluate("u1", Map.of())).isIn("A", "B");
+    assertThatThrownBy(() -> compiler.compile("f", true, null, "{\"A\":33.33,\"B\":66.67}", BucketingMode.LEGACY))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> compiler.compile("f", true, null, "{\"A\":33.333}", BucketingMode.MURMUR3))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
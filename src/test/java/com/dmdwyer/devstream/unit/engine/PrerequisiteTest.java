@@ -0,0 +1,143 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.FlagLookup;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.dmdwyer.devstream.engine.PrerequisiteGraph;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("Flag Compiler")
+public class PrerequisiteTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+  private final Map<String, CompiledFlag> flags = new HashMap<>();
+
+  private CompiledFlag flag(String key, boolean enabled, String rulesJson) {
+    CompiledFlag f = compiler.compile(key, enabled, rulesJson, null, BucketingMode.MURMUR3);
+    flags.put(key, f);
+    return f;
+  }
+
+  private static String requires(String prerequisite, String variant, String then) {
+    return "[{\"when\":{\"flag\":\"" + prerequisite + "\",\"value\":\"" + variant + "\"},\"then\":\"" + then + "\"}]";
+  }
+
+  private void check(CompiledFlag f) {
+    PrerequisiteGraph.check(f, flags::get, flags.values());
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify a rule matches on the variant its prerequisite flag serves the same user")
+  public void prerequisiteVariantDecidesRule() {
+    flag("payments_v2", true, "[{\"if\":\"country=IE\",\"then\":\"ON\"}]");
+    CompiledFlag checkout = flag("checkout_v2", true, requires("payments_v2", "ON", "B"));
+    flag("payments_v2", true, "[{\"if\":\"country=IE\",\"then\":\"ON\"},{\"if\":\"country=GB\",\"then\":\"OFF\"}]");
+
+    assertThat(checkout.evaluate(HashedUser.of("u1", flags::get), Map.of("country", "IE"))).isEqualTo("B");
+    assertThat(checkout.evaluate(HashedUser.of("u1", flags::get), Map.of("country", "GB"))).isEqualTo("ON");
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify in/not_in prerequisite conditions, and that prerequisites read as OFF without a flag lookup")
+  public void prerequisiteOpsAndMissingLookup() {
+    flag("beta", false, null);
+    CompiledFlag notOn = flag("a", true, "[{\"when\":{\"flag\":\"beta\",\"op\":\"not_in\",\"values\":[\"ON\"]},\"then\":\"X\"}]");
+    CompiledFlag in = flag("b", true, "[{\"when\":{\"flag\":\"beta\",\"op\":\"in\",\"values\":[\"ON\",\"B\"]},\"then\":\"X\"}]");
+
+    assertThat(notOn.evaluate(HashedUser.of("u1", flags::get), Map.of())).isEqualTo("X");
+    assertThat(in.evaluate(HashedUser.of("u1", flags::get), Map.of())).isEqualTo("ON");
+    assertThat(notOn.hasPrerequisites()).isTrue();
+    assertThat(notOn.evaluate("u1", Map.of())).isEqualTo("X"); // beta reads as OFF
+    assertThat(in.evaluate(HashedUser.of("u1"), Map.of())).isEqualTo("ON");
+
+    assertThatThrownBy(() -> flag("c", true, "[{\"when\":{\"flag\":\"beta\",\"op\":\"regex\",\"value\":\"O.\"},\"then\":\"X\"}]"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("supports eq, in and not_in");
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify a prerequisite shared by several flags is evaluated once per user")
+  public void sharedPrerequisiteEvaluatedOnce() {
+    flag("base", true, null);
+    flag("left", true, requires("base", "ON", "L"));
+    flag("right", true, requires("base", "ON", "R"));
+    CompiledFlag top = flag("top", true,
+        "[{\"when\":{\"and\":[{\"flag\":\"left\",\"value\":\"L\"},{\"flag\":\"right\",\"value\":\"R\"}]},\"then\":\"T\"}]");
+    Map<String, Integer> lookups = new HashMap<>();
+    FlagLookup counting = k -> {
+      lookups.merge(k, 1, Integer::sum);
+      return flags.get(k);
+    };
+
+    HashedUser user = HashedUser.of("u1", counting);
+    assertThat(top.evaluate(user, Map.of())).isEqualTo("T");
+    assertThat(flags.get("left").evaluate(user, Map.of())).isEqualTo("L");
+    assertThat(lookups).containsEntry("base", 1).containsEntry("left", 1).containsEntry("right", 1);
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify writes are rejected when a prerequisite is missing or would close a cycle")
+  public void rejectsMissingPrerequisiteAndCycles() {
+    assertThatThrownBy(() -> check(flag("a", true, requires("missing", "ON", "X"))))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("prerequisite flag 'missing' does not exist");
+    flags.clear();
+
+    check(flag("a", true, null));
+    check(flag("b", true, requires("a", "ON", "X")));
+    check(flag("c", true, requires("b", "X", "Y")));
+    CompiledFlag selfRef = compiler.compile("a", true, requires("a", "ON", "X"), null, BucketingMode.MURMUR3);
+    assertThatThrownBy(() -> PrerequisiteGraph.check(selfRef, flags::get, flags.values()))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("cycle: a -> a");
+    CompiledFlag closing = compiler.compile("a", true, requires("c", "Y", "X"), null, BucketingMode.MURMUR3);
+    assertThatThrownBy(() -> PrerequisiteGraph.check(closing, flags::get, flags.values()))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("cycle: a -> c -> b -> a");
+    assertThat(PrerequisiteGraph.dependents("a", flags.values())).containsExactly("b");
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify chains longer than the depth limit are rejected on write, from either end")
+  public void rejectsChainsDeeperThanLimit() {
+    check(flag("f0", true, null));
+    for (int i = 1; i <= PrerequisiteGraph.MAX_DEPTH; i++) check(flag("f" + i, true, requires("f" + (i - 1), "ON", "ON")));
+    String over = "f" + (PrerequisiteGraph.MAX_DEPTH + 1);
+    assertThatThrownBy(() -> check(flag(over, true, requires("f" + PrerequisiteGraph.MAX_DEPTH, "ON", "ON"))))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("levels deep");
+    flags.remove(over);
+
+    // Growing the chain at the bottom is caught too
+    check(flag("root", true, null));
+    assertThatThrownBy(() -> check(flag("f0", true, requires("root", "ON", "ON"))))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("levels deep");
+  }
+
+  @Test
+  @Story("Prerequisite flags")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify a cycle that bypassed the write checks reads as OFF instead of recursing")
+  public void cycleAtRuntimeReadsAsOff() {
+    flag("a", true, requires("b", "ON", "X"));
+    CompiledFlag b = flag("b", true, requires("a", "X", "Y"));
+
+    // b -> a -> b -> a: the second visit to a reads as OFF, so inner b is ON, a is X and b is Y
+    assertThat(b.evaluate(HashedUser.of("u1", flags::get), Map.of())).isEqualTo("Y");
+  }
+}
@@ -0,0 +1,112 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.EvaluationReason;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Property: for any rules and any attributes, the indexed plan picks the same outcome as
+// trying every rule in order. Flags and attributes are drawn from a small vocabulary (with
+// case and Unicode folding traps, and null values) so that collisions, duplicates and ties
+// are common.
+@Epic("Feature Flags Management")
+@Feature("Flag Compiler")
+public class RuleIndexTest {
+  private static final String[] FIELDS = {"country", "tenant", "plan", "age"};
+  // includes the Kelvin sign, dotted/dotless i, sharp s and a supplementary-plane case pair
+  private static final String[] VALUES = {"ie", "IE", "Ie", "gb", "fr", "", " ie ", "k", "K", "\u212A", "i", "\u0130", "\u0131",
+      "stra\u00dfe", "STRASSE", "t-1", "T-1", "t-2", "10", "42", "\uD801\uDC00", "\uD801\uDC28"};
+  private static final int FLAGS = 2000;
+  private static final int USERS_PER_FLAG = 50;
+
+  private final ObjectMapper om = new ObjectMapper();
+  private final FlagCompiler indexed = new FlagCompiler(om);
+  private final FlagCompiler linear = new FlagCompiler(om).withoutRuleIndex();
+
+  @Test
+  @Story("Indexed rule matching")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify on thousands of random flags and users that indexed matching returns the same outcome as linear first-match")
+  public void indexedMatchesLinearFirstMatch() throws Exception {
+    SplittableRandom rnd = new SplittableRandom(20240601);
+    int ruleMatches = 0;
+    for (int f = 0; f < FLAGS; f++) {
+      String rules = randomRules(rnd, rnd.nextInt(60));
+      String variants = rnd.nextBoolean() ? "{\"A\":50,\"B\":50}" : null;
+      CompiledFlag fast = indexed.compile("flag_" + f, true, rules, variants, null);
+      CompiledFlag slow = linear.compile("flag_" + f, true, rules, variants, null);
+      for (int u = 0; u < USERS_PER_FLAG; u++) {
+        String userId = "user-" + rnd.nextInt(1000);
+        Map<String,String> attrs = randomAttrs(rnd);
+        int expected = slow.evaluateOutcome(userId, attrs);
+        assertThat(fast.evaluateOutcome(userId, attrs)).as("%s with %s", rules, attrs).isEqualTo(expected);
+        assertThat(fast.evaluateOutcome(HashedUser.of(userId), attrs)).as("%s with %s", rules, attrs).isEqualTo(expected);
+        if (fast.reasonOf(expected) == EvaluationReason.RULE_MATCH) ruleMatches++;
+      }
+    }
+    assertThat(ruleMatches).as("the generator should produce plenty of rule matches").isGreaterThan(FLAGS * USERS_PER_FLAG / 4);
+  }
+
+  @Test
+  @Story("Indexed rule matching")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that an earlier non-equality rule still wins over a later indexed equality rule, and vice versa")
+  public void keepsFirstMatchOrderAcrossRuleKinds() throws Exception {
+    StringBuilder rules = new StringBuilder("[{\"when\":{\"attr\":\"age\",\"op\":\"gt\",\"value\":60},\"then\":\"senior\"}");
+    for (int i = 0; i < 20; i++) rules.append(",{\"if\":\"tenant=t-").append(i).append("\",\"then\":\"tenant_").append(i).append("\"}");
+    rules.append(",{\"if\":\"tenant=t-3\",\"then\":\"duplicate\"}");
+    rules.append(",{\"when\":{\"attr\":\"plan\",\"op\":\"starts_with\",\"value\":\"pre\"},\"then\":\"premium\"}]");
+    CompiledFlag flag = indexed.compile("f", true, rules.toString(), null, null);
+
+    assertThat(flag.evaluate("u", Map.of("age", "70", "tenant", "t-3"))).isEqualTo("senior");
+    assertThat(flag.evaluate("u", Map.of("age", "20", "tenant", "T-3", "plan", "premium"))).isEqualTo("tenant_3");
+    assertThat(flag.evaluate("u", Map.of("tenant", "t-99", "plan", "premium"))).isEqualTo("premium");
+    assertThat(flag.evaluate("u", Map.of("tenant", "t-99"))).isEqualTo(CompiledFlag.ON);
+  }
+
+  private static String randomRules(SplittableRandom rnd, int count) throws Exception {
+    StringBuilder sb = new StringBuilder("[");
+    for (int r = 0; r < count; r++) {
+      if (r > 0) sb.append(',');
+      String field = FIELDS[rnd.nextInt(FIELDS.length)];
+      String value = json(VALUES[rnd.nextInt(VALUES.length)]);
+      String then = "\"then\":\"rule_" + r + "\"}";
+      switch (rnd.nextInt(10)) {
+        case 0 -> sb.append("{\"when\":{\"attr\":\"").append(field).append("\",\"op\":\"not_in\",\"values\":[")
+            .append(value).append("]},").append(then);
+        case 1 -> sb.append("{\"when\":{\"attr\":\"").append(field).append("\",\"op\":\"starts_with\",\"value\":")
+            .append(value).append("},").append(then);
+        case 2 -> sb.append("{\"when\":{\"attr\":\"age\",\"op\":\"gt\",\"value\":").append(rnd.nextInt(50)).append("},").append(then);
+        case 3 -> sb.append("{\"when\":{\"attr\":\"").append(field).append("\",\"op\":\"in\",\"values\":[")
+            .append(value).append(',').append(json(VALUES[rnd.nextInt(VALUES.length)])).append("]},").append(then);
+        case 4 -> sb.append("{\"when\":{\"and\":[{\"attr\":\"").append(field).append("\",\"op\":\"eq\",\"value\":").append(value)
+            .append("},{\"attr\":\"plan\",\"op\":\"not_in\",\"values\":[\"t-1\"]}]},").append(then);
+        default -> sb.append("{\"if\":").append(json(field + "=" + VALUES[rnd.nextInt(VALUES.length)])).append(',').append(then);
+      }
+    }
+    return count == 0 ? null : sb.append(']').toString();
+  }
+
+  private static Map<String,String> randomAttrs(SplittableRandom rnd) {
+    Map<String,String> attrs = new HashMap<>();
+    for (String field : FIELDS) {
+      int pick = rnd.nextInt(8);
+      if (pick == 0) attrs.put(field, null); // present with a JSON null, reads as ""
+      else if (pick > 2) attrs.put(field, VALUES[rnd.nextInt(VALUES.length)]);
+    }
+    return attrs;
+  }
+
+  private static String json(String s) throws Exception {
+    return new ObjectMapper().writeValueAsString(s);
+  }
+}
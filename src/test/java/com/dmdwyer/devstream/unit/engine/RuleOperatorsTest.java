@@ -0,0 +1,153 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("Flag Compiler")
+public class RuleOperatorsTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+
+  private String eval(String when, Map<String,String> attrs) {
+    CompiledFlag flag = compiler.compile("f", true, "[{\"when\":" + when + ",\"then\":\"hit\"}]", null, null);
+    String single = flag.evaluate("u1", attrs);
+    assertThat(flag.evaluate(HashedUser.of("u1"), attrs)).isEqualTo(single);
+    return single;
+  }
+
+  private boolean matches(String when, Map<String,String> attrs) {
+    return eval(when, attrs).equals("hit");
+  }
+
+  @Test
+  @Story("Rule operators")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify in/not_in/eq/starts_with ignore case and treat a missing attribute as empty")
+  public void stringOperators() {
+    String in = "{\"attr\":\"country\",\"op\":\"in\",\"values\":[\"IE\",\"gb\"]}";
+    assertThat(matches(in, Map.of("country", "ie"))).isTrue();
+    assertThat(matches(in, Map.of("country", "GB"))).isTrue();
+    assertThat(matches(in, Map.of("country", "FR"))).isFalse();
+    assertThat(matches(in, Map.of())).isFalse();
+
+    String notIn = "{\"attr\":\"country\",\"op\":\"not_in\",\"values\":[\"IE\"]}";
+    assertThat(matches(notIn, Map.of("country", "FR"))).isTrue();
+    assertThat(matches(notIn, Map.of())).isTrue();
+    assertThat(matches(notIn, Map.of("country", "Ie"))).isFalse();
+
+    assertThat(matches("{\"attr\":\"plan\",\"op\":\"eq\",\"value\":\"Premium\"}", Map.of("plan", "premium"))).isTrue();
+    assertThat(matches("{\"attr\":\"email\",\"op\":\"starts_with\",\"value\":\"QA+\"}", Map.of("email", "qa+1@x.io"))).isTrue();
+    assertThat(matches("{\"attr\":\"email\",\"op\":\"starts_with\",\"value\":\"qa+\"}", Map.of("email", "q"))).isFalse();
+  }
+
+  @Test
+  @Story("Rule operators")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that an attribute present with a null value (e.g. JSON null) reads as empty for every operator")
+  public void nullAttributeValue_readsAsEmpty() {
+    Map<String,String> attrs = new HashMap<>();
+    attrs.put("a", null);
+
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"eq\",\"value\":\"x\"}", attrs)).isFalse();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"in\",\"values\":[\"x\"]}", attrs)).isFalse();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"not_in\",\"values\":[\"x\"]}", attrs)).isTrue();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"starts_with\",\"value\":\"x\"}", attrs)).isFalse();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"matches\",\"value\":\"^$\"}", attrs)).isTrue();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"gte\",\"value\":1}", attrs)).isFalse();
+    assertThat(matches("{\"attr\":\"a\",\"op\":\"semver_gte\",\"value\":\"1.0.0\"}", attrs)).isFalse();
+    assertThat(eval("{\"attr\":\"a\",\"op\":\"eq\",\"value\":\"x\"}", attrs)).isEqualTo("ON");
+  }
+
+  @Test
+  @Story("Rule operators")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify numeric, semver and regex operators, including values that don't parse")
+  public void numericSemverAndRegexOperators() {
+    String adult = "{\"attr\":\"age\",\"op\":\"gte\",\"value\":18}";
+    assertThat(matches(adult, Map.of("age", "18"))).isTrue();
+    assertThat(matches(adult, Map.of("age", "17.5"))).isFalse();
+    assertThat(matches(adult, Map.of("age", "old"))).isFalse();
+    assertThat(matches("{\"attr\":\"score\",\"op\":\"lt\",\"value\":\"0.5\"}", Map.of("score", "-1e3"))).isTrue();
+
+    String newApp = "{\"attr\":\"app\",\"op\":\"semver_gte\",\"value\":\"2.4.0\"}";
+    assertThat(matches(newApp, Map.of("app", "2.10.0"))).isTrue();
+    assertThat(matches(newApp, Map.of("app", "v2.4"))).isTrue();
+    assertThat(matches(newApp, Map.of("app", "2.4.0-rc.1"))).isFalse();
+    assertThat(matches(newApp, Map.of("app", "2.3.99"))).isFalse();
+    assertThat(matches(newApp, Map.of("app", "banana"))).isFalse();
+    assertThat(matches("{\"attr\":\"app\",\"op\":\"semver_lt\",\"value\":\"1.0.0-rc.10\"}", Map.of("app", "1.0.0-rc.9"))).isTrue();
+    assertThat(matches("{\"attr\":\"app\",\"op\":\"semver_eq\",\"value\":\"1.0.0\"}", Map.of("app", "1.0.0+build.7"))).isTrue();
+
+    String corp = "{\"attr\":\"email\",\"op\":\"matches\",\"value\":\"@(corp|staff)\\\\.example\\\\.com$\"}";
+    assertThat(matches(corp, Map.of("email", "ann@staff.example.com"))).isTrue();
+    assertThat(matches(corp, Map.of("email", "ann@example.com"))).isFalse();
+  }
+
+  @Test
+  @Story("Rule operators")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify and/or composition and that rule order still decides between matching rules")
+  public void andOrComposition() {
+    String when = "{\"and\":[{\"attr\":\"country\",\"op\":\"eq\",\"value\":\"IE\"},"
+        + "{\"or\":[{\"attr\":\"plan\",\"op\":\"eq\",\"value\":\"premium\"},{\"attr\":\"age\",\"op\":\"gt\",\"value\":60}]}]}";
+    assertThat(matches(when, Map.of("country", "IE", "plan", "premium"))).isTrue();
+    assertThat(matches(when, Map.of("country", "IE", "age", "61"))).isTrue();
+    assertThat(matches(when, Map.of("country", "IE", "age", "30"))).isFalse();
+    assertThat(matches(when, Map.of("country", "FR", "plan", "premium"))).isFalse();
+
+    CompiledFlag flag = compiler.compile("f", true, "[{\"if\":\"country=IE\",\"then\":\"first\"},"
+        + "{\"when\":{\"attr\":\"country\",\"op\":\"in\",\"values\":[\"IE\",\"FR\"]},\"then\":\"second\"}]", null, null);
+    assertThat(flag.evaluate("u1", Map.of("country", "IE"))).isEqualTo("first");
+    assertThat(flag.evaluate("u1", Map.of("country", "FR"))).isEqualTo("second");
+  }
+
+  @Test
+  @Story("Rule operators")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that a 5,000-value in list is compiled into a set that matches any of its values")
+  public void largeInList() {
+    String values = IntStream.range(0, 5000).mapToObj(i -> "\"tenant-" + i + "\"").collect(Collectors.joining(","));
+    String when = "{\"attr\":\"tenant\",\"op\":\"in\",\"values\":[" + values + "]}";
+
+    assertThat(matches(when, Map.of("tenant", "tenant-4999"))).isTrue();
+    assertThat(matches(when, Map.of("tenant", "tenant-5000"))).isFalse();
+  }
+
+  @Test
+  @Story("Write-time validation")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that unknown operators, missing or malformed values and over-deep nesting are rejected")
+  public void rejectsInvalidConditions() {
+    String[] invalid = {
+        "{\"attr\":\"country\",\"op\":\"like\",\"value\":\"IE\"}",
+        "{\"op\":\"eq\",\"value\":\"IE\"}",
+        "{\"attr\":\"country\",\"op\":\"in\",\"value\":\"IE\"}",
+        "{\"attr\":\"age\",\"op\":\"gt\",\"value\":\"eighteen\"}",
+        "{\"attr\":\"app\",\"op\":\"semver_gt\",\"value\":\"1.x\"}",
+        "{\"attr\":\"email\",\"op\":\"matches\",\"value\":\"(unclosed\"}",
+        "{\"and\":[]}",
+        "\"country=IE\"",
+        "{\"and\":[{\"and\":[{\"and\":[{\"and\":[{\"and\":[{\"and\":[{\"and\":[{\"and\":[{\"and\":["
+            + "{\"attr\":\"a\",\"op\":\"eq\",\"value\":\"b\"}]}]}]}]}]}]}]}]}]}"
+    };
+    for (String when : invalid) {
+      String rules = "[{\"when\":" + when + ",\"then\":\"A\"}]";
+      assertThatThrownBy(() -> compiler.compile("f", true, rules, null, null))
+          .as(when).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("rule 0");
+      assertThatThrownBy(() -> compiler.checkRules(rules)).as(when).isInstanceOf(IllegalArgumentException.class);
+      assertThat(compiler.compileLenient("f", true, rules, null, null).evaluate("u1", Map.of("a", "b"))).isEqualTo(CompiledFlag.ON);
+    }
+  }
+}
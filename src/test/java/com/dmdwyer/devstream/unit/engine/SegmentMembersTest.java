@@ -0,0 +1,96 @@
+package com.dmdwyer.devstream.unit.engine;
+
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.engine.HashedUser;
+import com.dmdwyer.devstream.engine.SegmentMembers;
+import com.dmdwyer.devstream.engine.SegmentRef;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("User Segments")
+public class SegmentMembersTest {
+  private final Map<String, SegmentRef> refs = new HashMap<>();
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper(), key -> refs.computeIfAbsent(key, SegmentRef::new));
+
+  @Test
+  @Story("Membership")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that members are found, non-members are not, and duplicate ids count once")
+  public void build_dedupesAndFindsMembers() {
+    SegmentMembers.Builder builder = SegmentMembers.builder(0);
+    for (int i = 0; i < 100_000; i++) builder.add("user-" + i);
+    builder.add("user-42").add("user-7");
+    SegmentMembers members = builder.build();
+
+    assertThat(members.size()).isEqualTo(100_000);
+    assertThat(members.contains("user-0")).isTrue();
+    assertThat(members.contains("user-99999")).isTrue();
+    assertThat(members.contains("user-100000")).isFalse();
+    assertThat(members.contains("USER-1")).isFalse();
+    assertThat(SegmentMembers.EMPTY.contains("user-0")).isFalse();
+  }
+
+  @Test
+  @Story("Membership")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that the sorted hashes copied out rebuild an identical membership")
+  public void copyHashes_roundTripsThroughOfSortedHashes() {
+    SegmentMembers members = SegmentMembers.builder(4).add("c").add("a").add("b").build();
+    LongBuffer buf = LongBuffer.allocate(members.size());
+    members.copyHashes(0, members.size(), buf);
+
+    long[] hashes = buf.array();
+    assertThat(hashes).isSorted();
+    SegmentMembers copy = SegmentMembers.ofSortedHashes(hashes);
+    assertThat(copy.contains("a")).isTrue();
+    assertThat(copy.contains("d")).isFalse();
+  }
+
+  @Test
+  @Story("Segment rules")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that segment rules match members on both evaluation paths and see replaced members without recompiling")
+  public void segmentRule_matchesMembersAndFollowsReplacement() {
+    refs.computeIfAbsent("beta", SegmentRef::new).set(SegmentMembers.builder(2).add("u1").add("u2").build());
+    CompiledFlag flag = compiler.compile("f", true,
+        "[{\"if\":\"country=IE\",\"then\":\"irish\"},{\"segment\":\"beta\",\"then\":\"beta\"}]", null, null);
+
+    assertThat(flag.segmentKeys()).containsExactly("beta");
+    assertThat(flag.evaluate("u1", Map.of())).isEqualTo("beta");
+    assertThat(flag.evaluate(HashedUser.of("u2"), Map.of())).isEqualTo("beta");
+    assertThat(flag.evaluate("u1", Map.of("country", "IE"))).isEqualTo("irish");
+    assertThat(flag.evaluate("u3", Map.of())).isEqualTo(CompiledFlag.ON);
+
+    refs.get("beta").set(SegmentMembers.builder(1).add("u3").build());
+    assertThat(flag.evaluate("u1", Map.of())).isEqualTo(CompiledFlag.ON);
+    assertThat(flag.evaluate(HashedUser.of("u3"), Map.of())).isEqualTo("beta");
+  }
+
+  @Test
+  @Story("Segment rules")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that strict compilation rejects unknown segments while lenient compilation keeps the rule")
+  public void compile_rejectsUnknownSegment() {
+    String rules = "[{\"segment\":\"later\",\"then\":\"B\"}]";
+    assertThatThrownBy(() -> compiler.compile("f", true, rules, null, null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("unknown segment 'later'");
+    assertThatThrownBy(() -> new FlagCompiler(new ObjectMapper()).compile("f", true, rules, null, null))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    CompiledFlag lenient = compiler.compileLenient("f", true, rules, null, null);
+    assertThat(lenient.evaluate("u1", Map.of())).isEqualTo(CompiledFlag.ON);
+    refs.get("later").set(SegmentMembers.builder(1).add("u1").build());
+    assertThat(lenient.evaluate("u1", Map.of())).isEqualTo("B");
+  }
+}
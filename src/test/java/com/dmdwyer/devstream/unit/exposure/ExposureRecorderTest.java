@@ -0,0 +1,118 @@
+package com.dmdwyer.devstream.unit.exposure;
+
+import com.dmdwyer.devstream.engine.EvaluationReason;
+import com.dmdwyer.devstream.exposure.ExposureDropPolicy;
+import com.dmdwyer.devstream.exposure.ExposureEvent;
+import com.dmdwyer.devstream.exposure.ExposureRecorder;
+import com.dmdwyer.devstream.exposure.ExposureSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Feature Flags Management")
+@Feature("Exposure Pipeline")
+public class ExposureRecorderTest {
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private static class CollectingSink implements ExposureSink {
+    final List<List<ExposureEvent>> batches = new CopyOnWriteArrayList<>();
+    final CountDownLatch release;
+    volatile boolean virtualWriter;
+
+    CollectingSink(CountDownLatch release) { this.release = release; }
+
+    public String name() { return "collect"; }
+
+    public void write(List<ExposureEvent> batch) throws Exception {
+      release.await(10, TimeUnit.SECONDS);
+      virtualWriter = Thread.currentThread().isVirtual();
+      batches.add(List.copyOf(batch));
+    }
+  }
+
+  @Test
+  @Story("Batched persistence")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that recorded exposures reach the sink in batches and are flushed on shutdown")
+  public void record_drainsInBatches_andFlushesOnShutdown() throws Exception {
+    CollectingSink sink = new CollectingSink(new CountDownLatch(0));
+    ExposureRecorder recorder = new ExposureRecorder(List.of(sink), registry, true, 1024, 2,
+        Duration.ofHours(1), ExposureDropPolicy.DROP_NEWEST, Duration.ZERO, false);
+
+    for (int i = 0; i < 5; i++) recorder.record("checkout", "A", "user-" + i, EvaluationReason.SPLIT);
+    recorder.shutdown();
+
+    assertThat(sink.batches).allSatisfy(b -> assertThat(b).hasSizeLessThanOrEqualTo(2));
+    assertThat(sink.batches.stream().flatMap(List::stream).map(ExposureEvent::userId))
+        .containsExactly("user-0", "user-1", "user-2", "user-3", "user-4");
+    assertThat(registry.get("flag.exposures.written").tag("sink", "collect").counter().count()).isEqualTo(5);
+  }
+
+  @Test
+  @Story("Backpressure")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that a full buffer drops new exposures and counts them instead of blocking evaluation")
+  public void record_dropsAndCounts_whenBufferIsFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CollectingSink sink = new CollectingSink(release); // blocks the worker so the buffer fills up
+    ExposureRecorder recorder = new ExposureRecorder(List.of(sink), registry, true, 4, 1,
+        Duration.ZERO, ExposureDropPolicy.DROP_NEWEST, Duration.ZERO, false);
+
+    for (int i = 0; i < 50; i++) recorder.record("checkout", "A", "user-" + i, EvaluationReason.SPLIT);
+    double dropped = registry.get("flag.exposures.dropped").functionCounter().count();
+    release.countDown();
+    recorder.shutdown();
+
+    // at most one batch in the sink plus a full buffer can be accepted while the worker is stuck
+    assertThat(dropped).isGreaterThanOrEqualTo(45);
+    assertThat(sink.batches.stream().mapToInt(List::size).sum() + dropped).isEqualTo(50);
+  }
+
+  @Test
+  @Story("Backpressure")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that a disabled recorder accepts nothing and starts no worker")
+  public void record_isNoOp_whenDisabled() throws Exception {
+    CollectingSink sink = new CollectingSink(new CountDownLatch(0));
+    ExposureRecorder recorder = new ExposureRecorder(List.of(sink), registry, false, 4, 1,
+        Duration.ZERO, ExposureDropPolicy.DROP_NEWEST, Duration.ZERO, false);
+
+    recorder.record("checkout", "A", "user-1", EvaluationReason.SPLIT);
+    recorder.shutdown();
+
+    assertThat(recorder.enabled()).isFalse();
+    assertThat(sink.batches).isEmpty();
+    assertThat(registry.get("flag.exposures.queue.depth").gauge().value()).isZero();
+  }
+
+  @Test
+  @Story("Virtual threads")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that WAIT producers on virtual threads don't starve a virtual writer of carriers")
+  public void record_waitPolicy_deliversEverything_onVirtualThreads() throws Exception {
+    CollectingSink sink = new CollectingSink(new CountDownLatch(0));
+    ExposureRecorder recorder = new ExposureRecorder(List.of(sink), registry, true, 4, 1,
+        Duration.ZERO, ExposureDropPolicy.WAIT, Duration.ofSeconds(30), true);
+
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      String userId = "user-" + i;
+      producers.add(Thread.ofVirtual().start(() -> recorder.record("checkout", "A", userId, EvaluationReason.SPLIT)));
+    }
+    for (Thread t : producers) t.join();
+    recorder.shutdown();
+
+    assertThat(sink.virtualWriter).isTrue();
+    assertThat(registry.get("flag.exposures.dropped").functionCounter().count()).isZero();
+    assertThat(sink.batches.stream().mapToInt(List::size).sum()).isEqualTo(200);
+  }
+}
@@ -0,0 +1,80 @@
+package com.dmdwyer.devstream.unit.exposure;
+
+import com.dmdwyer.devstream.exposure.ExposureRingBuffer;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("Exposure Pipeline")
+public class ExposureRingBufferTest {
+
+  @Test
+  @Story("Bounded buffer")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that offers fail once the buffer is full and succeed again after draining")
+  public void offer_rejectsWhenFull_untilDrained() {
+    ExposureRingBuffer<Integer> buffer = new ExposureRingBuffer<>(4);
+    for (int i = 0; i < 4; i++) assertThat(buffer.offer(i)).isTrue();
+
+    assertThat(buffer.offer(4)).isFalse();
+    assertThat(buffer.size()).isEqualTo(4);
+
+    List<Integer> out = new ArrayList<>();
+    assertThat(buffer.drainTo(out, 3)).isEqualTo(3);
+    assertThat(out).containsExactly(0, 1, 2);
+    assertThat(buffer.offer(5)).isTrue();
+    buffer.drainTo(out, 10);
+    assertThat(out).containsExactly(0, 1, 2, 3, 5);
+    assertThat(buffer.size()).isZero();
+  }
+
+  @Test
+  @Story("Bounded buffer")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that capacities which are not a power of two are rejected")
+  public void constructor_rejectsNonPowerOfTwo() {
+    assertThatThrownBy(() -> new ExposureRingBuffer<>(1000)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @Story("Bounded buffer")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that concurrent producers never lose or duplicate an accepted event")
+  public void offer_fromManyThreads_deliversEachAcceptedEventOnce() throws Exception {
+    ExposureRingBuffer<Integer> buffer = new ExposureRingBuffer<>(1024);
+    int producers = 8, perProducer = 20_000;
+    ExecutorService pool = Executors.newFixedThreadPool(producers);
+    CountDownLatch done = new CountDownLatch(producers);
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      pool.submit(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(base + i)) Thread.onSpinWait();
+        }
+        done.countDown();
+      });
+    }
+    Set<Integer> seen = new HashSet<>();
+    List<Integer> batch = new ArrayList<>();
+    while (seen.size() < producers * perProducer) {
+      batch.clear();
+      buffer.drainTo(batch, 256);
+      for (Integer i : batch) assertThat(seen.add(i)).isTrue();
+    }
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    pool.shutdown();
+    assertThat(buffer.size()).isZero();
+  }
+}
@@ -0,0 +1,48 @@
+package com.dmdwyer.devstream.unit.exposure;
+
+import com.dmdwyer.devstream.engine.EvaluationReason;
+import com.dmdwyer.devstream.exposure.ExposureEvent;
+import com.dmdwyer.devstream.exposure.NdjsonExposureSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Feature Flags Management")
+@Feature("Exposure Pipeline")
+public class NdjsonExposureSinkTest {
+  private final ObjectMapper om = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private ExposureEvent event(String userId) {
+    return new ExposureEvent(Instant.parse("2026-01-01T00:00:00Z"), "checkout", "A", userId, EvaluationReason.SPLIT);
+  }
+
+  @Test
+  @Story("Rolling NDJSON files")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that each exposure is written as one JSON line and files roll once they pass the size limit")
+  public void write_appendsOneLinePerEvent_andRollsBySize(@TempDir Path dir) throws Exception {
+    NdjsonExposureSink sink = new NdjsonExposureSink(om, dir, 100);
+
+    sink.write(List.of(event("u1"), event("u2")));
+    sink.write(List.of(event("u3")));
+    sink.close();
+
+    List<Path> files;
+    try (Stream<Path> s = Files.list(dir)) { files = s.sorted().toList(); }
+    assertThat(files).hasSize(2);
+    List<String> first = Files.readAllLines(files.get(0));
+    assertThat(first).hasSize(2);
+    assertThat(om.readValue(first.get(1), ExposureEvent.class)).isEqualTo(event("u2"));
+    assertThat(Files.readAllLines(files.get(1))).hasSize(1);
+  }
+}
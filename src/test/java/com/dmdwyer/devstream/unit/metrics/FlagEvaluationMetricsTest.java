@@ -0,0 +1,174 @@
+package com.dmdwyer.devstream.unit.metrics;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.CompiledFlag;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.metrics.FlagEvaluationMetrics;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Feature Flags Management")
+@Feature("Evaluation Metrics")
+public class FlagEvaluationMetricsTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private double count(String flag, String variant, String reason) {
+    var counter = registry.find("flag.evaluations").tags("flag", flag, "variant", variant, "reason", reason).functionCounter();
+    return counter == null ? 0 : counter.count();
+  }
+
+  private static FlagSnapshot.Entry entry(long id, CompiledFlag plan) {
+    return new FlagSnapshot.Entry(new FlagDto(id, plan.key(), true, null, null), plan);
+  }
+
+  private void evaluate(FlagEvaluationMetrics metrics, CompiledFlag f, String userId, Map<String,String> attrs) {
+    metrics.record(f, f.evaluateOutcome(userId, attrs));
+  }
+
+  @Test
+  @Story("Per-variant counters")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that evaluations are counted by flag, variant and reason")
+  public void record_countsByFlagVariantAndReason() {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 10, 10);
+    CompiledFlag f = compiler.compile("checkout", true, "[{\"if\":\"country=IE\",\"then\":\"irish\"}]", "{\"A\":100}", null);
+    CompiledFlag off = compiler.compile("dark", false, null, null, null);
+
+    evaluate(metrics, f, "u1", Map.of("country", "IE"));
+    evaluate(metrics, f, "u2", Map.of("country", "IE"));
+    evaluate(metrics, f, "u3", Map.of());
+    evaluate(metrics, off, "u1", Map.of());
+    metrics.recordNotFound();
+
+    assertThat(count("checkout", "irish", "RULE_MATCH")).isEqualTo(2);
+    assertThat(count("checkout", "A", "SPLIT")).isEqualTo(1);
+    assertThat(count("dark", "OFF", "DISABLED")).isEqualTo(1);
+    assertThat(count("_unknown", "none", "NOT_FOUND")).isEqualTo(1);
+  }
+
+  @Test
+  @Story("Per-variant counters")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that counts carry over when a flag is recompiled after an edit")
+  public void record_keepsCountsAcrossRecompiles() {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 10, 10);
+
+    evaluate(metrics, compiler.compile("banner", true, null, null, null), "u1", Map.of());
+    evaluate(metrics, compiler.compile("banner", true, null, null, null), "u1", Map.of());
+
+    assertThat(count("banner", "ON", "FALLTHROUGH")).isEqualTo(2);
+  }
+
+  @Test
+  @Story("Cardinality guards")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that flags and variants past the configured limits are folded into _other")
+  public void record_foldsSeriesPastLimitsIntoOther() {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 1, 3);
+    CompiledFlag first = compiler.compile("first", true, null, "{\"A\":50,\"B\":50}", null);
+    CompiledFlag second = compiler.compile("second", false, null, null, null);
+
+    evaluate(metrics, first, "u1", Map.of());
+    evaluate(metrics, second, "u1", Map.of());
+
+    // OFF, ON and A fill the variant budget for "first"; B is folded
+    assertThat(registry.find("flag.evaluations").tags("flag", "first").functionCounters())
+        .extracting(c -> c.getId().getTag("variant"))
+        .containsOnly("OFF", "ON", "A", "_other");
+    assertThat(count("_other", "OFF", "DISABLED")).isEqualTo(1);
+    assertThat(registry.find("flag.evaluations").tags("flag", "second").functionCounters()).isEmpty();
+  }
+
+  @Test
+  @Story("Cardinality guards")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that deleting or reloading away a flag drops its series and frees its tagged-flag slot")
+  public void snapshotChange_releasesRemovedFlags() {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 1, 10);
+    CompiledFlag first = compiler.compile("first", true, null, null, null);
+    CompiledFlag second = compiler.compile("second", true, null, null, null);
+    CompiledFlag third = compiler.compile("third", true, null, null, null);
+
+    evaluate(metrics, first, "u1", Map.of());
+    FlagSnapshot deleted = FlagSnapshot.of(1, List.of(entry(2L, second)));
+    metrics.onSnapshotChanged(new FlagSnapshotChangedEvent(deleted, "first", null));
+    evaluate(metrics, second, "u1", Map.of());
+
+    assertThat(registry.find("flag.evaluations").tags("flag", "first").functionCounters()).isEmpty();
+    assertThat(count("second", "ON", "FALLTHROUGH")).isEqualTo(1);
+
+    FlagSnapshot reloaded = FlagSnapshot.of(2, List.of(entry(3L, third)));
+    metrics.onSnapshotChanged(new FlagSnapshotChangedEvent(reloaded, null, null));
+    evaluate(metrics, third, "u1", Map.of());
+
+    assertThat(registry.find("flag.evaluations").tags("flag", "second").functionCounters()).isEmpty();
+    assertThat(count("third", "ON", "FALLTHROUGH")).isEqualTo(1);
+  }
+
+  @Test
+  @Story("Cardinality guards")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that an evaluation on a snapshot older than a delete counts under _other instead of re-binding the deleted flag")
+  public void record_afterDelete_doesNotRebindDeletedFlag() {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 1, 10);
+    CompiledFlag gone = compiler.compile("gone", true, null, null, null);
+    CompiledFlag next = compiler.compile("next", true, null, null, null);
+
+    evaluate(metrics, gone, "u1", Map.of());
+    metrics.onSnapshotChanged(new FlagSnapshotChangedEvent(FlagSnapshot.of(1, List.of(entry(2L, next))), "gone", null));
+    evaluate(metrics, gone, "u2", Map.of()); // a request still holding the old snapshot
+    evaluate(metrics, next, "u1", Map.of());
+
+    assertThat(registry.find("flag.evaluations").tags("flag", "gone").functionCounters()).isEmpty();
+    assertThat(count("_other", "ON", "FALLTHROUGH")).isEqualTo(1);
+    assertThat(count("next", "ON", "FALLTHROUGH")).isEqualTo(1);
+  }
+
+  @Test
+  @Story("Cardinality guards")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that concurrent first evaluations of many flags tag no more than max-flags of them")
+  public void record_concurrentBinds_stayWithinMaxFlags() throws Exception {
+    FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, 5, 10);
+    List<CompiledFlag> flags = new ArrayList<>();
+    for (int i = 0; i < 200; i++) flags.add(compiler.compile("flag-" + i, true, null, null, null));
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> done = new ArrayList<>();
+      for (CompiledFlag f : flags) done.add(pool.submit(() -> {
+        start.await();
+        evaluate(metrics, f, "u1", Map.of());
+        return null;
+      }));
+      start.countDown();
+      for (Future<?> d : done) d.get();
+    } finally {
+      pool.shutdown();
+    }
+
+    Set<String> tagged = registry.find("flag.evaluations").functionCounters().stream()
+        .map(c -> c.getId().getTag("flag"))
+        .filter(flag -> flag.startsWith("flag-"))
+        .collect(Collectors.toSet());
+    assertThat(tagged).hasSize(5);
+    assertThat(count("_other", "ON", "FALLTHROUGH")).isEqualTo(195);
+  }
+}
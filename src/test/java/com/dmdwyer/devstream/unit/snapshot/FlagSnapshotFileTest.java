@@ -0,0 +1,93 @@
+package com.dmdwyer.devstream.unit.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.BucketingMode;
+import com.dmdwyer.devstream.engine.SegmentMembers;
+import com.dmdwyer.devstream.snapshot.FlagSnapshotFile;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Epic("Feature Flags Management")
+@Feature("Snapshot File")
+public class FlagSnapshotFileTest {
+  private final List<FlagDto> flags = List.of(
+      new FlagDto(1L, "checkout", true, "[{\"attr\":\"country\",\"op\":\"eq\",\"value\":\"IE\",\"variant\":\"B\"}]",
+          "{\"A\":50,\"B\":50}", BucketingMode.MURMUR3, 3L),
+      new FlagDto(2L, "legacy-é", false, null, null, null, 0L));
+  private final Map<String, SegmentMembers> segments = Map.of(
+      "beta", membersOf(20_000),
+      "empty", SegmentMembers.EMPTY);
+
+  @Test
+  @Story("Round trip")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that flags and segments written to the snapshot file are read back unchanged, including nulls and non-ASCII keys")
+  public void writeThenRead_returnsSameFlagsAndSegments(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("nested/flags.snapshot");
+    Instant writtenAt = Instant.parse("2026-01-01T00:00:00Z");
+
+    FlagSnapshotFile.write(file, flags, segments, writtenAt);
+    FlagSnapshotFile.Contents contents = FlagSnapshotFile.read(file);
+
+    assertThat(contents.writtenAt()).isEqualTo(writtenAt);
+    assertThat(contents.flags()).containsExactlyElementsOf(flags);
+    assertThat(contents.segments()).containsOnlyKeys("beta", "empty");
+    SegmentMembers beta = contents.segments().get("beta");
+    assertThat(beta.size()).isEqualTo(20_000);
+    assertThat(beta.contains("user-0")).isTrue();
+    assertThat(beta.contains("user-19999")).isTrue();
+    assertThat(beta.contains("user-20000")).isFalse();
+    assertThat(contents.segments().get("empty").size()).isZero();
+    try (var leftovers = Files.list(file.getParent())) {
+      assertThat(leftovers).containsExactly(file);
+    }
+  }
+
+  @Test
+  @Story("Corruption")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that a flipped byte or a truncated file is rejected instead of being served")
+  public void read_rejectsCorruptOrTruncatedFile(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("flags.snapshot");
+    FlagSnapshotFile.write(file, flags, segments, Instant.now());
+    byte[] bytes = Files.readAllBytes(file);
+
+    bytes[30] ^= 1;
+    Files.write(file, bytes);
+    assertThatThrownBy(() -> FlagSnapshotFile.read(file)).isInstanceOf(IOException.class).hasMessage("checksum mismatch");
+
+    Files.write(file, Arrays.copyOf(bytes, 10));
+    assertThatThrownBy(() -> FlagSnapshotFile.read(file)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  @Story("Corruption")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that a disabled or unreadable snapshot file is reported as absent")
+  public void instanceRead_isEmptyWhenDisabledOrCorrupt(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("flags.snapshot");
+    Files.writeString(file, "not a snapshot file at all");
+
+    assertThat(new FlagSnapshotFile(null, null, "", Duration.ofSeconds(1), false).read()).isEmpty();
+    assertThat(new FlagSnapshotFile(null, null, file.toString(), Duration.ofSeconds(1), false).read()).isEmpty();
+  }
+
+  private static SegmentMembers membersOf(int n) {
+    SegmentMembers.Builder b = SegmentMembers.builder(n);
+    for (int i = 0; i < n; i++) b.add("user-" + i);
+    return b.build();
+  }
+}
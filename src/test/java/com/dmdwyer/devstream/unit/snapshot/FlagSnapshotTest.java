@@ -0,0 +1,59 @@
+package com.dmdwyer.devstream.unit.snapshot;
+
+import com.dmdwyer.devstream.dto.FlagDto;
+import com.dmdwyer.devstream.engine.FlagCompiler;
+import com.dmdwyer.devstream.snapshot.FlagSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qameta.allure.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Epic("Feature Flags Management")
+@Feature("Flag Snapshot")
+public class FlagSnapshotTest {
+  private final FlagCompiler compiler = new FlagCompiler(new ObjectMapper());
+
+  private FlagSnapshot.Entry entry(long id, String key, boolean enabled) {
+    return new FlagSnapshot.Entry(new FlagDto(id, key, enabled, null, null), compiler.compile(key, enabled, null, null, null));
+  }
+
+  @Test
+  @Story("Copy-on-write publishing")
+  @Severity(SeverityLevel.CRITICAL)
+  @Description("Verify that applying a change produces a new version and leaves the previous snapshot untouched")
+  public void apply_returnsNewVersion_withoutMutatingPrevious() {
+    FlagSnapshot v1 = FlagSnapshot.of(1, List.of(entry(1L, "a", true)));
+
+    FlagSnapshot v2 = v1.apply(null, entry(2L, "b", false));
+
+    assertThat(v2.version()).isEqualTo(2);
+    assertThat(v2.flags()).containsOnlyKeys("a", "b");
+    assertThat(v1.flags()).containsOnlyKeys("a");
+  }
+
+  @Test
+  @Story("Copy-on-write publishing")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that a renamed flag is removed under its old key and published under its new key")
+  public void apply_withRemovedKeyAndUpsert_renamesFlag() {
+    FlagSnapshot v1 = FlagSnapshot.of(1, List.of(entry(1L, "old", true)));
+
+    FlagSnapshot v2 = v1.apply("old", entry(1L, "new", true));
+
+    assertThat(v2.find("old")).isEmpty();
+    assertThat(v2.find("new")).isPresent();
+  }
+
+  @Test
+  @Story("Snapshot immutability")
+  @Severity(SeverityLevel.NORMAL)
+  @Description("Verify that the published flag map cannot be modified by readers")
+  public void flags_isUnmodifiable() {
+    FlagSnapshot snapshot = FlagSnapshot.of(1, List.of());
+
+    assertThat(snapshot.flags()).isUnmodifiable();
+  }
+}
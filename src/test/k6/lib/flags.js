@@ -0,0 +1,111 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+// Shared by the load-*.js scripts. They expect the dataset from the "loadtest" profile
+// (LoadTestSeed): FLAG_COUNT flags named load_00000.., where flag i is a plain percentage
+// rollout when i % 20 < 8.
+export const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+export const FLAG_COUNT = parseInt(__ENV.FLAG_COUNT || '5000');
+
+const COUNTRIES = ['IE', 'GB', 'FR', 'DE', 'ES', 'IT', 'NL', 'PL', 'US', 'CA', 'BR', 'IN', 'JP', 'AU'];
+const PLANS = ['free', 'pro', 'premium', 'enterprise'];
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+function pick(values) {
+    return values[Math.floor(Math.random() * values.length)];
+}
+
+function int(n) {
+    return Math.floor(Math.random() * n);
+}
+
+export function flagKey(i) {
+    return `load_${String(i).padStart(5, '0')}`;
+}
+
+// Traffic is skewed towards a few hot flags, as it is in production: half of all evaluations
+// go to the first 1% of flags
+export function randomFlagKey() {
+    const hot = Math.max(1, Math.floor(FLAG_COUNT / 100));
+    return flagKey(Math.random() < 0.5 ? int(hot) : int(FLAG_COUNT));
+}
+
+export function rolloutFlagKey() {
+    return flagKey(int(Math.max(1, Math.floor(FLAG_COUNT / 20))) * 20 + int(8));
+}
+
+// 1M distinct users; even ids are in the seeded segment
+export function randomUser() {
+    return {
+        userId: `user-${int(1000000)}`,
+        attributes: {
+            country: pick(COUNTRIES),
+            plan: pick(PLANS),
+            tenant: `t-${int(500)}`,
+            app_version: `${1 + int(3)}.${int(10)}.${int(5)}`,
+            age: String(18 + int(60)),
+            account: `acct-${int(100000)}`,
+        },
+    };
+}
+
+export function evaluate() {
+    const user = randomUser();
+    const query = Object.entries(user.attributes).map(([k, v]) => `${k}=${encodeURIComponent(v)}`).join('&');
+    const res = http.get(`${BASE_URL}/flags/${randomFlagKey()}/evaluate?userId=${user.userId}&${query}`,
+        { tags: { name: 'evaluate' } });
+    check(res, { 'evaluate status is 200': (r) => r.status === 200 });
+}
+
+// What an SDK or page render does on startup: a batch of flags for one user
+export function evaluateBulk(size = 25) {
+    const keys = [];
+    for (let i = 0; i < size; i++) keys.push(randomFlagKey());
+    const res = http.post(`${BASE_URL}/flags/evaluate`, JSON.stringify({ ...randomUser(), keys }),
+        { headers: JSON_HEADERS, tags: { name: 'evaluate_bulk' } });
+    check(res, { 'bulk evaluate status is 200': (r) => r.status === 200 });
+}
+
+// A polling SDK: revalidates the full snapshot with its ETag. k6 keeps module state per VU,
+// so each VU behaves like one client.
+let snapshotETag = null;
+
+export function syncSnapshot() {
+    const headers = { 'Accept-Encoding': 'gzip' };
+    if (snapshotETag) headers['If-None-Match'] = snapshotETag;
+    const res = http.get(`${BASE_URL}/flags/snapshot`, {
+        headers, tags: { name: 'snapshot' }, responseCallback: http.expectedStatuses(200, 304),
+    });
+    check(res, { 'snapshot status is 200 or 304': (r) => r.status === 200 || r.status === 304 });
+    if (res.status === 200) snapshotETag = res.headers['Etag'];
+}
+
+// A caching client on delta sync: follows next, and starts over from the snapshot on resync
+let changesCursor = 0;
+
+export function syncChanges() {
+    const res = http.get(`${BASE_URL}/flags/changes?since=${changesCursor}`, { tags: { name: 'changes' } });
+    if (!check(res, { 'changes status is 200': (r) => r.status === 200 })) return;
+    const body = res.json();
+    if (body.resyncRequired) syncSnapshot();
+    changesCursor = body.next;
+}
+
+// Moves a rollout's split, as an operator ramping a flag would. 412 means another VU wrote
+// the same flag at the same moment, which is the API doing its job.
+export function patchRollout() {
+    const a = 1 + int(99);
+    const res = http.patch(`${BASE_URL}/flags/${rolloutFlagKey()}`, JSON.stringify({ variantsJson: `{"A":${a},"B":${100 - a}}` }),
+        { headers: JSON_HEADERS, tags: { name: 'patch' }, responseCallback: http.expectedStatuses(200, 412) });
+    check(res, { 'patch status is 200 or 412': (r) => r.status === 200 || r.status === 412 });
+}
+
+// Fails fast when the dataset isn't there, instead of reporting thousands of 404s
+export function requireDataset() {
+    const res = http.get(`${BASE_URL}/flags/${flagKey(FLAG_COUNT - 1)}`);
+    if (res.status !== 200) {
+        throw new Error(`${flagKey(FLAG_COUNT - 1)} not found: start the app with the "loadtest" profile and FLAG_COUNT <= flags.seed.count`);
+    }
+}
+
+export const summaryTrendStats = ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'];
@@ -0,0 +1,37 @@
+import { evaluate, evaluateBulk, requireDataset, summaryTrendStats } from './lib/flags.js';
+
+// Steady evaluation traffic at a fixed arrival rate (RATE per second, default 1000), so a slow
+// server shows up as latency and dropped iterations rather than as fewer requests sent.
+// One request in ten is a bulk evaluation of 25 flags.
+const RATE = parseInt(__ENV.RATE || '1000');
+
+export const options = {
+    scenarios: {
+        evaluate: {
+            executor: 'constant-arrival-rate',
+            exec: 'evaluateMix',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: __ENV.DURATION || '5m',
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.001'],
+        'http_req_duration{name:evaluate}': ['p(95)<25', 'p(99)<50'],
+        'http_req_duration{name:evaluate_bulk}': ['p(95)<50', 'p(99)<100'],
+        dropped_iterations: ['count<1'],
+        checks: ['rate>0.999'],
+    },
+    summaryTrendStats,
+};
+
+export function setup() {
+    requireDataset();
+}
+
+export function evaluateMix() {
+    if (Math.random() < 0.1) evaluateBulk();
+    else evaluate();
+}
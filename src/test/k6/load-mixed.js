@@ -0,0 +1,77 @@
+import { evaluate, evaluateBulk, patchRollout, requireDataset, summaryTrendStats, syncChanges, syncSnapshot } from './lib/flags.js';
+
+// Evaluation traffic while operators change flags: admin PATCHes to rollout splits
+// (WRITE_RATE per second, default 5) run alongside evaluations and polling clients. Every
+// write republishes the snapshot, invalidates the pre-serialized /flags/snapshot payload and
+// shows up in /flags/changes, so this is the test for read latency under churn.
+const DURATION = __ENV.DURATION || '5m';
+
+export const options = {
+    scenarios: {
+        evaluate: {
+            executor: 'constant-arrival-rate',
+            exec: 'evaluate',
+            rate: parseInt(__ENV.RATE || '1000'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+        evaluate_bulk: {
+            executor: 'constant-arrival-rate',
+            exec: 'bulk',
+            rate: 50,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 20,
+            maxVUs: 200,
+        },
+        pollers: {
+            executor: 'constant-arrival-rate',
+            exec: 'poll',
+            rate: 20,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 200,
+        },
+        admin: {
+            executor: 'constant-arrival-rate',
+            exec: 'write',
+            rate: parseInt(__ENV.WRITE_RATE || '5'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 5,
+            maxVUs: 50,
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.001'],
+        'http_req_duration{scenario:evaluate}': ['p(95)<25', 'p(99)<50'],
+        'http_req_duration{scenario:evaluate_bulk}': ['p(99)<100'],
+        'http_req_duration{name:snapshot}': ['p(99)<500'],
+        'http_req_duration{name:changes}': ['p(99)<100'],
+        'http_req_duration{scenario:admin}': ['p(95)<250', 'p(99)<500'],
+        checks: ['rate>0.999'],
+    },
+    summaryTrendStats,
+};
+
+export function setup() {
+    requireDataset();
+}
+
+export { evaluate };
+
+export function bulk() {
+    evaluateBulk();
+}
+
+export function write() {
+    patchRollout();
+}
+
+export function poll() {
+    if (Math.random() < 0.5) syncSnapshot();
+    else syncChanges();
+}
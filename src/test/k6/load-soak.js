@@ -0,0 +1,55 @@
+import { evaluate, evaluateBulk, requireDataset, summaryTrendStats, syncChanges, syncSnapshot } from './lib/flags.js';
+
+// Moderate load for a long time (DURATION, default 2h) to surface what short runs miss: heap or
+// connection leaks, exposure backlog growth, GC pauses that creep up. Polling clients (snapshot
+// revalidation and delta sync) run alongside evaluations the whole time. Watch the service's
+// jvm_memory_used_bytes, hikaricp_connections_active and flag_exposures_dropped_total while
+// it runs; the thresholds catch latency drift and errors.
+const DURATION = __ENV.DURATION || '2h';
+
+export const options = {
+    scenarios: {
+        evaluate: {
+            executor: 'constant-arrival-rate',
+            exec: 'evaluateMix',
+            rate: parseInt(__ENV.RATE || '500'),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+        pollers: {
+            executor: 'constant-arrival-rate',
+            exec: 'poll',
+            rate: 20,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 200,
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.001'],
+        'http_req_duration{name:evaluate}': ['p(95)<25', 'p(99)<50', 'max<2000'],
+        'http_req_duration{name:evaluate_bulk}': ['p(99)<100'],
+        'http_req_duration{name:snapshot}': ['p(99)<500'],
+        'http_req_duration{name:changes}': ['p(99)<100'],
+        dropped_iterations: ['count<1'],
+        checks: ['rate>0.999'],
+    },
+    summaryTrendStats,
+};
+
+export function setup() {
+    requireDataset();
+}
+
+export function evaluateMix() {
+    if (Math.random() < 0.1) evaluateBulk();
+    else evaluate();
+}
+
+export function poll() {
+    if (Math.random() < 0.5) syncSnapshot();
+    else syncChanges();
+}
@@ -0,0 +1,44 @@
+import { evaluate, evaluateBulk, requireDataset, summaryTrendStats } from './lib/flags.js';
+
+// Ramps evaluation traffic well past the expected peak (PEAK per second, default 10000) and
+// back down, to find where latency bends and to check the service recovers once the load
+// drops. The run aborts as soon as errors pass 5%; the latency thresholds are looser than
+// load-evaluate.js because the top stages are meant to saturate.
+const PEAK = parseInt(__ENV.PEAK || '10000');
+
+export const options = {
+    scenarios: {
+        stress: {
+            executor: 'ramping-arrival-rate',
+            exec: 'evaluateMix',
+            startRate: Math.ceil(PEAK / 20),
+            timeUnit: '1s',
+            preAllocatedVUs: 200,
+            maxVUs: 5000,
+            stages: [
+                { target: Math.ceil(PEAK / 4), duration: '1m' },
+                { target: Math.ceil(PEAK / 2), duration: '2m' },
+                { target: PEAK, duration: '2m' },
+                { target: PEAK, duration: '3m' },
+                { target: Math.ceil(PEAK / 20), duration: '1m' },
+                { target: Math.ceil(PEAK / 20), duration: '1m' },
+            ],
+        },
+    },
+    thresholds: {
+        http_req_failed: [{ threshold: 'rate<0.05', abortOnFail: true, delayAbortEval: '30s' }, 'rate<0.01'],
+        'http_req_duration{name:evaluate}': ['p(95)<100', 'p(99)<250'],
+        'http_req_duration{name:evaluate_bulk}': ['p(95)<200', 'p(99)<500'],
+        checks: ['rate>0.99'],
+    },
+    summaryTrendStats,
+};
+
+export function setup() {
+    requireDataset();
+}
+
+export function evaluateMix() {
+    if (Math.random() < 0.1) evaluateBulk();
+    else evaluate();
+}
@@ -0,0 +1,57 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+// Compares platform- and virtual-thread mode: run once against each (see README, "Virtual
+// threads"). Bursts of evaluations arrive while a steady stream of list requests holds
+// pooled connections, which is where platform request threads end up blocked on JDBC.
+export const options = {
+    scenarios: {
+        evaluate_bursts: {
+            executor: 'ramping-arrival-rate',
+            exec: 'evaluate',
+            startRate: 200,
+            timeUnit: '1s',
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+            stages: [
+                { target: 200, duration: '20s' },
+                { target: 5000, duration: '5s' },
+                { target: 5000, duration: '20s' },
+                { target: 200, duration: '5s' },
+                { target: 5000, duration: '5s' },
+                { target: 5000, duration: '20s' },
+                { target: 200, duration: '5s' },
+            ],
+        },
+        list: {
+            executor: 'constant-arrival-rate',
+            exec: 'list',
+            rate: 300,
+            timeUnit: '1s',
+            duration: '80s',
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+    },
+    thresholds: {
+        'http_req_duration{scenario:evaluate_bursts}': ['p(99)<250'],
+        'http_req_failed{scenario:evaluate_bursts}': ['rate<0.01'],
+        'http_req_duration{scenario:list}': ['p(99)<2500'],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export function evaluate() {
+    const res = http.get(`${BASE_URL}/flags/homepage_banner/evaluate?userId=user-${__VU}-${__ITER}&country=IE`);
+    check(res, { 'evaluate status is 200': (r) => r.status === 200 });
+}
+
+// 503 is the intended answer once the connection pool is exhausted, so it isn't a failure here
+export function list() {
+    const res = http.get(`${BASE_URL}/flags?size=50`, {
+        responseCallback: http.expectedStatuses(200, 503),
+    });
+    check(res, { 'list status is 200 or 503': (r) => r.status === 200 || r.status === 503 });
+}